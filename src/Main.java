@@ -2,6 +2,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -10,16 +11,42 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ast.NodeProgram;
+import emitter.DcEmitter;
+import emitter.PeepholeRules;
+import exception.CodeGeneratorException;
+import exception.InterpreterException;
+import exception.IrException;
 import exception.SyntacticException;
+import interpreter.Interpreter;
+import ir.IrLowering;
+import ir.IrProgram;
+import jvm.JvmProgram;
+import optimizer.OptimizationLevel;
+import optimizer.PassManager;
+import optimizer.PassStatistics;
+import optimizer.ProgramEvaluator;
+import optimizer.Superoptimizer;
 import parser.Parser;
 import scanner.Scanner;
 import symbolTable.SymbolTable;
 import visitor.CodeGeneratorVisitor;
 import visitor.TypeCheckingVisitor;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
 
 public class Main {
     static List<String> lines = new ArrayList<>();
     static java.util.Scanner scanner = new java.util.Scanner(System.in);
+    static boolean minify;
+    static boolean macros;
+    static Path output;
+    static OptimizationLevel level = OptimizationLevel.O1;
+    static boolean superoptimize;
+    static boolean evaluate;
+    static boolean run;
+    static boolean vm;
+    static boolean jvm;
+    static final Path SUPEROPTIMIZER_CACHE = Paths.get("superoptimizer.cache");
 
     /**
      * Saves the lines of code to a file at the specified path.
@@ -53,15 +80,251 @@ public class Main {
         NodeProgram nP = new Parser(new Scanner(path)).parse();
         var tcVisit = new TypeCheckingVisitor();
         nP.accept(tcVisit);
-        var cgVisit = new CodeGeneratorVisitor();
-        nP.accept(cgVisit);
-        var generateCode = cgVisit.getGeneratedCode();
+
+        if (tcVisit.getErrorMessage() != null) {
+            System.out.println("\nTYPE ERRORS: \n" + tcVisit.getErrorMessage());
+            return;
+        }
+
+        if (run) {
+            System.out.println("\nRunning " + path + "...\n");
+
+            try {
+                Interpreter.compile(nP).run(System.out);
+            } catch (InterpreterException e) {
+                System.out.println("RUNTIME ERROR: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Cannot write the output: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (jvm) {
+            JvmProgram program;
+
+            try {
+                program = JvmProgram.compile(nP);
+            } catch (IllegalStateException e) {
+                System.out.println("\nCannot compile to a JVM class (" + e.getMessage() + "), running on the VM.");
+                program = null;
+                vm = true;
+            }
+
+            if (program != null) {
+                System.out.println("\nRunning " + path + " (JVM class of " + program.getClassFile().length
+                        + " bytes)...\n");
+
+                try {
+                    program.run(System.out);
+                } catch (InterpreterException e) {
+                    System.out.println("RUNTIME ERROR: " + e.getMessage());
+                } catch (IOException e) {
+                    System.out.println("Cannot write the output: " + e.getMessage());
+                }
+                return;
+            }
+        }
+
+        if (vm) {
+            var compiler = new BytecodeCompiler();
+            nP.accept(compiler);
+            var bytecode = compiler.getBytecode();
+            System.out.println("\nRunning " + path + " (" + bytecode.getInstructionCount() + " instructions, "
+                    + bytecode.getRegisterCount() + " registers)...\n");
+
+            try {
+                VirtualMachine.run(bytecode, System.out);
+            } catch (InterpreterException e) {
+                System.out.println("RUNTIME ERROR: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Cannot write the output: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (evaluate) {
+            var evaluator = new ProgramEvaluator();
+            nP.accept(evaluator);
+
+            if (evaluator.isEvaluated()) {
+                DcEmitter emitter;
+
+                try {
+                    emitter = newEmitter();
+                } catch (IOException e) {
+                    System.out.println("Cannot write " + output + ": " + e.getMessage());
+                    return;
+                }
+
+                evaluator.emit(emitter);
+                System.out.println("\nCompilation complete! Current is now direct!\n");
+                printCode("GENERATED DC CODE (evaluated)", emitter);
+                return;
+            }
+
+            System.out.println("\nThe program divides by zero, it is compiled without being evaluated.");
+        }
+
+        var passes = PassManager.forLevel(level);
+        IrProgram ir;
+
+        try {
+            ir = passes.run(nP);
+        } catch (IrException e) {
+            System.out.println("\nINVALID IR: " + e.getMessage());
+            return;
+        }
+
+        DcEmitter emitter;
+
+        try {
+            emitter = newEmitter();
+        } catch (IOException e) {
+            System.out.println("Cannot write " + output + ": " + e.getMessage());
+            return;
+        }
+
+        int spills;
+        CodeGeneratorVisitor cgVisit = null;
+        Superoptimizer superoptimizer = null;
+
+        if (ir == null) {
+            cgVisit = new CodeGeneratorVisitor(emitter);
+            superoptimizer = superoptimize ? loadSuperoptimizer() : null;
+            cgVisit.setSuperoptimizer(superoptimizer);
+            nP.accept(cgVisit);
+            spills = cgVisit.getSpillCount();
+
+        } else {
+            var lowering = new IrLowering(emitter);
+
+            try {
+                lowering.lower(ir);
+            } catch (CodeGeneratorException e) {
+                System.out.println("\nCODE GENERATION ERROR: " + e.getMessage());
+                return;
+            }
+
+            spills = lowering.getSpillCount();
+        }
+
         System.out.println("\nCompilation complete! Current is now direct!\n");
-        System.out.println("GENERATED DC CODE: \n" + generateCode);
+        printCode("GENERATED DC CODE", emitter);
+        System.out.println("\nOPTIMIZATION LEVEL: -" + level);
+
+        for (PassStatistics pass : passes.getStatistics())
+            System.out.println("  " + pass);
+
+        System.out.println("\nSPILLED VARIABLES: " + spills);
+        System.out.println("\nPEEPHOLE REWRITES: " + emitter.getRewriteCount());
+        System.out.println("\nMACROS: " + emitter.getMacroCount());
+
+        if (cgVisit != null && output == null)
+            System.out.println("\nSTACK DEPTH PER STATEMENT: " + cgVisit.getStackDepths()
+                    + " (max " + cgVisit.getMaxStackDepth() + ")");
+        else if (cgVisit != null)
+            System.out.println("\nMAXIMUM STACK DEPTH: " + cgVisit.getMaxStackDepth());
+
+        if (superoptimizer != null) {
+            System.out.println("\nSUPEROPTIMIZED EXPRESSIONS: " + superoptimizer.getAppliedCount()
+                    + " (" + superoptimizer.getSearchCount() + " shapes searched, "
+                    + superoptimizer.getHitCount() + " found in the cache)");
+
+            try {
+                superoptimizer.save(SUPEROPTIMIZER_CACHE);
+            } catch (IOException e) {
+                System.out.println("Cannot save " + SUPEROPTIMIZER_CACHE + ": " + e.getMessage());
+            }
+        }
+
         System.out.println("\nSYMBOL TABLE: \n" + SymbolTable.toStr());
     }
 
+    /**
+     * Creates the emitter of the generated code, with the peephole rules and,
+     * if requested, macro extraction and minification. With an output file
+     * the code is streamed to it instead of being kept in memory.
+     *
+     * @throws IOException if the output file cannot be opened
+     */
+    static DcEmitter newEmitter() throws IOException {
+        var emitter = output == null ? new DcEmitter()
+                : new DcEmitter(FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING));
+        emitter.setPeepholeRules(PeepholeRules.defaults());
+        emitter.setMacroExtraction(macros);
+        emitter.setMinified(minify);
+        return emitter;
+    }
+
+    /**
+     * Creates a superoptimizer with the shapes cached by the previous
+     * compilations, if any.
+     */
+    static Superoptimizer loadSuperoptimizer() {
+        Superoptimizer superoptimizer = new Superoptimizer();
+
+        if (Files.exists(SUPEROPTIMIZER_CACHE)) {
+            try {
+                superoptimizer.load(SUPEROPTIMIZER_CACHE);
+            } catch (IOException e) {
+                System.out.println("Cannot read " + SUPEROPTIMIZER_CACHE + ": " + e.getMessage());
+            }
+        }
+
+        return superoptimizer;
+    }
+
+    /**
+     * Prints the code of an in-memory emitter, or closes the output file of
+     * a streaming one and prints the number of characters written.
+     */
+    static void printCode(String title, DcEmitter emitter) {
+        if (!emitter.isStreaming()) {
+            System.out.println(title + ": \n" + emitter.getCode().strip());
+            return;
+        }
+
+        try {
+            emitter.close();
+            System.out.println(title + ": " + emitter.length() + " characters written to " + output);
+        } catch (IOException e) {
+            System.out.println("Cannot write " + output + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a program from the standard input, saves it and compiles it.
+     * With the {@code --minify} argument the dc code is written minified,
+     * with {@code --macros} its repeated sequences become dc macros, with
+     * {@code --output=<file>} it is streamed to the file instead of being
+     * printed;
+     * {@code -O0}, {@code -O1} (the default) or {@code -O2} choose the
+     * optimization passes; with {@code --superoptimize} the small integer
+     * expressions are superoptimized, the results being cached in
+     * {@code superoptimizer.cache}; with {@code --evaluate} the program is
+     * run by the compiler and only its output is printed by the dc code;
+     * with {@code --run} it is run in the JVM instead of being compiled, with
+     * {@code --vm} it is compiled to register bytecode and run by the
+     * {@code VirtualMachine}, with {@code --jvm} it is compiled to a JVM
+     * class and run by the JVM.
+     */
     public static void main(String[] args) throws FileNotFoundException, SyntacticException {
+        minify = List.of(args).contains("--minify");
+        macros = List.of(args).contains("--macros");
+        superoptimize = List.of(args).contains("--superoptimize");
+        evaluate = List.of(args).contains("--evaluate");
+        run = List.of(args).contains("--run");
+        vm = List.of(args).contains("--vm");
+        jvm = List.of(args).contains("--jvm");
+
+        for (String arg : args) {
+            if (OptimizationLevel.fromArgument(arg) != null)
+                level = OptimizationLevel.fromArgument(arg);
+            else if (arg.startsWith("--output="))
+                output = Paths.get(arg.substring("--output=".length()));
+        }
+
         StringBuilder sb = new StringBuilder();
         int lineNumber = 1;
 
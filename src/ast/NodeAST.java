@@ -1,12 +1,29 @@
 package ast;
 
-import java.lang.invoke.TypeDescriptor;
-
 import visitor.IVisitor;
 
 public abstract class NodeAST {
     TypeDescriptor resType;
     String codiceDc;
 
+    /**
+     * Returns the type computed for this node by the type checking, null if
+     * it has not been checked.
+     * 
+     * @return the type descriptor of the node
+     */
+    public TypeDescriptor getResType() {
+        return resType;
+    }
+
+    /**
+     * Sets the type computed for this node.
+     * 
+     * @param resType the type descriptor of the node
+     */
+    public void setResType(TypeDescriptor resType) {
+        this.resType = resType;
+    }
+
     public abstract void accept(IVisitor visitor);
 }
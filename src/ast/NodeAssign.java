@@ -19,6 +19,10 @@ public class NodeAssign extends NodeStm {
         return expr;
     }
 
+    public void setExpr(NodeExpr expr) {
+        this.expr = expr;
+    }
+
     @Override
     public String toString() {
         return "[Assign:" + id + "," + expr + "]";
@@ -1,5 +1,7 @@
 package ast;
 
+import java.util.ArrayDeque;
+
 import org.junit.platform.engine.support.hierarchical.Node;
 
 import visitor.IVisitor;
@@ -27,13 +29,42 @@ public class NodeBinOp extends NodeExpr {
         return right;
     }
 
+    public void setLeft(NodeExpr left) {
+        this.left = left;
+    }
+
+    public void setRight(NodeExpr right) {
+        this.right = right;
+    }
+
     public void setOp(LangOper op) {
         this.op = op;
     }
 
+    /**
+     * Returns the string representation {@code [BinOp:op,left,right]}.
+     * The left spine is walked with a loop, so long left-associative chains do
+     * not recurse once per operator.
+     */
     @Override
     public String toString() {
-        return "[BinOp:" + op + "," + left + "," + right + "]";
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        StringBuilder builder = new StringBuilder();
+        NodeExpr node = this;
+
+        while (node instanceof NodeBinOp) {
+            NodeBinOp binOp = (NodeBinOp) node;
+            builder.append("[BinOp:").append(binOp.op).append(",");
+            spine.push(binOp);
+            node = binOp.left;
+        }
+
+        builder.append(node);
+
+        while (!spine.isEmpty())
+            builder.append(",").append(spine.pop().right).append("]");
+
+        return builder.toString();
     }
 
     public void accept(IVisitor visitor) {
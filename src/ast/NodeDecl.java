@@ -25,6 +25,10 @@ public class NodeDecl extends NodeDecSt {
         return init;
     }
 
+    public void setInit(NodeExpr init) {
+        this.init = init;
+    }
+
     @Override
     public String toString() {
         return "[Decl:" + id + "," + type + "," + init + "]";
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import exception.LexicalException;
+import scanner.DfaScanner;
+import scanner.IScanner;
+import scanner.Scanner;
+import token.TokenType;
+
+/**
+ * Tokens/second of the hand written {@link Scanner} against the table-driven
+ * {@link DfaScanner}.<br>
+ *
+ * Usage: {@code java benchmark.ScannerBenchmark [statements] [rounds]}.<br>
+ * A synthetic AC program with the given number of statements is generated in
+ * a temporary file and scanned {@code rounds} times by each scanner; the first
+ * round is a warm-up and is not measured. Tracing stays off, as by default.
+ */
+public class ScannerBenchmark {
+
+    public static void main(String[] args) throws IOException, LexicalException {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File source = File.createTempFile("bench", ".ac");
+        source.deleteOnExit();
+        writeProgram(source, statements);
+
+        double hand = run("Scanner", source, rounds, false);
+        double dfa = run("DfaScanner", source, rounds, true);
+
+        System.out.printf("speedup: %.2fx%n", dfa / hand);
+    }
+
+    /**
+     * Writes a program mixing declarations, all the operators, identifiers,
+     * keywords and int/float literals.
+     */
+    static void writeProgram(File file, int statements) throws IOException {
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (int i = 0; i < statements; i++) {
+                switch (i % 4) {
+                    case 0 -> pw.println("int var" + i + " = " + i + " * 3 + tmp / 7;");
+                    case 1 -> pw.println("float f" + i + " = 1.25 - var" + (i - 1) + " / 0.50000;");
+                    case 2 -> pw.println("f" + (i - 1) + " += var" + (i - 2) + " * 2.5;");
+                    default -> pw.println("print f" + (i - 2) + ";");
+                }
+            }
+        }
+    }
+
+    private static double run(String name, File source, int rounds, boolean dfa)
+            throws IOException, LexicalException {
+        long tokens = 0;
+        long nanos = 0;
+
+        for (int r = 0; r < rounds; r++) {
+            long start = System.nanoTime();
+            long count = scan(dfa ? new DfaScanner(source.getPath()) : new Scanner(source.getPath()));
+            long elapsed = System.nanoTime() - start;
+
+            if (r > 0) {
+                tokens += count;
+                nanos += elapsed;
+            }
+        }
+
+        double perSecond = tokens / (nanos / 1e9);
+        System.out.printf("%-10s %,14.0f tokens/s%n", name, perSecond);
+        return perSecond;
+    }
+
+    private static long scan(IScanner scanner) throws LexicalException {
+        long count = 1;
+
+        while (scanner.nextToken().getType() != TokenType.EOF)
+            count++;
+
+        return count;
+    }
+}
@@ -0,0 +1,556 @@
+package emitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.LangOper;
+
+/**
+ * Writer of dc code.<br>
+ *
+ * Instructions are appended one at a time, separated by a single space (or,
+ * minified, only where dc needs one), to a growable buffer. An emitter created without a destination keeps the whole
+ * program in memory ({@link #getCode()}); an emitter created over a
+ * {@link Writer} or a {@link WritableByteChannel} flushes the buffer to it
+ * every {@value #FLUSH_THRESHOLD} characters, so its memory use does not
+ * depend on the size of the program.<br>
+ *
+ * The emit methods never throw: the first I/O error stops the output and is
+ * rethrown by {@link #flush()} and {@link #close()}, as {@code PrintWriter}
+ * does with {@code checkError()}.<br>
+ *
+ * The emitter also follows the depth of the dc stack, instruction by
+ * instruction, and records the deepest point reached since the last
+ * {@link #resetMaxDepth()}.<br>
+ *
+ * With {@link #setPeepholeRules(List)} the instructions go through a window
+ * of the last {@value #PEEPHOLE_WINDOW} {@link DcInstruction}s before being
+ * written, and the {@link PeepholeRule}s rewrite the end of the window every
+ * time an instruction is added. The stack depth is measured on the window
+ * once rewritten, from its first changed instruction, since a rewriting can
+ * need one more slot ({@code sX lX} becomes {@code d sX}), counted in the
+ * measure in progress when the rule fires. The depth reached by an
+ * instruction a rule later removes stays counted, so the maximum is never
+ * below the one of the code written.<br>
+ *
+ * With {@link #setMacroExtraction(boolean)} the instructions are held until
+ * {@link #getCode()} or {@link #flush()}, and the repeated sequences are
+ * then written once as dc macros (see {@link MacroExtractor}). A streaming
+ * emitter then keeps the code in memory until it is flushed, so the
+ * extraction is off unless requested.
+ */
+public class DcEmitter implements AutoCloseable {
+    /**
+     * Number of buffered characters that triggers a write to the destination.
+     */
+    public static final int FLUSH_THRESHOLD = 8192;
+
+    /**
+     * Number of instructions kept for the peephole rules.
+     */
+    public static final int PEEPHOLE_WINDOW = 32;
+
+    /**
+     * Precision of the float division.
+     */
+    public static final int FLOAT_PRECISION = 5;
+
+    private final StringBuilder buffer;
+    private final Writer out;
+    private long written;
+    private IOException error;
+    private int depth;
+    private int maxDepth;
+    private final List<DcInstruction> window = new ArrayList<>();
+    private final DcInstruction[] unchanged = new DcInstruction[PEEPHOLE_WINDOW + 1];
+    private List<PeepholeRule> rules = List.of();
+    private int rewrites;
+    private int precision;
+    private List<DcInstruction> held;
+    private int macros;
+    private boolean minified;
+    private DcInstruction last;
+
+    /**
+     * Creates an emitter keeping the code in memory.
+     */
+    public DcEmitter() {
+        this.buffer = new StringBuilder();
+        this.out = null;
+    }
+
+    /**
+     * Creates an emitter streaming the code to a writer.
+     *
+     * @param out the destination of the code
+     */
+    public DcEmitter(Writer out) {
+        this.buffer = new StringBuilder(FLUSH_THRESHOLD + 64);
+        this.out = out;
+    }
+
+    /**
+     * Creates an emitter streaming the code, ASCII encoded, to a channel.
+     *
+     * @param channel the destination of the code
+     */
+    public DcEmitter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Pushes a numeric literal. A leading minus sign is written as the dc
+     * {@code _} prefix.
+     *
+     * @param literal the number to push
+     */
+    public void number(String literal) {
+        emit(DcInstruction.number(literal));
+    }
+
+    /**
+     * Pushes the value of a register ({@code lX}).
+     *
+     * @param register the register to load
+     */
+    public void load(char register) {
+        emit(DcInstruction.load(register));
+    }
+
+    /**
+     * Pops the top of the stack into a register ({@code sX}).
+     *
+     * @param register the register to store into
+     */
+    public void store(char register) {
+        emit(DcInstruction.store(register));
+    }
+
+    /**
+     * Pushes an element of a dc array ({@code n ;X}).
+     *
+     * @param array the register holding the array
+     * @param index the index of the element
+     */
+    public void loadArray(char array, int index) {
+        number(Integer.toString(index));
+        emit(DcInstruction.loadArray(array));
+    }
+
+    /**
+     * Pops the top of the stack into an element of a dc array ({@code n :X}).
+     *
+     * @param array the register holding the array
+     * @param index the index of the element
+     */
+    public void storeArray(char array, int index) {
+        number(Integer.toString(index));
+        emit(DcInstruction.storeArray(array));
+    }
+
+    /**
+     * Applies a binary operator to the two values on top of the stack, as
+     * {@link #operator(LangOper, boolean)} does for operands that may not be
+     * integers.
+     *
+     * @param op the operator
+     */
+    public void operator(LangOper op) {
+        operator(op, false);
+    }
+
+    /**
+     * Applies a binary operator to the two values on top of the stack.<br>
+     *
+     * The float division is computed with 5 decimals, the integer division
+     * and the multiplication of floats with precision 0, as if the precision
+     * were set before each of them and restored to 0 after. The emitter
+     * remembers the precision of the code emitted so far and sets it
+     * ({@code n k}) right before the operator only when it differs: a run of
+     * float divisions sets it once, and additions, subtractions and integer
+     * multiplications, whose results do not depend on it, never change it.
+     *
+     * @param op      the operator
+     * @param integer true if both operands are integers
+     */
+    public void operator(LangOper op, boolean integer) {
+        switch (op) {
+            case PLUS:
+                command("+");
+                break;
+            case MINUS:
+                command("-");
+                break;
+            case TIMES:
+                if (!integer)
+                    requirePrecision(0);
+                command("*");
+                break;
+            case DIV:
+                requirePrecision(0);
+                command("/");
+                break;
+            case DIV_FLOAT:
+                requirePrecision(FLOAT_PRECISION);
+                command("/");
+                break;
+        }
+    }
+
+    /**
+     * Sets the precision used by the following divisions and multiplications
+     * ({@code n k}).
+     *
+     * @param digits number of fraction digits
+     */
+    public void precision(int digits) {
+        number(Integer.toString(digits));
+        command("k");
+        precision = digits;
+    }
+
+    /**
+     * Prints the top of the stack and pops it ({@code p P}).
+     */
+    public void print() {
+        command("p");
+        command("P");
+    }
+
+    /**
+     * Duplicates the top of the stack ({@code d}).
+     */
+    public void duplicate() {
+        command("d");
+    }
+
+    /**
+     * Swaps the two values on top of the stack ({@code r}).
+     */
+    public void swap() {
+        command("r");
+    }
+
+    /**
+     * Appends a dc command as it is. The commands unknown to
+     * {@link DcInstruction} are assumed to leave the stack depth unchanged.
+     *
+     * @param command the command, for example {@code d} or {@code r}
+     */
+    public void command(String command) {
+        emit(DcInstruction.command(command));
+    }
+
+    /**
+     * Sends the following instructions through the peephole rules. An empty
+     * list turns the rewriting off.
+     *
+     * @param rules the rules, tried in order
+     */
+    public void setPeepholeRules(List<PeepholeRule> rules) {
+        drainWindow();
+        this.rules = List.copyOf(rules);
+    }
+
+    /**
+     * Holds the following instructions until the code is flushed, to replace
+     * their repeated sequences with macros.
+     *
+     * @param enabled true to extract macros, false to write the instructions
+     *                as they come
+     */
+    public void setMacroExtraction(boolean enabled) {
+        drainWindow();
+        drainHeld();
+        held = enabled ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Writes the following instructions minified: without the spaces dc does
+     * not need and with the numbers in their shortest form (see
+     * {@link DcInstruction#toMinifiedString()}), so {@code 0.5 sa la p P}
+     * becomes {@code .5salapP}.
+     *
+     * @param minified true to minify the code
+     */
+    public void setMinified(boolean minified) {
+        drainWindow();
+        drainHeld();
+        this.minified = minified;
+    }
+
+    /**
+     * Returns the number of macros defined so far.
+     *
+     * @return the number of macros
+     */
+    public int getMacroCount() {
+        return macros;
+    }
+
+    /**
+     * Returns the number of rewritings done by the peephole rules.
+     *
+     * @return the number of rules applied
+     */
+    public int getRewriteCount() {
+        return rewrites;
+    }
+
+    /**
+     * Returns the number of values on the dc stack after the code emitted so
+     * far.
+     *
+     * @return the current stack depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the deepest stack reached since the last reset.
+     *
+     * @return the maximum stack depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Starts measuring the maximum stack depth from the current depth.
+     */
+    public void resetMaxDepth() {
+        maxDepth = depth;
+    }
+
+    /**
+     * Returns the number of characters emitted so far, including the ones
+     * already written to the destination.
+     *
+     * @return the length of the code
+     */
+    public long length() {
+        long length = written + buffer.length();
+
+        for (DcInstruction instruction : window)
+            length += instruction.toString().length() + 1;
+
+        if (held != null)
+            for (DcInstruction instruction : held)
+                length += instruction.toString().length() + 1;
+
+        return length;
+    }
+
+    /**
+     * Checks whether the code is streamed to a destination instead of being
+     * kept in memory.
+     *
+     * @return true for an emitter created over a writer or a channel
+     */
+    public boolean isStreaming() {
+        return out != null;
+    }
+
+    /**
+     * Returns the code of an in-memory emitter.
+     *
+     * @return the code emitted so far
+     * @throws IllegalStateException if the code is streamed to a destination
+     */
+    public String getCode() {
+        if (out != null)
+            throw new IllegalStateException("The code is streamed to a writer");
+
+        drainWindow();
+        drainHeld();
+        return buffer.toString();
+    }
+
+    /**
+     * Drops the code of an in-memory emitter (after a code generation error).
+     * Code already written to a destination cannot be taken back.
+     */
+    public void discard() {
+        window.clear();
+
+        if (held != null)
+            held.clear();
+
+        precision = 0;
+
+        if (out == null) {
+            buffer.setLength(0);
+            last = null;
+        }
+    }
+
+    /**
+     * Writes the buffered code to the destination and flushes it.
+     *
+     * @throws IOException if this or a previous write failed
+     */
+    public void flush() throws IOException {
+        drainWindow();
+        drainHeld();
+        drain();
+
+        if (error == null && out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Flushes and closes the destination.
+     *
+     * @throws IOException if this or a previous write failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (out != null)
+                out.close();
+        }
+    }
+
+    private void requirePrecision(int digits) {
+        if (precision != digits)
+            precision(digits);
+    }
+
+    private void emit(DcInstruction instruction) {
+        depth += effect(instruction);
+
+        if (rules.isEmpty()) {
+            maxDepth = Math.max(maxDepth, depth);
+            output(instruction);
+            return;
+        }
+
+        window.add(instruction);
+        window.toArray(unchanged);
+        int size = window.size();
+        boolean rewritten = false;
+
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).rewrite(window)) {
+                rewrites++;
+                rewritten = true;
+                i = -1;
+            }
+        }
+
+        maxDepth = Math.max(maxDepth, rewritten ? peak(firstChange(size)) : depth);
+
+        while (window.size() > PEEPHOLE_WINDOW)
+            output(window.remove(0));
+    }
+
+    /**
+     * Returns the index of the first instruction of the window changed by the
+     * rules, comparing it with the copy taken before the rewriting.
+     */
+    private int firstChange(int size) {
+        int i = 0;
+
+        while (i < size && i < window.size() && window.get(i) == unchanged[i])
+            i++;
+
+        return i;
+    }
+
+    /**
+     * Returns the deepest stack reached by the instructions of the window from
+     * an index on; the rules keep the depth at the end of the window.
+     */
+    private int peak(int from) {
+        int level = depth;
+
+        for (int i = from; i < window.size(); i++)
+            level -= effect(window.get(i));
+
+        int peak = depth;
+
+        for (int i = from; i < window.size(); i++) {
+            level += effect(window.get(i));
+            peak = Math.max(peak, level);
+        }
+
+        return peak;
+    }
+
+    private static int effect(DcInstruction instruction) {
+        return instruction.getKind().pushes() - instruction.getKind().pops();
+    }
+
+    private void output(DcInstruction instruction) {
+        if (held != null)
+            held.add(instruction);
+        else
+            append(instruction);
+    }
+
+    private void append(DcInstruction instruction) {
+        if (last != null && (!minified || DcInstruction.separated(last, instruction)))
+            buffer.append(' ');
+
+        buffer.append(minified ? instruction.toMinifiedString() : instruction.toString());
+        last = instruction;
+        written();
+    }
+
+    private void drainWindow() {
+        for (DcInstruction instruction : window)
+            output(instruction);
+
+        window.clear();
+    }
+
+    private void drainHeld() {
+        if (held == null || held.isEmpty())
+            return;
+
+        for (DcInstruction instruction : MacroExtractor.extract(held, minified)) {
+            if (instruction.getKind() == DcInstruction.Kind.MACRO)
+                macros++;
+            append(instruction);
+        }
+
+        held.clear();
+    }
+
+    private void written() {
+        if (out != null && buffer.length() >= FLUSH_THRESHOLD)
+            drain();
+    }
+
+    private void drain() {
+        if (out == null || buffer.length() == 0)
+            return;
+
+        if (error == null) {
+            try {
+                out.append(buffer);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        written += buffer.length();
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,314 @@
+package emitter;
+
+import java.util.List;
+
+/**
+ * A dc instruction, as emitted by the {@link DcEmitter}.<br>
+ *
+ * Instructions are immutable. Each one knows its text, its kind and, for the
+ * register commands, the register it uses; the kind gives the stack effect.
+ * The precision set with {@code k} is managed by the {@link DcEmitter}.<br>
+ *
+ * Besides its plain text, an instruction has a minified text
+ * ({@link #toMinifiedString()}), and {@link #separated(DcInstruction,
+ * DcInstruction)} tells when dc needs a space between two instructions.
+ */
+public final class DcInstruction {
+    /**
+     * Kinds of instruction, with the number of values popped and pushed.
+     */
+    public enum Kind {
+        NUMBER(0, 1),
+        LOAD(0, 1),
+        STORE(1, 0),
+        LOAD_ARRAY(1, 1),
+        STORE_ARRAY(2, 0),
+        ADD(2, 1),
+        SUBTRACT(2, 1),
+        MULTIPLY(2, 1),
+        DIVIDE(2, 1),
+        PRECISION(1, 0),
+        PRINT(1, 1),
+        POP(1, 0),
+        DUPLICATE(1, 2),
+        SWAP(2, 2),
+        MACRO(0, 1),
+        EXECUTE(1, 0),
+        CALL(0, 0),
+        OTHER(0, 0);
+
+        private final int pops;
+        private final int pushes;
+
+        Kind(int pops, int pushes) {
+            this.pops = pops;
+            this.pushes = pushes;
+        }
+
+        /**
+         * Returns the number of values the instruction needs on the stack.
+         *
+         * @return the values popped
+         */
+        public int pops() {
+            return pops;
+        }
+
+        /**
+         * Returns the number of values the instruction leaves on the stack.
+         *
+         * @return the values pushed
+         */
+        public int pushes() {
+            return pushes;
+        }
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final char register;
+    private final List<DcInstruction> body;
+
+    private DcInstruction(Kind kind, String text, char register) {
+        this(kind, text, register, null);
+    }
+
+    private DcInstruction(Kind kind, String text, char register, List<DcInstruction> body) {
+        this.kind = kind;
+        this.text = text;
+        this.register = register;
+        this.body = body;
+    }
+
+    /**
+     * Creates the push of a numeric literal. A leading minus sign is written
+     * as the dc {@code _} prefix.
+     *
+     * @param literal the number to push
+     * @return the instruction
+     */
+    public static DcInstruction number(String literal) {
+        return new DcInstruction(Kind.NUMBER, literal.startsWith("-") ? "_" + literal.substring(1) : literal, '\0');
+    }
+
+    /**
+     * Creates a register load ({@code lX}).
+     *
+     * @param register the register
+     * @return the instruction
+     */
+    public static DcInstruction load(char register) {
+        return new DcInstruction(Kind.LOAD, "l" + register, register);
+    }
+
+    /**
+     * Creates a register store ({@code sX}).
+     *
+     * @param register the register
+     * @return the instruction
+     */
+    public static DcInstruction store(char register) {
+        return new DcInstruction(Kind.STORE, "s" + register, register);
+    }
+
+    /**
+     * Creates an array load ({@code ;X}); the index is on top of the stack.
+     *
+     * @param array the register holding the array
+     * @return the instruction
+     */
+    public static DcInstruction loadArray(char array) {
+        return new DcInstruction(Kind.LOAD_ARRAY, ";" + array, array);
+    }
+
+    /**
+     * Creates an array store ({@code :X}); the index is on top of the stack,
+     * the value below it.
+     *
+     * @param array the register holding the array
+     * @return the instruction
+     */
+    public static DcInstruction storeArray(char array) {
+        return new DcInstruction(Kind.STORE_ARRAY, ":" + array, array);
+    }
+
+    /**
+     * Creates a command without operands, such as {@code +}, {@code k} or
+     * {@code d}.
+     *
+     * @param command the text of the command
+     * @return the instruction
+     */
+    public static DcInstruction command(String command) {
+        Kind kind;
+
+        switch (command) {
+            case "+":
+                kind = Kind.ADD;
+                break;
+            case "-":
+                kind = Kind.SUBTRACT;
+                break;
+            case "*":
+                kind = Kind.MULTIPLY;
+                break;
+            case "/":
+                kind = Kind.DIVIDE;
+                break;
+            case "k":
+                kind = Kind.PRECISION;
+                break;
+            case "p":
+                kind = Kind.PRINT;
+                break;
+            case "P":
+                kind = Kind.POP;
+                break;
+            case "d":
+                kind = Kind.DUPLICATE;
+                break;
+            case "r":
+                kind = Kind.SWAP;
+                break;
+            case "x":
+                kind = Kind.EXECUTE;
+                break;
+            default:
+                kind = Kind.OTHER;
+                break;
+        }
+
+        return new DcInstruction(kind, command, '\0');
+    }
+
+    /**
+     * Creates the push of a macro ({@code [...]}), the string of a sequence of
+     * instructions. The stack effect of executing it is not known.
+     *
+     * @param body the instructions of the macro
+     * @return the instruction
+     */
+    public static DcInstruction macro(List<DcInstruction> body) {
+        return new DcInstruction(Kind.MACRO, "[" + join(body, false) + "]", '\0', List.copyOf(body));
+    }
+
+    /**
+     * Creates the call of the macro stored in a register ({@code lX x}).
+     *
+     * @param register the register holding the macro
+     * @return the instruction
+     */
+    public static DcInstruction call(char register) {
+        return new DcInstruction(Kind.CALL, "l" + register + " x", register);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the register of a register or array command.
+     *
+     * @return the register, or {@code '\0'} for the other instructions
+     */
+    public char getRegister() {
+        return register;
+    }
+
+    /**
+     * Checks whether this is the same register or array access as another
+     * instruction, apart from the direction.
+     *
+     * @param other the other instruction
+     * @return true if both use the same register, as a register or as an array
+     */
+    public boolean sameLocation(DcInstruction other) {
+        boolean array = kind == Kind.LOAD_ARRAY || kind == Kind.STORE_ARRAY;
+        boolean otherArray = other.kind == Kind.LOAD_ARRAY || other.kind == Kind.STORE_ARRAY;
+        return register != '\0' && register == other.register && array == otherArray;
+    }
+
+    /**
+     * Returns the shortest text dc reads as this instruction: numbers lose
+     * their leading zeros ({@code 0.50} becomes {@code .50}; the fraction
+     * digits are kept, since they give the scale of the number), calls lose
+     * their space and macros are minified.
+     *
+     * @return the minified text
+     */
+    public String toMinifiedString() {
+        switch (kind) {
+            case NUMBER:
+                return canonical(text);
+            case CALL:
+                return "l" + register + "x";
+            case MACRO:
+                return "[" + join(body, true) + "]";
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * Checks whether dc needs a space between two consecutive instructions,
+     * that is whether a number is followed by another number or by a command
+     * the emitter does not know, which could continue it.
+     *
+     * @param previous the first instruction
+     * @param next     the instruction after it
+     * @return true if the minified texts must be separated
+     */
+    public static boolean separated(DcInstruction previous, DcInstruction next) {
+        return previous.kind == Kind.NUMBER && (next.kind == Kind.NUMBER || next.kind == Kind.OTHER);
+    }
+
+    /**
+     * Joins the text of a sequence of instructions, plain (separated by
+     * spaces) or minified.
+     *
+     * @param instructions the instructions
+     * @param minified     true to use the minified texts
+     * @return the text of the sequence
+     */
+    public static String join(List<DcInstruction> instructions, boolean minified) {
+        StringBuilder text = new StringBuilder();
+        DcInstruction previous = null;
+
+        for (DcInstruction instruction : instructions) {
+            if (previous != null && (!minified || separated(previous, instruction)))
+                text.append(' ');
+
+            text.append(minified ? instruction.toMinifiedString() : instruction.text);
+            previous = instruction;
+        }
+
+        return text.toString();
+    }
+
+    private static String canonical(String literal) {
+        boolean negative = literal.startsWith("_");
+        String digits = negative ? literal.substring(1) : literal;
+        int dot = digits.indexOf('.');
+        String integer = dot < 0 ? digits : digits.substring(0, dot);
+        String fraction = dot < 0 || dot == digits.length() - 1 ? "" : digits.substring(dot);
+        int zeros = 0;
+
+        while (zeros < integer.length() && integer.charAt(zeros) == '0')
+            zeros++;
+
+        integer = integer.substring(zeros);
+
+        if (integer.isEmpty() && fraction.isEmpty())
+            integer = "0";
+
+        if (integer.chars().allMatch(c -> c == '0') && fraction.chars().allMatch(c -> c == '0' || c == '.'))
+            negative = false;
+
+        return (negative ? "_" : "") + integer + fraction;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
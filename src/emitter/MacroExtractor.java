@@ -0,0 +1,262 @@
+package emitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Extraction of repeated instruction sequences into dc macros.<br>
+ *
+ * A sequence found at least twice is stored once as a macro at the start of
+ * the program ({@code [la 1 + sa]s!}) and every occurrence becomes a call
+ * ({@code l! x}). dc executes the string of a macro exactly as if it were
+ * written in place, so the output of the program does not change.<br>
+ *
+ * Each round looks for the sequence saving the most characters: the
+ * occurrences of all the sequences of a few lengths are counted with a
+ * rolling hash, and the best one is extended left and right as long as all
+ * its occurrences still agree. Calls are symbols like any instruction, so a
+ * later round may find a repeated run of calls. The rounds stop when nothing
+ * is saved or the registers for macros run out: they are punctuation
+ * characters, which the register allocator never uses.
+ */
+final class MacroExtractor {
+    /**
+     * Registers holding the macros.
+     */
+    static final String REGISTERS = "!\"$%&'()*+,-./<=>?^_`{|}~";
+
+    private static final int[] LENGTHS = { 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256 };
+    private static final long BASE = 0x9E3779B97F4A7C15L;
+
+    private final List<DcInstruction> symbols = new ArrayList<>();
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final List<DcInstruction> definitions = new ArrayList<>();
+    private final boolean minified;
+    private int[] code;
+    private int size;
+
+    private MacroExtractor(List<DcInstruction> program, boolean minified) {
+        this.minified = minified;
+        code = new int[program.size()];
+
+        for (DcInstruction instruction : program)
+            code[size++] = intern(instruction);
+    }
+
+    /**
+     * Replaces the repeated sequences of a program with macro calls.
+     *
+     * @param program  the instructions of the program
+     * @param minified true if the code is written minified, which changes
+     *                 the length of the sequences
+     * @return the definitions of the macros followed by the rewritten program
+     */
+    static List<DcInstruction> extract(List<DcInstruction> program, boolean minified) {
+        MacroExtractor extractor = new MacroExtractor(program, minified);
+
+        while (extractor.definitions.size() / 2 < REGISTERS.length() && extractor.round())
+            ;
+
+        List<DcInstruction> result = new ArrayList<>(extractor.definitions);
+
+        for (int i = 0; i < extractor.size; i++)
+            result.add(extractor.symbols.get(extractor.code[i]));
+
+        return result;
+    }
+
+    /**
+     * Turns the most profitable repeated sequence into a macro.
+     *
+     * @return false if no sequence is worth a macro
+     */
+    private boolean round() {
+        int[] offsets = new int[size + 1];
+        long[] prefix = new long[size + 1];
+
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] = offsets[i] + length(symbols.get(code[i]));
+            prefix[i + 1] = prefix[i] * BASE + code[i] + 1;
+        }
+
+        long bestGain = 0;
+        int bestStart = -1;
+        int bestLength = 0;
+        long power = 1;
+        int previous = 0;
+
+        for (int length : LENGTHS) {
+            if (2 * length > size)
+                break;
+
+            for (int i = previous; i < length; i++)
+                power *= BASE;
+            previous = length;
+
+            HashMap<Long, int[]> seen = new HashMap<>();
+
+            for (int i = 0; i + length <= size; i++) {
+                long hash = prefix[i + length] - prefix[i] * power;
+                int[] occurrences = seen.get(hash);
+
+                if (occurrences == null) {
+                    seen.put(hash, new int[] { i, i, 1 });
+                } else if (i >= occurrences[1] + length) {
+                    occurrences[1] = i;
+                    occurrences[2]++;
+                }
+            }
+
+            for (int[] occurrences : seen.values()) {
+                if (occurrences[2] < 2)
+                    continue;
+
+                int start = occurrences[0];
+                long gain = gain(occurrences[2], offsets[start + length] - offsets[start]);
+
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestStart = start;
+                    bestLength = length;
+                }
+            }
+        }
+
+        if (bestStart < 0)
+            return false;
+
+        List<Integer> positions = occurrences(bestStart, bestLength);
+
+        if (positions.size() < 2)
+            return false;
+
+        int length = bestLength;
+
+        while (canGrow(positions, length, 0))
+            length++;
+
+        while (canGrow(positions, length, -1)) {
+            for (int i = 0; i < positions.size(); i++)
+                positions.set(i, positions.get(i) - 1);
+            length++;
+        }
+
+        int start = positions.get(0);
+
+        if (gain(positions.size(), offsets[start + length] - offsets[start]) <= 0)
+            return false;
+
+        replace(positions, length);
+        return true;
+    }
+
+    /**
+     * Characters saved by a macro whose instructions take the given length,
+     * separators included, used the given number of times: each occurrence
+     * becomes a call, and the definition {@code [...] sX} is added once.
+     */
+    private long gain(int count, int textLength) {
+        int call = length(DcInstruction.call('!'));
+        return (long) count * (textLength - call) - (textLength + (minified ? 4 : 5));
+    }
+
+    /**
+     * Length of an instruction in the output, with the space after it when
+     * the code is not minified.
+     */
+    private int length(DcInstruction instruction) {
+        return minified ? instruction.toMinifiedString().length() : instruction.toString().length() + 1;
+    }
+
+    /**
+     * Finds the non-overlapping occurrences of a sequence, left to right.
+     */
+    private List<Integer> occurrences(int start, int length) {
+        List<Integer> positions = new ArrayList<>();
+        int i = 0;
+
+        while (i + length <= size) {
+            int j = 0;
+
+            while (j < length && code[i + j] == code[start + j])
+                j++;
+
+            if (j == length) {
+                positions.add(i);
+                i += length;
+            } else {
+                i++;
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Checks whether all the occurrences can grow by one symbol, on the right
+     * (side 0) or on the left (side -1), without overlapping.
+     */
+    private boolean canGrow(List<Integer> positions, int length, int side) {
+        int first = positions.get(0);
+        int index = side == 0 ? first + length : first - 1;
+
+        if (index < 0 || index >= size)
+            return false;
+
+        for (int k = 0; k < positions.size(); k++) {
+            int p = positions.get(k);
+            int at = side == 0 ? p + length : p - 1;
+
+            if (at < 0 || at >= size || code[at] != code[index])
+                return false;
+            if (side == 0 && k + 1 < positions.size() && at >= positions.get(k + 1))
+                return false;
+            if (side == -1 && k > 0 && at < positions.get(k - 1) + length)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Defines a macro for the sequence at the given positions and replaces
+     * every occurrence with a call.
+     */
+    private void replace(List<Integer> positions, int length) {
+        char register = REGISTERS.charAt(definitions.size() / 2);
+        int start = positions.get(0);
+        List<DcInstruction> body = new ArrayList<>(length);
+
+        for (int i = start; i < start + length; i++)
+            body.add(symbols.get(code[i]));
+
+        definitions.add(DcInstruction.macro(body));
+        definitions.add(DcInstruction.store(register));
+
+        int call = intern(DcInstruction.call(register));
+        int[] rewritten = new int[size];
+        int count = 0;
+        int next = 0;
+
+        for (int i = 0; i < size;) {
+            if (next < positions.size() && i == positions.get(next)) {
+                rewritten[count++] = call;
+                i += length;
+                next++;
+            } else {
+                rewritten[count++] = code[i++];
+            }
+        }
+
+        code = rewritten;
+        size = count;
+    }
+
+    private int intern(DcInstruction instruction) {
+        return ids.computeIfAbsent(instruction.toString(), text -> {
+            symbols.add(instruction);
+            return symbols.size() - 1;
+        });
+    }
+}
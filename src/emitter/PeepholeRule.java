@@ -0,0 +1,24 @@
+package emitter;
+
+import java.util.List;
+
+/**
+ * A rewriting rule of the peephole optimizer of the {@link DcEmitter}.<br>
+ *
+ * The emitter keeps the last instructions in a window and, every time an
+ * instruction is added, applies its rules until none changes the window.
+ * A rule looks at the end of the window, where the new instruction is, and
+ * replaces a sequence with a shorter or cheaper one computing the same
+ * output and leaving the stack as deep; it must never undo the rewriting of
+ * another rule.
+ */
+@FunctionalInterface
+public interface PeepholeRule {
+    /**
+     * Rewrites the end of the window.
+     *
+     * @param window the instructions not yet written, the newest last
+     * @return true if the window was changed
+     */
+    boolean rewrite(List<DcInstruction> window);
+}
@@ -0,0 +1,93 @@
+package emitter;
+
+import java.util.List;
+
+import emitter.DcInstruction.Kind;
+
+/**
+ * The peephole rules available to the {@link DcEmitter}.
+ */
+public final class PeepholeRules {
+    /**
+     * A store immediately followed by a load of the same location keeps a
+     * copy of the value instead: {@code sX lX} becomes {@code d sX}, and
+     * {@code n :X n ;X} becomes {@code d n :X}.
+     */
+    public static final PeepholeRule STORE_LOAD = PeepholeRules::storeLoad;
+
+    /**
+     * A register store overwritten before any read is removed with the push
+     * of its value: {@code 5 sX ... sX} and {@code d sX ... sX} lose the first
+     * two instructions when nothing in between reads {@code X}.
+     */
+    public static final PeepholeRule DEAD_STORE = PeepholeRules::deadStore;
+
+    private PeepholeRules() {
+    }
+
+    /**
+     * Returns all the rules, in the order they are tried.
+     *
+     * @return the default rule set
+     */
+    public static List<PeepholeRule> defaults() {
+        return List.of(STORE_LOAD, DEAD_STORE);
+    }
+
+    private static boolean storeLoad(List<DcInstruction> window) {
+        int n = window.size();
+
+        if (n >= 2 && window.get(n - 2).getKind() == Kind.STORE && window.get(n - 1).getKind() == Kind.LOAD
+                && window.get(n - 2).sameLocation(window.get(n - 1))) {
+            window.set(n - 2, DcInstruction.command("d"));
+            window.set(n - 1, DcInstruction.store(window.get(n - 1).getRegister()));
+            return true;
+        }
+
+        if (n >= 4 && window.get(n - 3).getKind() == Kind.STORE_ARRAY && window.get(n - 1).getKind() == Kind.LOAD_ARRAY
+                && window.get(n - 3).sameLocation(window.get(n - 1))
+                && window.get(n - 4).getKind() == Kind.NUMBER && window.get(n - 2).getKind() == Kind.NUMBER
+                && window.get(n - 4).toString().equals(window.get(n - 2).toString())) {
+            DcInstruction index = window.get(n - 4);
+            DcInstruction store = window.get(n - 3);
+
+            window.subList(n - 4, n).clear();
+            window.add(DcInstruction.command("d"));
+            window.add(index);
+            window.add(store);
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean deadStore(List<DcInstruction> window) {
+        int n = window.size();
+
+        if (n < 3 || window.get(n - 1).getKind() != Kind.STORE)
+            return false;
+
+        DcInstruction last = window.get(n - 1);
+
+        for (int i = n - 2; i >= 1; i--) {
+            DcInstruction instruction = window.get(i);
+
+            if (instruction.getKind() == Kind.OTHER || instruction.getKind() == Kind.EXECUTE
+                    || instruction.getKind() == Kind.CALL
+                    || instruction.getKind() == Kind.LOAD && instruction.sameLocation(last))
+                return false;
+
+            if (instruction.getKind() == Kind.STORE && instruction.sameLocation(last)) {
+                Kind value = window.get(i - 1).getKind();
+
+                if (value != Kind.NUMBER && value != Kind.LOAD && value != Kind.DUPLICATE)
+                    return false;
+
+                window.subList(i - 1, i + 1).clear();
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package exception;
+
+/**
+ * Exception class for errors encountered while running a program in the
+ * {@code interpreter} or {@code vm} package, such as a division by zero, which dc would
+ * report at run time.
+ */
+public class InterpreterException extends Exception {
+    /**
+     * Constructs a new InterpreterException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InterpreterException(String message) {
+        super(message);
+    }
+}
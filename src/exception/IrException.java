@@ -0,0 +1,18 @@
+package exception;
+
+/**
+ * Exception class for malformed intermediate representation programs.
+ * It is thrown by the verifier of the {@code ir} package when a program
+ * built or rewritten by the compiler breaks an invariant of the
+ * representation.
+ */
+public class IrException extends Exception {
+    /**
+     * Constructs a new IrException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public IrException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package interpreter;
+
+import exception.InterpreterException;
+
+/**
+ * The assignment of an expression to a slot: a declaration with a value, an
+ * assignment, or a temporary holding part of an expression.
+ */
+final class AssignNode extends StatementNode implements NodeParent {
+    private final int slot;
+    private ExprNode expr;
+
+    AssignNode(int slot, ExprNode expr) {
+        this.slot = slot;
+        this.expr = expr;
+        expr.parent = this;
+    }
+
+    @Override
+    public void replaceChild(ExprNode child, ExprNode replacement) {
+        if (expr == child)
+            expr = replacement;
+    }
+
+    @Override
+    void execute(Frame frame, Appendable out) throws InterpreterException {
+        try {
+            frame.setLong(slot, expr.executeLong(frame));
+        } catch (Overflow e) {
+            frame.setDecimal(slot, expr.executeDecimal(frame));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package interpreter;
+
+import java.math.BigDecimal;
+
+import ast.LangOper;
+import exception.InterpreterException;
+import optimizer.DcArithmetic;
+
+/**
+ * An operation. The subclasses compute it on a fast path; on overflow a node
+ * replaces itself with a {@link DecimalNode}, so later runs of the program go
+ * straight to {@code BigDecimal} for it.
+ */
+abstract class BinaryNode extends ExprNode implements NodeParent {
+    final LangOper op;
+    ExprNode left;
+    ExprNode right;
+
+    BinaryNode(LangOper op, ExprNode left, ExprNode right, int scale) {
+        super(scale);
+        this.op = op;
+        this.left = left;
+        this.right = right;
+        left.parent = this;
+        right.parent = this;
+    }
+
+    /**
+     * Returns the scale dc gives the result of an operator, with the
+     * precision at 0 except for the float division.
+     */
+    static int scale(LangOper op, int left, int right) {
+        switch (op) {
+            case DIV:
+                return 0;
+            case DIV_FLOAT:
+                return DcArithmetic.FLOAT_SCALE;
+            default:
+                return Math.max(left, right);
+        }
+    }
+
+    @Override
+    public void replaceChild(ExprNode child, ExprNode replacement) {
+        if (left == child)
+            left = replacement;
+        if (right == child)
+            right = replacement;
+    }
+
+    @Override
+    BigDecimal executeDecimal(Frame frame) throws InterpreterException {
+        BigDecimal value = DcArithmetic.apply(op, left.executeDecimal(frame), right.executeDecimal(frame));
+
+        if (value == null)
+            throw frame.divisionByZero();
+
+        return value;
+    }
+
+    /**
+     * Replaces this node with a {@link DecimalNode} and computes the value
+     * with it.
+     *
+     * @throws Overflow if the value does not fit in a long
+     */
+    final long generalize(Frame frame) throws InterpreterException {
+        DecimalNode decimal = new DecimalNode(op, left, right, scale);
+        replace(decimal);
+        frame.rewrites++;
+        return decimal.executeLong(frame);
+    }
+}
@@ -0,0 +1,32 @@
+package interpreter;
+
+import java.math.BigDecimal;
+
+/**
+ * A literal, with the scale written in it.
+ */
+final class ConstantNode extends ExprNode {
+    private final BigDecimal value;
+    private final boolean fits;
+    private final long unscaled;
+
+    ConstantNode(BigDecimal value) {
+        super(value.scale());
+        this.value = value;
+        this.fits = value.unscaledValue().bitLength() <= 63;
+        this.unscaled = fits ? value.unscaledValue().longValue() : 0;
+    }
+
+    @Override
+    long executeLong(Frame frame) {
+        if (!fits)
+            throw Overflow.INSTANCE;
+
+        return unscaled;
+    }
+
+    @Override
+    BigDecimal executeDecimal(Frame frame) {
+        return value;
+    }
+}
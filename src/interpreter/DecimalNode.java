@@ -0,0 +1,21 @@
+package interpreter;
+
+import ast.LangOper;
+import exception.InterpreterException;
+
+/**
+ * An operation computed with {@code BigDecimal}, by {@code DcArithmetic}.
+ * Its result still goes back to the fast path of the parent when it fits in
+ * a long.
+ */
+final class DecimalNode extends BinaryNode {
+
+    DecimalNode(LangOper op, ExprNode left, ExprNode right, int scale) {
+        super(op, left, right, scale);
+    }
+
+    @Override
+    long executeLong(Frame frame) throws InterpreterException {
+        return toLong(executeDecimal(frame));
+    }
+}
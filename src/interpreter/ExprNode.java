@@ -0,0 +1,57 @@
+package interpreter;
+
+import java.math.BigDecimal;
+
+import exception.InterpreterException;
+
+/**
+ * An executable expression. Its value has a scale (number of fraction digits)
+ * fixed when the program is compiled, as dc computes it: so a value is
+ * handled as a {@code long}, the value times ten to the scale, and only when
+ * it does not fit as a {@code BigDecimal}.
+ */
+abstract class ExprNode {
+    final int scale;
+    NodeParent parent;
+
+    ExprNode(int scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * Computes the value on the fast path.
+     *
+     * @return the value times ten to the scale
+     * @throws Overflow             if the value does not fit in a long
+     * @throws InterpreterException at a division by zero
+     */
+    abstract long executeLong(Frame frame) throws InterpreterException;
+
+    /**
+     * Computes the value with {@code BigDecimal}, at any size.
+     *
+     * @return the value, with the scale of the node
+     * @throws InterpreterException at a division by zero
+     */
+    abstract BigDecimal executeDecimal(Frame frame) throws InterpreterException;
+
+    /**
+     * Puts another node in the place of this one in the tree.
+     */
+    final void replace(ExprNode replacement) {
+        replacement.parent = parent;
+        parent.replaceChild(this, replacement);
+    }
+
+    /**
+     * Converts a value to the fast path representation.
+     *
+     * @throws Overflow if it does not fit in a long
+     */
+    static long toLong(BigDecimal value) {
+        if (value.unscaledValue().bitLength() > 63)
+            throw Overflow.INSTANCE;
+
+        return value.unscaledValue().longValue();
+    }
+}
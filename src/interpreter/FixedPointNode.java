@@ -0,0 +1,107 @@
+package interpreter;
+
+import ast.LangOper;
+import exception.InterpreterException;
+
+/**
+ * An operation on operands with fraction digits, computed on fixed-point
+ * {@code long}s. With {@code sa} and {@code sb} the scales of the operands
+ * and {@code s} the one of the result:
+ *
+ * <pre>
+ * +, -   both operands aligned to s = max(sa, sb)
+ * *      a * b has scale sa + sb, truncated to s = max(sa, sb)
+ * /      a * 10^(s + sb - sa) / b, truncated, s = 5 (0 for int /)
+ * </pre>
+ *
+ * Java integer division truncates toward zero, as dc does.
+ */
+final class FixedPointNode extends BinaryNode {
+    private static final long[] POWERS = new long[19];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++)
+            POWERS[i] = POWERS[i - 1] * 10;
+    }
+
+    private final long leftFactor;
+    private final long rightFactor;
+    private final long divisor;
+
+    private FixedPointNode(LangOper op, ExprNode left, ExprNode right, int scale) {
+        super(op, left, right, scale);
+
+        int exponent = scale + right.scale - left.scale;
+
+        switch (op) {
+            case PLUS:
+            case MINUS:
+                leftFactor = POWERS[scale - left.scale];
+                rightFactor = POWERS[scale - right.scale];
+                divisor = 1;
+                break;
+            case TIMES:
+                leftFactor = 1;
+                rightFactor = 1;
+                divisor = POWERS[left.scale + right.scale - scale];
+                break;
+            default:
+                leftFactor = exponent >= 0 ? POWERS[exponent] : 1;
+                rightFactor = exponent < 0 ? POWERS[-exponent] : 1;
+                divisor = 1;
+                break;
+        }
+    }
+
+    /**
+     * Creates the node of an operation, or a {@link DecimalNode} if the
+     * powers of ten it needs do not fit in a long.
+     */
+    static BinaryNode create(LangOper op, ExprNode left, ExprNode right) {
+        int scale = scale(op, left.scale, right.scale);
+        int span = Math.max(Math.abs(scale + right.scale - left.scale),
+                Math.max(left.scale + right.scale - scale, Math.max(scale - left.scale, scale - right.scale)));
+
+        if (span >= POWERS.length)
+            return new DecimalNode(op, left, right, scale);
+
+        return new FixedPointNode(op, left, right, scale);
+    }
+
+    @Override
+    long executeLong(Frame frame) throws InterpreterException {
+        long a;
+        long b;
+
+        try {
+            a = left.executeLong(frame);
+            b = right.executeLong(frame);
+        } catch (Overflow e) {
+            return generalize(frame);
+        }
+
+        try {
+            switch (op) {
+                case PLUS:
+                    return Math.addExact(Math.multiplyExact(a, leftFactor), Math.multiplyExact(b, rightFactor));
+                case MINUS:
+                    return Math.subtractExact(Math.multiplyExact(a, leftFactor), Math.multiplyExact(b, rightFactor));
+                case TIMES:
+                    return Math.multiplyExact(a, b) / divisor;
+                default:
+                    if (b == 0)
+                        throw frame.divisionByZero();
+
+                    long dividend = Math.multiplyExact(a, leftFactor);
+                    long scaledDivisor = Math.multiplyExact(b, rightFactor);
+
+                    if (dividend == Long.MIN_VALUE && scaledDivisor == -1)
+                        return generalize(frame);
+                    return dividend / scaledDivisor;
+            }
+        } catch (ArithmeticException e) {
+            return generalize(frame);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package interpreter;
+
+import java.math.BigDecimal;
+
+import exception.InterpreterException;
+
+/**
+ * The variables of a running program, one slot each. A slot holds a
+ * {@code long}, the value multiplied by ten to its scale, or a
+ * {@code BigDecimal} when the value does not fit. The scale of each read is
+ * known when the program is compiled, so the slot does not store it.
+ */
+final class Frame {
+    private final long[] longs;
+    private final BigDecimal[] decimals;
+    int statement;
+    int rewrites;
+
+    Frame(int slots) {
+        longs = new long[slots];
+        decimals = new BigDecimal[slots];
+    }
+
+    long getLong(int slot) {
+        if (decimals[slot] != null)
+            throw Overflow.INSTANCE;
+
+        return longs[slot];
+    }
+
+    BigDecimal getDecimal(int slot, int scale) {
+        return decimals[slot] != null ? decimals[slot] : BigDecimal.valueOf(longs[slot], scale);
+    }
+
+    void setLong(int slot, long value) {
+        longs[slot] = value;
+        decimals[slot] = null;
+    }
+
+    void setDecimal(int slot, BigDecimal value) {
+        decimals[slot] = value;
+    }
+
+    InterpreterException divisionByZero() {
+        return new InterpreterException("Division by zero in statement " + (statement + 1));
+    }
+}
@@ -0,0 +1,46 @@
+package interpreter;
+
+import ast.LangOper;
+import exception.InterpreterException;
+
+/**
+ * An operation on integers, computed on {@code long}s with overflow checks.
+ */
+final class IntBinaryNode extends BinaryNode {
+
+    IntBinaryNode(LangOper op, ExprNode left, ExprNode right) {
+        super(op, left, right, 0);
+    }
+
+    @Override
+    long executeLong(Frame frame) throws InterpreterException {
+        long a;
+        long b;
+
+        try {
+            a = left.executeLong(frame);
+            b = right.executeLong(frame);
+        } catch (Overflow e) {
+            return generalize(frame);
+        }
+
+        try {
+            switch (op) {
+                case PLUS:
+                    return Math.addExact(a, b);
+                case MINUS:
+                    return Math.subtractExact(a, b);
+                case TIMES:
+                    return Math.multiplyExact(a, b);
+                default:
+                    if (b == 0)
+                        throw frame.divisionByZero();
+                    if (a == Long.MIN_VALUE && b == -1)
+                        return generalize(frame);
+                    return a / b;
+            }
+        } catch (ArithmeticException e) {
+            return generalize(frame);
+        }
+    }
+}
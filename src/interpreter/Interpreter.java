@@ -0,0 +1,116 @@
+package interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import ast.NodeProgram;
+import exception.InterpreterException;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+
+/**
+ * Runs programs in the JVM, without dc.<br>
+ *
+ * {@link #compile(NodeProgram)} turns a type-checked program into a tree of
+ * executable nodes specialized on the types: int operations run on
+ * {@code long}s, float operations on fixed-point {@code long}s carrying the
+ * scale dc would give each value (5 decimals, truncated, for a float
+ * division). A node whose result overflows a {@code long} rewrites itself
+ * into a node computing with {@code BigDecimal}, so the following runs pay
+ * for the big numbers only where they occur. Variables live in an array of
+ * slots.<br>
+ *
+ * The output is what the {@code p} commands of the generated code print, one
+ * line per value, with dc's number format ({@code .5}, {@code -3},
+ * backslashes after 69 characters). A division by zero, which dc reports
+ * before going on, stops the program with an {@link InterpreterException}.
+ */
+public final class Interpreter {
+    private static final Tracer tracer = Trace.tracer(Phase.INTERPRETER);
+    private final List<StatementNode> statements;
+    private final int slots;
+    private int rewrites;
+
+    private Interpreter(List<StatementNode> statements, int slots) {
+        this.statements = statements;
+        this.slots = slots;
+    }
+
+    /**
+     * Translates a program into executable nodes.
+     *
+     * @param program the program, checked by the {@code TypeCheckingVisitor}
+     * @return the interpreter of the program
+     */
+    public static Interpreter compile(NodeProgram program) {
+        TreeBuilder builder = new TreeBuilder();
+        program.accept(builder);
+
+        if (tracer.isInfo())
+            tracer.info("Compiled " + builder.getStatements().size() + " statements over "
+                    + builder.getSlotCount() + " slots");
+
+        return new Interpreter(builder.getStatements(), builder.getSlotCount());
+    }
+
+    /**
+     * Runs the program.
+     *
+     * @param out the destination of the printed values
+     * @throws InterpreterException at a division by zero
+     * @throws IOException          if the output cannot be written
+     */
+    public void run(Appendable out) throws InterpreterException, IOException {
+        Frame frame = new Frame(slots);
+
+        try {
+            for (StatementNode statement : statements) {
+                statement.execute(frame, out);
+                frame.statement++;
+            }
+        } finally {
+            rewrites += frame.rewrites;
+
+            if (frame.rewrites > 0 && tracer.isDebug())
+                tracer.debug(frame.rewrites + " nodes rewritten to BigDecimal");
+        }
+    }
+
+    /**
+     * Runs the program and returns its output.
+     *
+     * @return the printed values, one per line
+     * @throws InterpreterException at a division by zero
+     */
+    public String run() throws InterpreterException {
+        StringBuilder out = new StringBuilder();
+
+        try {
+            run(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Returns the number of variable and temporary slots.
+     *
+     * @return the size of the frame
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Returns the number of nodes rewritten to {@code BigDecimal} so far.
+     *
+     * @return the number of rewritings
+     */
+    public int getRewriteCount() {
+        return rewrites;
+    }
+}
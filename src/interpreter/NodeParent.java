@@ -0,0 +1,14 @@
+package interpreter;
+
+/**
+ * A node holding expression nodes, which can replace themselves in it.
+ */
+interface NodeParent {
+    /**
+     * Replaces a child.
+     *
+     * @param child       the current child
+     * @param replacement the node taking its place
+     */
+    void replaceChild(ExprNode child, ExprNode replacement);
+}
@@ -0,0 +1,17 @@
+package interpreter;
+
+/**
+ * Thrown by the {@code long} paths of the nodes when a value does not fit in
+ * a {@code long} at its scale. It is never seen outside the interpreter: the
+ * statement catches it and computes its value again with {@code BigDecimal}.
+ * A single instance without stack trace is thrown.
+ */
+final class Overflow extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    static final Overflow INSTANCE = new Overflow();
+
+    private Overflow() {
+        super(null, null, false, false);
+    }
+}
@@ -0,0 +1,23 @@
+package interpreter;
+
+import java.io.IOException;
+
+import optimizer.DcArithmetic;
+
+/**
+ * The print of a variable, written as dc's {@code p} writes it.
+ */
+final class PrintNode extends StatementNode {
+    private final int slot;
+    private final int scale;
+
+    PrintNode(int slot, int scale) {
+        this.slot = slot;
+        this.scale = scale;
+    }
+
+    @Override
+    void execute(Frame frame, Appendable out) throws IOException {
+        out.append(DcArithmetic.display(frame.getDecimal(slot, scale))).append('\n');
+    }
+}
@@ -0,0 +1,30 @@
+package interpreter;
+
+import java.math.BigDecimal;
+
+/**
+ * A read of a variable slot. The scale is the one of the value assigned last
+ * to the variable before the read.
+ */
+final class ReadNode extends ExprNode {
+    private final int slot;
+
+    ReadNode(int slot, int scale) {
+        super(scale);
+        this.slot = slot;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    @Override
+    long executeLong(Frame frame) {
+        return frame.getLong(slot);
+    }
+
+    @Override
+    BigDecimal executeDecimal(Frame frame) {
+        return frame.getDecimal(slot, scale);
+    }
+}
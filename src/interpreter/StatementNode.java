@@ -0,0 +1,21 @@
+package interpreter;
+
+import java.io.IOException;
+
+import exception.InterpreterException;
+
+/**
+ * An executable statement.
+ */
+abstract class StatementNode {
+
+    /**
+     * Runs the statement.
+     *
+     * @param frame the variables
+     * @param out   the destination of the printed values
+     * @throws InterpreterException at a division by zero
+     * @throws IOException          if the output cannot be written
+     */
+    abstract void execute(Frame frame, Appendable out) throws InterpreterException, IOException;
+}
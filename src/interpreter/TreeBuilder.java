@@ -0,0 +1,185 @@
+package interpreter;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.TypeTd;
+import optimizer.DcArithmetic;
+import visitor.IVisitor;
+
+/**
+ * Translation of a type-checked program into executable nodes.<br>
+ *
+ * Each variable gets a slot, and the scale of its value is followed
+ * statement by statement, so every read knows the scale of what it reads.
+ * Operations typed int become {@link IntBinaryNode}s, the others
+ * {@link FixedPointNode}s.<br>
+ *
+ * Expressions are translated in post-order with an explicit stack. A subtree
+ * deeper than {@value #MAX_HEIGHT} nodes, and an operand shared by both sides
+ * of an operation, are computed first into a temporary slot, so running a
+ * tree never recurses deeper than that and shares no node.
+ */
+final class TreeBuilder implements IVisitor {
+    static final int MAX_HEIGHT = 256;
+
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private final HashMap<String, Integer> scales = new HashMap<>();
+    private final List<StatementNode> statements = new ArrayList<>();
+    private int slotCount;
+
+    List<StatementNode> getStatements() {
+        return statements;
+    }
+
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        String name = node.getId().getName();
+        slots.put(name, slotCount++);
+
+        if (node.getInit() != null)
+            assign(name, node.getInit());
+        else
+            scales.put(name, 0);
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        assign(node.getId().getName(), node.getExpr());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        String name = node.getId().getName();
+        statements.add(new PrintNode(slot(name), scales.getOrDefault(name, 0)));
+    }
+
+    private void assign(String name, NodeExpr expr) {
+        ExprNode value = build(expr);
+        statements.add(new AssignNode(slot(name), value));
+        scales.put(name, value.scale);
+    }
+
+    private int slot(String name) {
+        return slots.computeIfAbsent(name, k -> slotCount++);
+    }
+
+    private ExprNode build(NodeExpr root) {
+        IdentityHashMap<NodeExpr, ExprNode> built = new IdentityHashMap<>();
+        IdentityHashMap<ExprNode, Integer> heights = new IdentityHashMap<>();
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.peek();
+
+            if (built.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+
+            if (node instanceof NodeCost) {
+                pending.pop();
+                built.put(node, leaf(new ConstantNode(DcArithmetic.parse(((NodeCost) node).getValue())), heights));
+                continue;
+            }
+
+            if (node instanceof NodeDeref) {
+                pending.pop();
+                String name = ((NodeDeref) node).getId().getName();
+                built.put(node, leaf(new ReadNode(slot(name), scales.getOrDefault(name, 0)), heights));
+                continue;
+            }
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!built.containsKey(binOp.getLeft()) || !built.containsKey(binOp.getRight())) {
+                if (!built.containsKey(binOp.getRight()))
+                    pending.push(binOp.getRight());
+                if (!built.containsKey(binOp.getLeft()))
+                    pending.push(binOp.getLeft());
+                continue;
+            }
+
+            pending.pop();
+            ExprNode left = built.get(binOp.getLeft());
+            ExprNode right = built.get(binOp.getRight());
+
+            if (left == right) {
+                left = temporary(left, heights);
+                right = new ReadNode(((ReadNode) left).slot(), left.scale);
+            } else {
+                if (heights.getOrDefault(left, 1) >= MAX_HEIGHT)
+                    left = temporary(left, heights);
+                if (heights.getOrDefault(right, 1) >= MAX_HEIGHT)
+                    right = temporary(right, heights);
+            }
+
+            ExprNode operation = binOp.getResType() != null && binOp.getResType().getType() == TypeTd.INT
+                    ? new IntBinaryNode(binOp.getOp(), left, right)
+                    : FixedPointNode.create(binOp.getOp(), left, right);
+            heights.put(operation, 1 + Math.max(heights.getOrDefault(left, 1), heights.getOrDefault(right, 1)));
+            built.put(node, operation);
+        }
+
+        return built.get(root);
+    }
+
+    private static ExprNode leaf(ExprNode node, IdentityHashMap<ExprNode, Integer> heights) {
+        heights.put(node, 1);
+        return node;
+    }
+
+    /**
+     * Computes an expression into a new slot before the statement being
+     * translated, and returns a read of the slot.
+     */
+    private ExprNode temporary(ExprNode value, IdentityHashMap<ExprNode, Integer> heights) {
+        if (value instanceof ReadNode)
+            return value;
+
+        int slot = slotCount++;
+        statements.add(new AssignNode(slot, value));
+        return leaf(new ReadNode(slot, value.scale), heights);
+    }
+}
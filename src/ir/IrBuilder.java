@@ -0,0 +1,172 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import ast.LangType;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.TypeTd;
+import symbolTable.SymbolTable;
+import visitor.IVisitor;
+
+/**
+ * Translation of a type checked program into an {@link IrProgram}.<br>
+ *
+ * Every statement appends the instructions of its expression, in post-order,
+ * and the assignment of a variable defines a new version of it: the operation
+ * or literal computing the value if there is one, a copy otherwise. A read of
+ * a variable uses its current version; a variable read before any assignment
+ * has the value of an empty dc register, a literal 0. The types are the ones
+ * stored in the nodes by the {@code TypeCheckingVisitor}, so it must run
+ * before.
+ */
+public class IrBuilder implements IVisitor {
+    private final IrProgram program = new IrProgram();
+    private final HashMap<String, Integer> current = new HashMap<>();
+    private final HashMap<String, Integer> versions = new HashMap<>();
+
+    /**
+     * Returns the program built by the last visit.
+     *
+     * @return the intermediate representation
+     */
+    public IrProgram getProgram() {
+        return program;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null)
+            assign(node.getId().getName(), node.getInit());
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        assign(node.getId().getName(), node.getExpr());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        String name = node.getId().getName();
+        int print = program.add(IrInstruction.print(read(name)));
+        program.get(print).setVariable(name, -1);
+    }
+
+    /**
+     * Defines a new version of a variable. An operation or a literal becomes
+     * the definition itself; a variable read is copied.
+     */
+    private void assign(String name, NodeExpr expr) {
+        int value = expression(expr);
+
+        if (expr instanceof NodeDeref)
+            value = program.add(IrInstruction.copy(SymbolTable.lookup(name).getType(), value));
+
+        int version = versions.merge(name, 1, Integer::sum) - 1;
+        program.get(value).setVariable(name, version);
+        current.put(name, value);
+    }
+
+    /**
+     * Returns the current version of a variable, defining it as 0 if it was
+     * never assigned.
+     */
+    private int read(String name) {
+        Integer value = current.get(name);
+
+        if (value != null)
+            return value;
+
+        LangType type = SymbolTable.lookup(name) != null ? SymbolTable.lookup(name).getType() : LangType.INT;
+        int zero = program.add(IrInstruction.constant(type, "0"));
+        program.get(zero).setVariable(name, versions.merge(name, 1, Integer::sum) - 1);
+        current.put(name, zero);
+        return zero;
+    }
+
+    /**
+     * Appends the instructions of an expression in post-order with an
+     * explicit stack. An operand shared by both sides of an operation is
+     * translated once.
+     *
+     * @return the value of the expression
+     */
+    private int expression(NodeExpr root) {
+        IdentityHashMap<NodeExpr, Integer> values = new IdentityHashMap<>();
+        ArrayDeque<NodeExpr> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            NodeExpr node = stack.peek();
+
+            if (values.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+
+            if (node instanceof NodeDeref) {
+                stack.pop();
+                values.put(node, read(((NodeDeref) node).getId().getName()));
+                continue;
+            }
+
+            if (node instanceof NodeCost) {
+                stack.pop();
+                values.put(node, program.add(IrInstruction.constant(((NodeCost) node).getType(),
+                        ((NodeCost) node).getValue())));
+                continue;
+            }
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!values.containsKey(binOp.getLeft()) || !values.containsKey(binOp.getRight())) {
+                if (!values.containsKey(binOp.getRight()))
+                    stack.push(binOp.getRight());
+                if (!values.containsKey(binOp.getLeft()))
+                    stack.push(binOp.getLeft());
+                continue;
+            }
+
+            stack.pop();
+            LangType type = binOp.getResType() != null && binOp.getResType().getType() == TypeTd.INT
+                    ? LangType.INT
+                    : LangType.FLOAT;
+            values.put(node, program.add(IrInstruction.binary(binOp.getOp(), type, values.get(binOp.getLeft()),
+                    values.get(binOp.getRight()))));
+        }
+
+        return values.get(root);
+    }
+}
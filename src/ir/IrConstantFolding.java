@@ -0,0 +1,53 @@
+package ir;
+
+import java.math.BigDecimal;
+
+import optimizer.DcArithmetic;
+
+/**
+ * Constant folding on the intermediate representation.<br>
+ *
+ * One pass in program order: operands are defined before their uses, so an
+ * operation whose operands, through copies, are literals becomes the literal
+ * dc would compute (see {@link DcArithmetic}), and the operations using it
+ * are folded in turn. The literal keeps the type of the operation, which is
+ * float for a float division even when copy propagation gave it int
+ * operands. Divisions by zero are left to dc.
+ */
+public class IrConstantFolding implements IrPass {
+    private int folded;
+
+    /**
+     * Returns the number of operations replaced by a literal.
+     *
+     * @return the number of folded operations
+     */
+    public int getFoldCount() {
+        return folded;
+    }
+
+    @Override
+    public void run(IrProgram program) {
+        for (int i = 0; i < program.size(); i++) {
+            IrInstruction instruction = program.get(i);
+
+            if (instruction.getOpcode() != Opcode.BINARY)
+                continue;
+
+            IrInstruction left = program.get(program.resolve(instruction.getLeft()));
+            IrInstruction right = program.get(program.resolve(instruction.getRight()));
+
+            if (left.getOpcode() != Opcode.CONST || right.getOpcode() != Opcode.CONST)
+                continue;
+
+            BigDecimal value = DcArithmetic.apply(instruction.getOperator(), DcArithmetic.parse(left.getLiteral()),
+                    DcArithmetic.parse(right.getLiteral()));
+
+            if (value == null)
+                continue;
+
+            instruction.toConstant(instruction.getType(), DcArithmetic.format(value));
+            folded++;
+        }
+    }
+}
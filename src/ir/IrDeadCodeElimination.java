@@ -0,0 +1,56 @@
+package ir;
+
+import ast.LangOper;
+import optimizer.DcArithmetic;
+
+/**
+ * Dead code elimination on the intermediate representation.<br>
+ *
+ * One backward pass marks the prints, the divisions that may fail, and the
+ * operands of every marked instruction; the rest is removed.
+ */
+public class IrDeadCodeElimination implements IrPass {
+    private int removed;
+
+    /**
+     * Returns the number of instructions removed.
+     *
+     * @return the number of dead instructions
+     */
+    public int getRemovedCount() {
+        return removed;
+    }
+
+    @Override
+    public void run(IrProgram program) {
+        boolean[] live = new boolean[program.size()];
+
+        for (int i = program.size() - 1; i >= 0; i--) {
+            IrInstruction instruction = program.get(i);
+
+            if (instruction.getOpcode() == Opcode.PRINT || failing(program, instruction))
+                live[i] = true;
+
+            if (!live[i]) {
+                removed++;
+                continue;
+            }
+
+            if (instruction.getLeft() >= 0)
+                live[instruction.getLeft()] = true;
+            if (instruction.getRight() >= 0)
+                live[instruction.getRight()] = true;
+        }
+
+        program.retain(live);
+    }
+
+    private static boolean failing(IrProgram program, IrInstruction instruction) {
+        if (instruction.getOpcode() != Opcode.BINARY
+                || instruction.getOperator() != LangOper.DIV && instruction.getOperator() != LangOper.DIV_FLOAT)
+            return false;
+
+        IrInstruction divisor = program.get(program.resolve(instruction.getRight()));
+        return divisor.getOpcode() != Opcode.CONST || DcArithmetic.parse(divisor.getLiteral()).signum() == 0;
+    }
+}
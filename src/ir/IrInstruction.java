@@ -0,0 +1,193 @@
+package ir;
+
+import ast.LangOper;
+import ast.LangType;
+
+/**
+ * An instruction of the intermediate representation.<br>
+ *
+ * An instruction defines at most one value, identified by the index of the
+ * instruction in its {@link IrProgram}, and names its operands by their
+ * index. An instruction assigning a variable carries the name and the version
+ * of the variable it defines; a print carries the variable it prints.
+ */
+public final class IrInstruction {
+    private Opcode opcode;
+    private LangType type;
+    private String literal;
+    private final LangOper operator;
+    private int left;
+    private int right;
+    private String variable;
+    private int version = -1;
+
+    private IrInstruction(Opcode opcode, LangType type, String literal, LangOper operator, int left, int right) {
+        this.opcode = opcode;
+        this.type = type;
+        this.literal = literal;
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Creates a literal.
+     *
+     * @param type    the type of the literal
+     * @param literal the text of the literal
+     * @return the instruction
+     */
+    public static IrInstruction constant(LangType type, String literal) {
+        return new IrInstruction(Opcode.CONST, type, literal, null, -1, -1);
+    }
+
+    /**
+     * Creates a copy of a value, possibly widening an int to a float.
+     *
+     * @param type    the type of the copy
+     * @param operand the value copied
+     * @return the instruction
+     */
+    public static IrInstruction copy(LangType type, int operand) {
+        return new IrInstruction(Opcode.COPY, type, null, null, operand, -1);
+    }
+
+    /**
+     * Creates an arithmetic operation.
+     *
+     * @param operator the operator
+     * @param type     the type of the result
+     * @param left     the left operand
+     * @param right    the right operand
+     * @return the instruction
+     */
+    public static IrInstruction binary(LangOper operator, LangType type, int left, int right) {
+        return new IrInstruction(Opcode.BINARY, type, null, operator, left, right);
+    }
+
+    /**
+     * Creates the print of a value.
+     *
+     * @param operand the value printed
+     * @return the instruction
+     */
+    public static IrInstruction print(int operand) {
+        return new IrInstruction(Opcode.PRINT, null, null, null, operand, -1);
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    public LangType getType() {
+        return type;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public LangOper getOperator() {
+        return operator;
+    }
+
+    /**
+     * Returns the first operand: the left one of an operation, the value
+     * copied or printed.
+     *
+     * @return the index of the operand, or -1 for a literal
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * Returns the right operand of an operation.
+     *
+     * @return the index of the operand, or -1 for the other instructions
+     */
+    public int getRight() {
+        return right;
+    }
+
+    /**
+     * Returns the variable defined or printed.
+     *
+     * @return the name of the variable, or null for a temporary value
+     */
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * Returns the version of the variable defined: 0 for its first value,
+     * then one more at every assignment.
+     *
+     * @return the version, or -1 if the instruction defines no variable
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Records the variable version defined by the instruction, or for a print
+     * the variable printed (with version -1).
+     *
+     * @param variable the name of the variable
+     * @param version  the version
+     */
+    public void setVariable(String variable, int version) {
+        this.variable = variable;
+        this.version = version;
+    }
+
+    /**
+     * Replaces the operands.
+     *
+     * @param left  the new first operand
+     * @param right the new right operand
+     */
+    public void setOperands(int left, int right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Turns the instruction into a literal, keeping its variable.
+     *
+     * @param type    the type of the literal
+     * @param literal the text of the literal
+     */
+    public void toConstant(LangType type, String literal) {
+        this.opcode = Opcode.CONST;
+        this.type = type;
+        this.literal = literal;
+        this.left = -1;
+        this.right = -1;
+    }
+
+    @Override
+    public String toString() {
+        String text;
+
+        switch (opcode) {
+            case CONST:
+                text = "const " + type + " " + literal;
+                break;
+            case COPY:
+                text = "copy " + type + " %" + left;
+                break;
+            case BINARY:
+                text = operator + " " + type + " %" + left + ", %" + right;
+                break;
+            default:
+                text = "print %" + left;
+                break;
+        }
+
+        if (variable == null)
+            return text;
+
+        return text + "    ; " + variable + (version >= 0 ? "." + version : "");
+    }
+}
@@ -0,0 +1,285 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.LangOper;
+import ast.LangType;
+import emitter.DcEmitter;
+import exception.CodeGeneratorException;
+import optimizer.DcArithmetic;
+import symbolTable.Attributes;
+import symbolTable.LiveInterval;
+import symbolTable.RegisterAllocator;
+import symbolTable.Registers;
+import symbolTable.SymbolTable;
+
+/**
+ * Lowering of an {@link IrProgram} to dc code.<br>
+ *
+ * Copies are free: a use of a copy is a use of the value copied. A value used
+ * exactly once is computed on the dc stack where it is used, and a literal is
+ * pushed at each use; the other operations, those used several times and the
+ * divisions that may fail (so dc reports them in program order), are stored
+ * in a register, which they keep from their definition to their last use.
+ * Values never used and unable to fail produce no code. Registers come from
+ * the {@link RegisterAllocator}, under the names {@code %n} in the
+ * {@link SymbolTable}.<br>
+ *
+ * The operations computed on the stack are ordered by their Sethi–Ullman
+ * labels, as in the {@code CodeGeneratorVisitor}.
+ */
+public class IrLowering {
+    private final DcEmitter emitter;
+    private final RegisterAllocator allocator = new RegisterAllocator();
+    private IrProgram program;
+    private int[] uses;
+    private boolean[] stored;
+    private int[] labels;
+
+    /**
+     * Creates a lowering writing through an emitter.
+     *
+     * @param emitter the emitter receiving the code
+     */
+    public IrLowering(DcEmitter emitter) {
+        Registers.init();
+        this.emitter = emitter;
+    }
+
+    /**
+     * Writes the code of a program.
+     *
+     * @param program the program
+     * @throws CodeGeneratorException if a register cannot be handed out
+     */
+    public void lower(IrProgram program) throws CodeGeneratorException {
+        this.program = program;
+        int size = program.size();
+        int[] user = new int[size];
+        uses = new int[size];
+        stored = new boolean[size];
+        labels = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            IrInstruction instruction = program.get(i);
+
+            if (instruction.getOpcode() == Opcode.BINARY || instruction.getOpcode() == Opcode.PRINT) {
+                for (int operand : operands(instruction)) {
+                    uses[operand]++;
+                    user[operand] = i;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++)
+            stored[i] = program.get(i).getOpcode() == Opcode.BINARY && (uses[i] > 1 || !safe(i));
+
+        int[] anchor = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            IrInstruction instruction = program.get(i);
+
+            if (instruction.getOpcode() == Opcode.PRINT || stored[i])
+                anchor[i] = i;
+            else if (instruction.getOpcode() == Opcode.BINARY && uses[i] == 1)
+                anchor[i] = anchor[user[i]];
+            else
+                anchor[i] = -1;
+        }
+
+        allocate(anchor);
+
+        for (int i = 0; i < size; i++) {
+            IrInstruction instruction = program.get(i);
+
+            if (instruction.getOpcode() == Opcode.BINARY)
+                labels[i] = stored[i] ? 1 : label(instruction);
+            else
+                labels[i] = 1;
+
+            if (stored[i]) {
+                expression(i);
+                store(i);
+            } else if (instruction.getOpcode() == Opcode.PRINT) {
+                value(program.resolve(instruction.getLeft()));
+                emitter.print();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values the register allocator moved to the spill
+     * array.
+     *
+     * @return the number of spilled values
+     */
+    public int getSpillCount() {
+        return allocator.getSpillCount();
+    }
+
+    /**
+     * Gives a register to every stored value, live from its definition to
+     * the statement computing its last user.
+     */
+    private void allocate(int[] anchor) throws CodeGeneratorException {
+        List<LiveInterval> intervals = new ArrayList<>();
+        LiveInterval[] byValue = new LiveInterval[program.size()];
+
+        for (int i = 0; i < program.size(); i++) {
+            IrInstruction instruction = program.get(i);
+
+            if (anchor[i] >= 0 && instruction.getOpcode() != Opcode.COPY)
+                for (int operand : operands(instruction))
+                    if (byValue[operand] != null)
+                        byValue[operand].read(anchor[i]);
+
+            if (stored[i]) {
+                String name = "%" + i;
+                SymbolTable.enter(name, new Attributes(instruction.getType(), name));
+                byValue[i] = new LiveInterval(name, i);
+                byValue[i].write(i);
+                intervals.add(byValue[i]);
+            }
+        }
+
+        allocator.allocate(intervals);
+    }
+
+    /**
+     * Resolved operands of an operation or a print, the shared operand of an
+     * operation counted twice.
+     */
+    private int[] operands(IrInstruction instruction) {
+        if (instruction.getOpcode() == Opcode.PRINT)
+            return new int[] { program.resolve(instruction.getLeft()) };
+
+        return new int[] { program.resolve(instruction.getLeft()), program.resolve(instruction.getRight()) };
+    }
+
+    /**
+     * Checks that an operation cannot fail: it is not a division, or it
+     * divides by a nonzero literal.
+     */
+    private boolean safe(int index) {
+        IrInstruction instruction = program.get(index);
+
+        if (instruction.getOperator() != LangOper.DIV && instruction.getOperator() != LangOper.DIV_FLOAT)
+            return true;
+
+        IrInstruction divisor = program.get(program.resolve(instruction.getRight()));
+        return divisor.getOpcode() == Opcode.CONST && DcArithmetic.parse(divisor.getLiteral()).signum() != 0;
+    }
+
+    /**
+     * Stack slots needed to compute an operation, from the labels of its
+     * operands (see {@code visitor.StackLabeler}).
+     */
+    private int label(IrInstruction instruction) {
+        int left = program.resolve(instruction.getLeft());
+        int right = program.resolve(instruction.getRight());
+        int label;
+
+        if (left == right)
+            label = Math.max(labels[left], 2);
+        else if (labels[left] == labels[right])
+            label = labels[left] + 1;
+        else
+            label = Math.max(labels[left], labels[right]);
+
+        return instruction.getOperator() == LangOper.DIV_FLOAT ? Math.max(label, 3) : label;
+    }
+
+    /**
+     * Pushes a value: a literal, a stored value, or an operation computed on
+     * the stack.
+     */
+    private void value(int index) {
+        IrInstruction instruction = program.get(index);
+
+        if (instruction.getOpcode() == Opcode.CONST)
+            emitter.number(instruction.getLiteral());
+        else if (stored[index])
+            load(index);
+        else
+            expression(index);
+    }
+
+    /**
+     * Computes an operation on the stack, its operands first, with an
+     * explicit stack of frames: {@code {index, stage}}, where the stage counts
+     * the operands already pushed.
+     */
+    private void expression(int root) {
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { root, 0 });
+
+        while (!stack.isEmpty()) {
+            int[] frame = stack.peek();
+            IrInstruction instruction = program.get(frame[0]);
+            int left = program.resolve(instruction.getLeft());
+            int right = program.resolve(instruction.getRight());
+            boolean swapped = left != right && labels[right] > labels[left];
+            int first = swapped ? right : left;
+            int second = swapped ? left : right;
+
+            if (frame[1] == 0) {
+                frame[1] = 1;
+
+                if (operand(first, stack))
+                    continue;
+            }
+
+            if (frame[1] == 1) {
+                frame[1] = 2;
+
+                if (left == right)
+                    emitter.duplicate();
+                else if (operand(second, stack))
+                    continue;
+            }
+
+            stack.pop();
+
+            if (swapped && instruction.getOperator() != LangOper.PLUS && instruction.getOperator() != LangOper.TIMES)
+                emitter.swap();
+
+            emitter.operator(instruction.getOperator(), program.get(left).getType() == LangType.INT
+                    && program.get(right).getType() == LangType.INT);
+        }
+    }
+
+    /**
+     * Pushes an operand, or a frame to compute it if it is an operation
+     * computed on the stack.
+     *
+     * @return true if a frame was pushed
+     */
+    private boolean operand(int index, ArrayDeque<int[]> stack) {
+        if (program.get(index).getOpcode() == Opcode.BINARY && !stored[index]) {
+            stack.push(new int[] { index, 0 });
+            return true;
+        }
+
+        value(index);
+        return false;
+    }
+
+    private void load(int index) {
+        Attributes attributes = SymbolTable.lookup("%" + index);
+
+        if (attributes.isSpilled())
+            emitter.loadArray(Registers.SPILL_ARRAY, attributes.getSlot());
+        else
+            emitter.load(attributes.getRegister());
+    }
+
+    private void store(int index) {
+        Attributes attributes = SymbolTable.lookup("%" + index);
+
+        if (attributes.isSpilled())
+            emitter.storeArray(Registers.SPILL_ARRAY, attributes.getSlot());
+        else
+            emitter.store(attributes.getRegister());
+    }
+}
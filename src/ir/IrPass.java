@@ -0,0 +1,15 @@
+package ir;
+
+/**
+ * A transformation of an {@link IrProgram}. A pass must leave a program that
+ * passes the {@link IrVerifier}, and must not change what it prints.
+ */
+@FunctionalInterface
+public interface IrPass {
+    /**
+     * Transforms a program in place.
+     *
+     * @param program the program
+     */
+    void run(IrProgram program);
+}
@@ -0,0 +1,114 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A program in static single assignment form.<br>
+ *
+ * The language has no control flow, so a program is a flat list of
+ * instructions in execution order. Every value is defined once, by the
+ * instruction at its index, before all its uses; an assignment to a variable
+ * defines a new value, a new version of the variable.
+ */
+public class IrProgram {
+    private final List<IrInstruction> instructions = new ArrayList<>();
+
+    /**
+     * Appends an instruction.
+     *
+     * @param instruction the instruction
+     * @return the index of the instruction, which names its value
+     */
+    public int add(IrInstruction instruction) {
+        instructions.add(instruction);
+        return instructions.size() - 1;
+    }
+
+    /**
+     * Returns the instruction defining a value.
+     *
+     * @param index the index of the instruction
+     * @return the instruction
+     */
+    public IrInstruction get(int index) {
+        return instructions.get(index);
+    }
+
+    public int size() {
+        return instructions.size();
+    }
+
+    public List<IrInstruction> getInstructions() {
+        return Collections.unmodifiableList(instructions);
+    }
+
+    /**
+     * Follows the copies back to the instruction computing a value.
+     *
+     * @param index the index of a value
+     * @return the index of the first instruction that is not a copy
+     */
+    public int resolve(int index) {
+        while (instructions.get(index).getOpcode() == Opcode.COPY)
+            index = instructions.get(index).getLeft();
+
+        return index;
+    }
+
+    /**
+     * Replaces the operands of every instruction.
+     *
+     * @param replacement the value to use instead of each value; it must not
+     *                    be defined after the original
+     */
+    public void replaceUses(int[] replacement) {
+        for (IrInstruction instruction : instructions) {
+            int left = instruction.getLeft() < 0 ? -1 : replacement[instruction.getLeft()];
+            int right = instruction.getRight() < 0 ? -1 : replacement[instruction.getRight()];
+            instruction.setOperands(left, right);
+        }
+    }
+
+    /**
+     * Removes instructions and renumbers the operands of the others.
+     *
+     * @param keep the instructions to keep; their operands must be kept too
+     */
+    public void retain(boolean[] keep) {
+        int[] renumbered = new int[instructions.size()];
+        List<IrInstruction> kept = new ArrayList<>();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            if (!keep[i])
+                continue;
+
+            IrInstruction instruction = instructions.get(i);
+            int left = instruction.getLeft() < 0 ? -1 : renumbered[instruction.getLeft()];
+            int right = instruction.getRight() < 0 ? -1 : renumbered[instruction.getRight()];
+
+            instruction.setOperands(left, right);
+            renumbered[i] = kept.size();
+            kept.add(instruction);
+        }
+
+        instructions.clear();
+        instructions.addAll(kept);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            IrInstruction instruction = instructions.get(i);
+
+            if (instruction.getOpcode() != Opcode.PRINT)
+                builder.append('%').append(i).append(" = ");
+            builder.append(instruction).append('\n');
+        }
+
+        return builder.toString();
+    }
+}
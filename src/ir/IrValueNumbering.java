@@ -0,0 +1,83 @@
+package ir;
+
+import java.util.HashMap;
+
+import ast.LangOper;
+import optimizer.DcArithmetic;
+
+/**
+ * Global value numbering with copy propagation, in one pass.<br>
+ *
+ * In SSA form a value never changes, so two operations with the same operator
+ * and operands compute the same value anywhere in the program: the uses of
+ * the second are moved to the first, in a hash table keyed by operator and
+ * operands ({@code +} and {@code *} are commutative). Uses of a copy become
+ * uses of the value copied, and equal literals are merged. Divisions that may
+ * fail are never merged, so dc reports each of them. The instructions left
+ * without uses are removed by the {@link IrDeadCodeElimination}.
+ */
+public class IrValueNumbering implements IrPass {
+    private int replaced;
+
+    /**
+     * Returns the number of values replaced by an equal one.
+     *
+     * @return the number of replacements
+     */
+    public int getReplacedCount() {
+        return replaced;
+    }
+
+    @Override
+    public void run(IrProgram program) {
+        int[] replacement = new int[program.size()];
+        HashMap<String, Integer> values = new HashMap<>();
+
+        for (int i = 0; i < program.size(); i++) {
+            IrInstruction instruction = program.get(i);
+            replacement[i] = i;
+            String key;
+
+            switch (instruction.getOpcode()) {
+                case CONST:
+                    key = "c " + instruction.getType() + " " + instruction.getLiteral();
+                    break;
+                case COPY:
+                    replacement[i] = replacement[instruction.getLeft()];
+                    replaced++;
+                    continue;
+                case BINARY:
+                    int left = replacement[instruction.getLeft()];
+                    int right = replacement[instruction.getRight()];
+                    LangOper operator = instruction.getOperator();
+
+                    if (!safe(program, operator, right))
+                        continue;
+                    if ((operator == LangOper.PLUS || operator == LangOper.TIMES) && left > right)
+                        key = "o " + operator + " " + instruction.getType() + " " + right + " " + left;
+                    else
+                        key = "o " + operator + " " + instruction.getType() + " " + left + " " + right;
+                    break;
+                default:
+                    continue;
+            }
+
+            Integer previous = values.putIfAbsent(key, i);
+
+            if (previous != null) {
+                replacement[i] = previous;
+                replaced++;
+            }
+        }
+
+        program.replaceUses(replacement);
+    }
+
+    private static boolean safe(IrProgram program, LangOper operator, int divisor) {
+        if (operator != LangOper.DIV && operator != LangOper.DIV_FLOAT)
+            return true;
+
+        IrInstruction instruction = program.get(divisor);
+        return instruction.getOpcode() == Opcode.CONST && DcArithmetic.parse(instruction.getLiteral()).signum() != 0;
+    }
+}
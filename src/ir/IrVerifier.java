@@ -0,0 +1,110 @@
+package ir;
+
+import java.util.HashMap;
+
+import ast.LangOper;
+import ast.LangType;
+import exception.IrException;
+import optimizer.DcArithmetic;
+
+/**
+ * Checks the invariants of an {@link IrProgram}:
+ *
+ * <ul>
+ * <li>every operand is a value defined by an earlier instruction, not a
+ * print;</li>
+ * <li>literals are valid numbers, and every value has a type;</li>
+ * <li>an int operation has int operands, an int division is an int operation
+ * and a float division a float one; a copy keeps the type of its operand or
+ * widens an int to a float;</li>
+ * <li>the versions of each variable are defined in increasing order.</li>
+ * </ul>
+ *
+ * The builder and every pass must produce programs passing these checks.
+ */
+public final class IrVerifier {
+
+    private IrVerifier() {
+    }
+
+    /**
+     * Verifies a program.
+     *
+     * @param program the program
+     * @throws IrException at the first broken invariant
+     */
+    public static void verify(IrProgram program) throws IrException {
+        HashMap<String, Integer> versions = new HashMap<>();
+
+        for (int i = 0; i < program.size(); i++) {
+            IrInstruction instruction = program.get(i);
+
+            switch (instruction.getOpcode()) {
+                case CONST:
+                    try {
+                        DcArithmetic.parse(instruction.getLiteral());
+                    } catch (NumberFormatException | NullPointerException e) {
+                        throw error(i, "invalid literal " + instruction.getLiteral());
+                    }
+                    break;
+                case COPY:
+                    operand(program, i, instruction.getLeft());
+                    LangType from = program.get(instruction.getLeft()).getType();
+
+                    if (from != instruction.getType() && from != LangType.INT)
+                        throw error(i, "copy from " + from + " to " + instruction.getType());
+                    break;
+                case BINARY:
+                    operand(program, i, instruction.getLeft());
+                    operand(program, i, instruction.getRight());
+                    binary(program, i);
+                    break;
+                case PRINT:
+                    operand(program, i, instruction.getLeft());
+                    break;
+            }
+
+            if (instruction.getOpcode() != Opcode.PRINT && instruction.getType() == null)
+                throw error(i, "value without a type");
+
+            if (instruction.getOpcode() != Opcode.PRINT && instruction.getVariable() != null) {
+                Integer previous = versions.put(instruction.getVariable(), instruction.getVersion());
+
+                if (previous != null && previous >= instruction.getVersion())
+                    throw error(i, "version " + instruction.getVersion() + " of " + instruction.getVariable()
+                            + " defined after version " + previous);
+            }
+        }
+    }
+
+    private static void operand(IrProgram program, int index, int operand) throws IrException {
+        if (operand < 0 || operand >= index)
+            throw error(index, "operand %" + operand + " is not defined before its use");
+
+        if (program.get(operand).getOpcode() == Opcode.PRINT)
+            throw error(index, "operand %" + operand + " is a print");
+    }
+
+    private static void binary(IrProgram program, int index) throws IrException {
+        IrInstruction instruction = program.get(index);
+        LangOper operator = instruction.getOperator();
+        boolean integers = program.get(instruction.getLeft()).getType() == LangType.INT
+                && program.get(instruction.getRight()).getType() == LangType.INT;
+
+        if (operator == null)
+            throw error(index, "operation without an operator");
+
+        if (instruction.getType() == LangType.INT && !integers)
+            throw error(index, "int operation on a float operand");
+
+        if (operator == LangOper.DIV && instruction.getType() != LangType.INT)
+            throw error(index, "integer division with a float result");
+
+        if (operator == LangOper.DIV_FLOAT && instruction.getType() != LangType.FLOAT)
+            throw error(index, "float division with an int result");
+    }
+
+    private static IrException error(int index, String message) {
+        return new IrException("Instruction %" + index + ": " + message);
+    }
+}
@@ -0,0 +1,26 @@
+package ir;
+
+/**
+ * Operations of the intermediate representation.
+ */
+public enum Opcode {
+    /**
+     * A literal.
+     */
+    CONST,
+
+    /**
+     * The value of another instruction, given to a variable ({@code x = y}).
+     */
+    COPY,
+
+    /**
+     * An arithmetic operation on two values.
+     */
+    BINARY,
+
+    /**
+     * The print of a value. It defines no value.
+     */
+    PRINT
+}
@@ -0,0 +1,415 @@
+package jvm;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import optimizer.DcArithmetic;
+import vm.Bytecode;
+import vm.Opcodes;
+
+/**
+ * Translation of {@code vm} bytecode into a class with two static methods
+ * running the program, {@code fast(Appendable)} and
+ * {@code exact(Appendable)}.<br>
+ *
+ * The fast method keeps every register in a {@code long}, the value
+ * multiplied by ten to its scale, and computes with {@code Math.*Exact} and
+ * the powers of ten of the scales, known at compile time. It is not generated
+ * if a constant or a power of ten does not fit in a long. The exact method
+ * keeps every register in a {@code BigDecimal} and calls {@link Exact}.<br>
+ *
+ * The constants are in the static arrays {@value #CONSTANTS} (unscaled
+ * longs) and {@value #DECIMALS}, set before the first run, so they take no
+ * entry of the constant pool.<br>
+ *
+ * The registers are local variables when the program fits in one method.
+ * A longer program is split into methods of {@value #CHUNK} instructions
+ * each, called in order with an array holding the registers (a
+ * {@code long[]} or a {@code BigDecimal[]}), created by every run. The
+ * register numbers and the constant indexes are pushed as sums of shorts, so
+ * the size of the constant pool does not depend on the program. The code has
+ * no branches.
+ */
+final class ClassGenerator {
+    static final String NAME = "jvm/AcProgram";
+    static final String FAST = "fast";
+    static final String EXACT = "exact";
+    static final String CONSTANTS = "K";
+    static final String DECIMALS = "D";
+    static final int CHUNK = 2000;
+
+    private static final int MAX_LOCAL_REGISTERS = 4096;
+    private static final String RUN = "(Ljava/lang/Appendable;)V";
+    private static final String DECIMAL = "Ljava/math/BigDecimal;";
+    private static final String RUN_FAST_CHUNK = "(Ljava/lang/Appendable;[J)V";
+    private static final String RUN_EXACT_CHUNK = "(Ljava/lang/Appendable;[" + DECIMAL + ")V";
+    private static final long[] POWERS = new long[19];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++)
+            POWERS[i] = POWERS[i - 1] * 10;
+    }
+
+    private final int[] code;
+    private final BigDecimal[] constants;
+    private final int registers;
+    private final List<Integer> chunks = new ArrayList<>();
+    private final boolean chunked;
+    private final ClassWriter writer = new ClassWriter(NAME);
+
+    ClassGenerator(Bytecode program) {
+        code = program.getCode();
+        constants = program.getConstants();
+        registers = program.getRegisterCount();
+        int count = 0;
+
+        for (int pc = 0; pc < code.length; pc += Opcodes.length(code[pc]))
+            if (count++ % CHUNK == 0)
+                chunks.add(pc);
+
+        if (chunks.isEmpty())
+            chunks.add(0);
+
+        chunks.add(code.length);
+        chunked = chunks.size() > 2 || registers > MAX_LOCAL_REGISTERS;
+    }
+
+    /**
+     * Checks whether the program is split into several methods, sharing
+     * their registers through an array.
+     *
+     * @return false if the registers are local variables
+     */
+    boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * Checks whether every constant and power of ten of the fast method fits
+     * in a long.
+     *
+     * @return true if the fast method is generated
+     */
+    boolean hasFastPath() {
+        for (BigDecimal constant : constants)
+            if (constant.unscaledValue().bitLength() >= Long.SIZE)
+                return false;
+
+        for (int pc = 0; pc < code.length; pc += Opcodes.length(code[pc])) {
+            int opcode = code[pc];
+
+            if (opcode < Opcodes.FADD || opcode > Opcodes.FDIV5)
+                continue;
+
+            int sa = code[pc + 4];
+            int sb = code[pc + 5];
+            int span = opcode == Opcodes.FMUL ? Math.min(sa, sb)
+                    : opcode == Opcodes.FDIV5 ? Math.abs(DcArithmetic.FLOAT_SCALE + sb - sa) : Math.abs(sa - sb);
+
+            if (span >= POWERS.length)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the class.
+     *
+     * @return the class file
+     * @throws IllegalStateException if the program exceeds the limits of a
+     *                               class file
+     */
+    byte[] generate() {
+        boolean fast = hasFastPath();
+
+        writer.field(ClassWriter.ACC_STATIC, CONSTANTS, "[J");
+        writer.field(ClassWriter.ACC_STATIC, DECIMALS, "[" + DECIMAL);
+
+        if (fast)
+            entry(true);
+        entry(false);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Writes the method running the program on one path: it clears the
+     * registers, then runs the instructions itself or calls the methods
+     * holding them with a new array of registers.
+     */
+    private void entry(boolean fast) {
+        String name = fast ? FAST : EXACT;
+        int maxLocals = chunked ? 2 : 1 + registers * (fast ? 2 : 1);
+        ClassWriter.Code method = writer.method(ClassWriter.ACC_STATIC, name, RUN, fast ? 10 : 6, maxLocals);
+
+        if (!chunked) {
+            for (int r = 0; r < registers; r++) {
+                if (fast)
+                    method.pushLong(0);
+                else
+                    method.getStatic("java/math/BigDecimal", "ZERO", DECIMAL);
+                store(method, fast, r);
+            }
+
+            instructions(method, fast, chunks.get(0), chunks.get(1));
+            method.end();
+            return;
+        }
+
+        index(method, registers);
+
+        if (fast) {
+            method.newLongArray();
+        } else {
+            method.newArray("java/math/BigDecimal");
+            method.op(ClassWriter.DUP);
+            method.getStatic("java/math/BigDecimal", "ZERO", DECIMAL);
+            method.invokeStatic("java/util/Arrays", "fill", "([Ljava/lang/Object;Ljava/lang/Object;)V");
+        }
+
+        method.local(ClassWriter.ASTORE, 1);
+        String descriptor = fast ? RUN_FAST_CHUNK : RUN_EXACT_CHUNK;
+
+        for (int c = 0; c + 1 < chunks.size(); c++) {
+            method.local(ClassWriter.ALOAD, 0);
+            method.local(ClassWriter.ALOAD, 1);
+            method.invokeStatic(NAME, name + c, descriptor);
+
+            ClassWriter.Code chunk = writer.method(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, name + c,
+                    descriptor, fast ? 10 : 6, 2);
+            instructions(chunk, fast, chunks.get(c), chunks.get(c + 1));
+            chunk.end();
+        }
+
+        method.end();
+    }
+
+    private void instructions(ClassWriter.Code method, boolean fast, int from, int to) {
+        for (int pc = from; pc < to; pc += Opcodes.length(code[pc])) {
+            if (fast)
+                fast(method, pc);
+            else
+                exact(method, pc);
+        }
+    }
+
+    private void fast(ClassWriter.Code method, int pc) {
+        int opcode = code[pc];
+        int d = code[pc + 1];
+
+        if (opcode != Opcodes.PRINT)
+            target(method, d);
+
+        switch (opcode) {
+            case Opcodes.LOAD: {
+                long value = constants[code[pc + 2]].unscaledValue().longValue();
+
+                if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                    method.pushInt((int) value);
+                    method.op(ClassWriter.I2L);
+                } else {
+                    method.getStatic(NAME, CONSTANTS, "[J");
+                    index(method, code[pc + 2]);
+                    method.op(ClassWriter.LALOAD);
+                }
+
+                store(method, true, d);
+                return;
+            }
+            case Opcodes.MOVE:
+                load(method, true, code[pc + 2]);
+                store(method, true, d);
+                return;
+            case Opcodes.PRINT:
+                method.local(ClassWriter.ALOAD, 0);
+                load(method, true, d);
+                method.pushInt(code[pc + 2]);
+                method.invokeStatic(Exact.NAME, "print", "(Ljava/lang/Appendable;JI)V");
+                return;
+            default:
+                break;
+        }
+
+        int a = code[pc + 2];
+        int b = code[pc + 3];
+        int sa = opcode >= Opcodes.FADD ? code[pc + 4] : 0;
+        int sb = opcode >= Opcodes.FADD ? code[pc + 5] : 0;
+
+        switch (opcode) {
+            case Opcodes.IADD:
+            case Opcodes.ISUB:
+            case Opcodes.IMUL:
+            case Opcodes.IDIV:
+                load(method, true, a);
+                load(method, true, b);
+                checked(method, opcode);
+                break;
+            case Opcodes.FADD:
+            case Opcodes.FSUB: {
+                int s = Math.max(sa, sb);
+                scaled(method, a, s - sa);
+                scaled(method, b, s - sb);
+                checked(method, opcode);
+                break;
+            }
+            case Opcodes.FMUL:
+                load(method, true, a);
+                load(method, true, b);
+                checked(method, opcode);
+
+                if (Math.min(sa, sb) > 0) {
+                    method.pushLong(POWERS[Math.min(sa, sb)]);
+                    method.op(ClassWriter.LDIV);
+                }
+                break;
+            default: {
+                int exponent = DcArithmetic.FLOAT_SCALE + sb - sa;
+                scaled(method, a, Math.max(exponent, 0));
+                scaled(method, b, Math.max(-exponent, 0));
+                checked(method, opcode);
+                break;
+            }
+        }
+
+        store(method, true, d);
+    }
+
+    /**
+     * Pushes a register multiplied by a power of ten, with an overflow check.
+     */
+    private void scaled(ClassWriter.Code method, int register, int exponent) {
+        load(method, true, register);
+
+        if (exponent > 0) {
+            method.pushLong(POWERS[exponent]);
+            method.invokeStatic("java/lang/Math", "multiplyExact", "(JJ)J");
+        }
+    }
+
+    /**
+     * Writes the checked long operation of an opcode.
+     */
+    private static void checked(ClassWriter.Code method, int opcode) {
+        switch (opcode) {
+            case Opcodes.IADD:
+            case Opcodes.FADD:
+                method.invokeStatic("java/lang/Math", "addExact", "(JJ)J");
+                break;
+            case Opcodes.ISUB:
+            case Opcodes.FSUB:
+                method.invokeStatic("java/lang/Math", "subtractExact", "(JJ)J");
+                break;
+            case Opcodes.IMUL:
+            case Opcodes.FMUL:
+                method.invokeStatic("java/lang/Math", "multiplyExact", "(JJ)J");
+                break;
+            default:
+                method.invokeStatic(Exact.NAME, "divide", "(JJ)J");
+                break;
+        }
+    }
+
+    private void exact(ClassWriter.Code method, int pc) {
+        int opcode = code[pc];
+        int d = code[pc + 1];
+
+        if (opcode != Opcodes.PRINT)
+            target(method, d);
+
+        switch (opcode) {
+            case Opcodes.LOAD:
+                method.getStatic(NAME, DECIMALS, "[" + DECIMAL);
+                index(method, code[pc + 2]);
+                method.op(ClassWriter.AALOAD);
+                break;
+            case Opcodes.MOVE:
+                load(method, false, code[pc + 2]);
+                break;
+            case Opcodes.PRINT:
+                method.local(ClassWriter.ALOAD, 0);
+                load(method, false, d);
+                method.invokeStatic(Exact.NAME, "print", "(Ljava/lang/Appendable;" + DECIMAL + ")V");
+                return;
+            case Opcodes.IADD:
+            case Opcodes.FADD:
+                operation(method, pc, "add", false);
+                break;
+            case Opcodes.ISUB:
+            case Opcodes.FSUB:
+                operation(method, pc, "subtract", false);
+                break;
+            case Opcodes.IMUL:
+            case Opcodes.FMUL:
+                operation(method, pc, "multiply", false);
+                break;
+            case Opcodes.IDIV:
+                operation(method, pc, "divide", true);
+                break;
+            default:
+                operation(method, pc, "divideFloat", true);
+                break;
+        }
+
+        store(method, false, d);
+    }
+
+    private void operation(ClassWriter.Code method, int pc, String name, boolean division) {
+        load(method, false, code[pc + 2]);
+        load(method, false, code[pc + 3]);
+
+        if (division) {
+            method.pushInt(pc);
+            method.invokeStatic(Exact.NAME, name, "(" + DECIMAL + DECIMAL + "I)" + DECIMAL);
+        } else {
+            method.invokeStatic(Exact.NAME, name, "(" + DECIMAL + DECIMAL + ")" + DECIMAL);
+        }
+    }
+
+    /**
+     * Pushes the array of the registers and the index of the register an
+     * instruction writes, before its value; nothing for a local.
+     */
+    private void target(ClassWriter.Code method, int register) {
+        if (chunked) {
+            method.local(ClassWriter.ALOAD, 1);
+            index(method, register);
+        }
+    }
+
+    private void load(ClassWriter.Code method, boolean fast, int register) {
+        if (chunked) {
+            method.local(ClassWriter.ALOAD, 1);
+            index(method, register);
+            method.op(fast ? ClassWriter.LALOAD : ClassWriter.AALOAD);
+        } else if (fast) {
+            method.local(ClassWriter.LLOAD, 1 + 2 * register);
+        } else {
+            method.local(ClassWriter.ALOAD, 1 + register);
+        }
+    }
+
+    private void store(ClassWriter.Code method, boolean fast, int register) {
+        if (chunked)
+            method.op(fast ? ClassWriter.LASTORE : ClassWriter.AASTORE);
+        else if (fast)
+            method.local(ClassWriter.LSTORE, 1 + 2 * register);
+        else
+            method.local(ClassWriter.ASTORE, 1 + register);
+    }
+
+    /**
+     * Pushes a nonnegative int as a sum of shorts, which take no entry of the
+     * constant pool.
+     */
+    private static void index(ClassWriter.Code method, int value) {
+        method.pushInt(Math.min(value, Short.MAX_VALUE));
+
+        for (int rest = value - Short.MAX_VALUE; rest > 0; rest -= Short.MAX_VALUE) {
+            method.pushInt(Math.min(rest, Short.MAX_VALUE));
+            method.op(ClassWriter.IADD);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writer of class files, limited to what the {@link ClassGenerator} needs:
+ * static fields and static methods of straight-line code (no branches, so
+ * no stack map frames), with the constant pool entries they use.<br>
+ *
+ * The format is the one of the Java Virtual Machine Specification, chapter
+ * 4, version 52 (Java 8). Strings are written in modified UTF-8 by
+ * {@link DataOutputStream#writeUTF(String)}.
+ */
+final class ClassWriter {
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 0x03;
+    static final int LCONST_0 = 0x09;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int LLOAD = 0x16;
+    static final int ALOAD = 0x19;
+    static final int LALOAD = 0x2f;
+    static final int AALOAD = 0x32;
+    static final int LSTORE = 0x37;
+    static final int ASTORE = 0x3a;
+    static final int LASTORE = 0x50;
+    static final int AASTORE = 0x53;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int LDIV = 0x6d;
+    static final int I2L = 0x85;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int INVOKESTATIC = 0xb8;
+    static final int NEWARRAY = 0xbc;
+    static final int ANEWARRAY = 0xbd;
+    static final int WIDE = 0xc4;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 52;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int T_LONG = 11;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final HashMap<String, Integer> entries = new HashMap<>();
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private final String name;
+    private int entryCount = 1;
+
+    /**
+     * Creates the writer of a class extending {@code Object}.
+     *
+     * @param name the internal name of the class ({@code jvm/AcProgram})
+     */
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds a field.
+     *
+     * @param access     the access flags
+     * @param name       the field name
+     * @param descriptor the field descriptor ({@code J})
+     */
+    void field(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Starts a method; {@link Code#end()} adds it to the class.
+     *
+     * @param access     the access flags
+     * @param name       the method name
+     * @param descriptor the method descriptor
+     * @param maxStack   the maximum depth of the operand stack, in slots
+     * @param maxLocals  the number of local variable slots, parameters
+     *                   included
+     * @return the writer of the method code
+     */
+    Code method(int access, String name, String descriptor, int maxStack, int maxLocals) {
+        if (maxLocals > 0xFFFF)
+            throw new IllegalStateException("Too many local variables in " + name);
+
+        return new Code(access, name, descriptor, maxStack, maxLocals);
+    }
+
+    /**
+     * Returns the class file.
+     *
+     * @return the bytes of the class
+     */
+    byte[] toByteArray() {
+        int thisClass = classRef(name);
+        int superClass = classRef("java/lang/Object");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            pool.flush();
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(entryCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+
+            for (byte[] field : fields)
+                out.write(field);
+
+            out.writeShort(methods.size());
+
+            for (byte[] method : methods)
+                out.write(method);
+
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, 1, out -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int nameIndex = utf8(internalName);
+        return entry("C" + internalName, 1, out -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(nameIndex);
+        });
+    }
+
+    int integer(int value) {
+        return entry("I" + value, 1, out -> {
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    /**
+     * Adds a long constant, which takes two entries of the pool.
+     */
+    int longConstant(long value) {
+        return entry("J" + value, 2, out -> {
+            out.writeByte(CONSTANT_LONG);
+            out.writeLong(value);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = entry("N" + name + " " + descriptor, 1, out -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+
+        return entry(tag + owner + "." + name + " " + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Returns the index of a pool entry, adding it the first time.
+     */
+    private int entry(String key, int size, EntryWriter writer) {
+        Integer index = entries.get(key);
+
+        if (index != null)
+            return index;
+        if (entryCount + size > MAX_ENTRIES)
+            throw new IllegalStateException("Constant pool too large");
+
+        try {
+            writer.write(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        index = entryCount;
+        entryCount += size;
+        entries.put(key, index);
+        return index;
+    }
+
+    /**
+     * The code of a method being written.
+     */
+    final class Code {
+        private static final int MAX_LENGTH = 0xFFFF;
+
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final int maxStack;
+        private final int maxLocals;
+        private byte[] code = new byte[256];
+        private int length;
+
+        private Code(int access, String name, String descriptor, int maxStack, int maxLocals) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        int length() {
+            return length;
+        }
+
+        void op(int opcode) {
+            put(opcode);
+        }
+
+        /**
+         * Writes an instruction with a constant pool index operand.
+         */
+        void op(int opcode, int index) {
+            put(opcode);
+            put(index >> 8);
+            put(index);
+        }
+
+        /**
+         * Pushes an int constant with the shortest instruction.
+         */
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                put(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                put(BIPUSH);
+                put(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                put(SIPUSH);
+                put(value >> 8);
+                put(value);
+            } else {
+                ldc(integer(value));
+            }
+        }
+
+        /**
+         * Pushes a long constant.
+         */
+        void pushLong(long value) {
+            if (value == 0 || value == 1)
+                put(LCONST_0 + (int) value);
+            else
+                op(LDC2_W, longConstant(value));
+        }
+
+        /**
+         * Writes a load or a store of a local variable.
+         */
+        void local(int opcode, int slot) {
+            if (slot > 0xFF) {
+                put(WIDE);
+                op(opcode, slot);
+            } else {
+                put(opcode);
+                put(slot);
+            }
+        }
+
+        void getStatic(String owner, String name, String descriptor) {
+            op(GETSTATIC, fieldRef(owner, name, descriptor));
+        }
+
+        void putStatic(String owner, String name, String descriptor) {
+            op(PUTSTATIC, fieldRef(owner, name, descriptor));
+        }
+
+        void invokeStatic(String owner, String name, String descriptor) {
+            op(INVOKESTATIC, methodRef(owner, name, descriptor));
+        }
+
+        /**
+         * Creates a {@code long[]} of the length on top of the stack.
+         */
+        void newLongArray() {
+            put(NEWARRAY);
+            put(T_LONG);
+        }
+
+        /**
+         * Creates an array of references of the length on top of the stack.
+         *
+         * @param component the internal name of the element class
+         */
+        void newArray(String component) {
+            op(ANEWARRAY, classRef(component));
+        }
+
+        /**
+         * Ends the method with a {@code return} and adds it to the class.
+         */
+        void end() {
+            put(RETURN);
+
+            if (length > MAX_LENGTH)
+                throw new IllegalStateException("Method " + name + " too large: " + length + " bytes");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            try {
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(utf8("Code"));
+                out.writeInt(12 + length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(length);
+                out.write(code, 0, length);
+                out.writeShort(0);
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            methods.add(bytes.toByteArray());
+        }
+
+        private void ldc(int index) {
+            if (index <= 0xFF) {
+                put(LDC);
+                put(index);
+            } else {
+                op(LDC_W, index);
+            }
+        }
+
+        private void put(int value) {
+            if (length == code.length)
+                code = Arrays.copyOf(code, code.length * 2);
+
+            code[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package jvm;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import ast.LangOper;
+import exception.InterpreterException;
+import optimizer.DcArithmetic;
+
+/**
+ * The operations the generated classes call, for what is not a single JVM
+ * instruction. The fast path throws {@link ArithmeticException} at the first
+ * value not fitting in a long, or at a division by zero, and the program is
+ * then run again on the exact path, which computes as dc does with
+ * {@link DcArithmetic}.<br>
+ *
+ * The hidden classes are defined in this package, so the methods need not be
+ * public.
+ */
+final class Exact {
+    static final String NAME = "jvm/Exact";
+
+    private Exact() {
+    }
+
+    /**
+     * Divides longs, truncating toward zero.
+     *
+     * @throws ArithmeticException for a division by zero or a quotient out
+     *                             of range
+     */
+    static long divide(long a, long b) {
+        if (a == Long.MIN_VALUE && b == -1)
+            throw new ArithmeticException("long overflow");
+
+        return a / b;
+    }
+
+    static void print(Appendable out, long value, int scale) throws IOException {
+        out.append(DcArithmetic.display(BigDecimal.valueOf(value, scale))).append('\n');
+    }
+
+    static void print(Appendable out, BigDecimal value) throws IOException {
+        out.append(DcArithmetic.display(value)).append('\n');
+    }
+
+    static BigDecimal add(BigDecimal a, BigDecimal b) {
+        return DcArithmetic.apply(LangOper.PLUS, a, b);
+    }
+
+    static BigDecimal subtract(BigDecimal a, BigDecimal b) {
+        return DcArithmetic.apply(LangOper.MINUS, a, b);
+    }
+
+    static BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        return DcArithmetic.apply(LangOper.TIMES, a, b);
+    }
+
+    /**
+     * Divides as dc does with the precision at 0.
+     *
+     * @param instruction the offset of the division in the {@code vm}
+     *                    bytecode, reported at a division by zero
+     */
+    static BigDecimal divide(BigDecimal a, BigDecimal b, int instruction) throws InterpreterException {
+        return checked(DcArithmetic.apply(LangOper.DIV, a, b), instruction);
+    }
+
+    /**
+     * Divides as dc does with the precision at 5.
+     *
+     * @param instruction the offset of the division in the {@code vm}
+     *                    bytecode, reported at a division by zero
+     */
+    static BigDecimal divideFloat(BigDecimal a, BigDecimal b, int instruction) throws InterpreterException {
+        return checked(DcArithmetic.apply(LangOper.DIV_FLOAT, a, b), instruction);
+    }
+
+    private static BigDecimal checked(BigDecimal value, int instruction) throws InterpreterException {
+        if (value == null)
+            throw new InterpreterException("Division by zero at instruction " + instruction);
+
+        return value;
+    }
+}
@@ -0,0 +1,202 @@
+package jvm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+
+import ast.NodeProgram;
+import exception.InterpreterException;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+
+/**
+ * A program compiled to a JVM class, so the JIT compiles it to machine code.
+ * <br>
+ *
+ * The program goes through the register bytecode of the {@code vm} package,
+ * which {@link ClassGenerator} translates into a class loaded with
+ * {@link MethodHandles.Lookup#defineHiddenClass}: no class file is written
+ * and the class is unloaded with this object. Every run tries the fast path
+ * on longs first, printing into a buffer; at the first overflow or division
+ * by zero the buffer is dropped and the program runs again on the exact
+ * path, which later runs take directly. The output and the errors are those
+ * of the {@code interpreter}.<br>
+ *
+ * Every run has its own registers, so a program can be run by several
+ * threads at once.
+ */
+public final class JvmProgram {
+    private static final Tracer tracer = Trace.tracer(Phase.INTERPRETER);
+    private static final MethodType RUN = MethodType.methodType(void.class, Appendable.class);
+
+    private final byte[] classFile;
+    private final boolean chunked;
+    private final MethodHandle fast;
+    private final MethodHandle exact;
+    private volatile boolean fastFailed;
+    private int fallbacks;
+
+    private JvmProgram(byte[] classFile, boolean chunked, MethodHandle fast, MethodHandle exact) {
+        this.classFile = classFile;
+        this.chunked = chunked;
+        this.fast = fast;
+        this.exact = exact;
+    }
+
+    /**
+     * Compiles a program.
+     *
+     * @param program the program, checked by the {@code TypeCheckingVisitor}
+     * @return the compiled program
+     * @throws IllegalStateException if the program exceeds the limits of a
+     *                               class file
+     */
+    public static JvmProgram compile(NodeProgram program) {
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        program.accept(compiler);
+        return compile(compiler.getBytecode());
+    }
+
+    /**
+     * Compiles a program of the {@code vm} package.
+     *
+     * @param program the bytecode
+     * @return the compiled program
+     * @throws IllegalStateException if the program exceeds the limits of a
+     *                               class file
+     */
+    public static JvmProgram compile(Bytecode program) {
+        ClassGenerator generator = new ClassGenerator(program);
+        byte[] classFile = generator.generate();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            Class<?> hidden = lookup.lookupClass();
+            BigDecimal[] decimals = program.getConstants();
+            long[] constants = new long[decimals.length];
+
+            for (int k = 0; k < decimals.length; k++)
+                constants[k] = decimals[k].unscaledValue().longValue();
+
+            lookup.findStaticSetter(hidden, ClassGenerator.CONSTANTS, long[].class).invokeExact(constants);
+            lookup.findStaticSetter(hidden, ClassGenerator.DECIMALS, BigDecimal[].class).invokeExact(decimals);
+            MethodHandle fast = generator.hasFastPath()
+                    ? lookup.findStatic(hidden, ClassGenerator.FAST, RUN)
+                    : null;
+            MethodHandle exact = lookup.findStatic(hidden, ClassGenerator.EXACT, RUN);
+
+            if (tracer.isInfo())
+                tracer.info("Defined " + hidden.getName() + ": " + classFile.length + " bytes, registers in "
+                        + (generator.isChunked() ? "arrays" : "locals")
+                        + (fast == null ? ", exact path only" : ""));
+
+            return new JvmProgram(classFile, generator.isChunked(), fast, exact);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot load the generated class", e);
+        }
+    }
+
+    /**
+     * Runs the program.
+     *
+     * @param out the destination of the printed values
+     * @throws InterpreterException at a division by zero
+     * @throws IOException          if the output cannot be written
+     */
+    public void run(Appendable out) throws InterpreterException, IOException {
+        if (hasFastPath()) {
+            StringBuilder buffer = new StringBuilder();
+
+            try {
+                fast.invokeExact((Appendable) buffer);
+                out.append(buffer);
+                return;
+            } catch (ArithmeticException e) {
+                fallBack();
+
+                if (tracer.isDebug())
+                    tracer.debug("Fast path abandoned: " + e.getMessage());
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        try {
+            exact.invokeExact(out);
+        } catch (InterpreterException | IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized void fallBack() {
+        fastFailed = true;
+        fallbacks++;
+    }
+
+    /**
+     * Runs the program and returns its output.
+     *
+     * @return the printed values, one per line
+     * @throws InterpreterException at a division by zero
+     */
+    public String run() throws InterpreterException {
+        StringBuilder out = new StringBuilder();
+
+        try {
+            run(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Returns the generated class file.
+     *
+     * @return a copy of the bytes of the class
+     */
+    public byte[] getClassFile() {
+        return classFile.clone();
+    }
+
+    /**
+     * Checks whether the program was split into several methods, which keep
+     * the registers in an array instead of locals.
+     *
+     * @return true if the program was split into several methods
+     */
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * Checks whether the next run takes the fast path.
+     *
+     * @return false if the program needs exact arithmetic
+     */
+    public boolean hasFastPath() {
+        return fast != null && !fastFailed;
+    }
+
+    /**
+     * Returns the number of runs restarted on the exact path.
+     *
+     * @return the number of fallbacks
+     */
+    public synchronized int getFallbackCount() {
+        return fallbacks;
+    }
+}
@@ -0,0 +1,405 @@
+package optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import ast.LangOper;
+import ast.LangType;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.TypeDescriptor;
+import ast.TypeTd;
+import symbolTable.Attributes;
+import symbolTable.SymbolTable;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Common subexpression elimination by value numbering.<br>
+ *
+ * Every expression gets a value number: equal numbers mean equal values.
+ * Variables are numbered by name and version (the version changes at every
+ * assignment), constants by their literal, operations by operator, result
+ * type and operand numbers ({@code +} and {@code *} are commutative), so an
+ * expression has the same number in all the statements between two
+ * assignments of its operands, and a temporary has the type of all its
+ * uses.<br>
+ *
+ * An operation evaluated more than once is computed once into a temporary
+ * variable, declared right before the statement where it first appears, and
+ * every occurrence reads the temporary. Temporaries are named {@code $t0},
+ * {@code $t1}, ... (not valid identifiers of the language) and get a register
+ * from the allocator like any variable. When the two operands of an operation
+ * have the same value, the right one becomes the left node, which the code
+ * generator duplicates ({@code x d +}) instead of evaluating it again.<br>
+ *
+ * Operations containing a division that may fail are left alone, so dc
+ * reports every division by zero of the source. The pass uses the types
+ * stored in the nodes by the {@code TypeCheckingVisitor}, so it must run after
+ * it.
+ */
+public class CommonSubexpressionVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+
+    private final HashMap<String, Integer> numbers = new HashMap<>();
+    private final HashMap<String, Integer> versions = new HashMap<>();
+    private final IdentityHashMap<NodeExpr, Integer> valueOf = new IdentityHashMap<>();
+    private final Set<Integer> unsafe = new HashSet<>();
+    private final HashMap<Integer, Integer> evaluations = new HashMap<>();
+    private final HashMap<Integer, String> temps = new HashMap<>();
+    private final ArrayList<NodeDecSt> pending = new ArrayList<>();
+    private final IdentityHashMap<NodeExpr, NodeExpr> rewritten = new IdentityHashMap<>();
+    private int reused;
+
+    /**
+     * Returns the number of temporaries introduced.
+     *
+     * @return the number of temporaries
+     */
+    public int getTempCount() {
+        return temps.size();
+    }
+
+    /**
+     * Returns the number of evaluations replaced by a temporary or a
+     * duplication.
+     *
+     * @return the number of evaluations saved
+     */
+    public int getReuseCount() {
+        return reused;
+    }
+
+    /**
+     * Numbers the values of the program, counts how many times each one would
+     * be evaluated, then rewrites the statements and inserts the declarations
+     * of the temporaries.
+     *
+     * @param node the NodeProgram object representing the program
+     */
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+
+        HashSet<Integer> seen = new HashSet<>();
+        for (NodeDecSt dec : node.getDecSts())
+            count(expression(dec), seen);
+
+        ArrayList<NodeDecSt> rewritten = new ArrayList<>(node.getDecSts().size());
+        for (NodeDecSt dec : node.getDecSts()) {
+            if (dec instanceof NodeDecl && ((NodeDecl) dec).getInit() != null)
+                ((NodeDecl) dec).setInit(rewrite(((NodeDecl) dec).getInit()));
+            else if (dec instanceof NodeAssign)
+                ((NodeAssign) dec).setExpr(rewrite(((NodeAssign) dec).getExpr()));
+
+            rewritten.addAll(pending);
+            pending.clear();
+            rewritten.add(dec);
+        }
+
+        node.getDecSts().clear();
+        node.getDecSts().addAll(rewritten);
+
+        if (tracer.isInfo())
+            tracer.info("Common subexpressions: " + temps.size() + " temporaries, " + reused
+                    + " evaluations saved");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null)
+            number(node.getInit());
+
+        assigned(node.getId());
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+        number(node);
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+        number(node);
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+        number(node);
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        number(node.getExpr());
+        assigned(node.getId());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+    }
+
+    /**
+     * A new value of a variable: the expressions reading it get new numbers.
+     */
+    private void assigned(NodeId id) {
+        versions.merge(id.getName(), 1, Integer::sum);
+    }
+
+    /**
+     * Numbers an expression and its subexpressions, in post-order with an
+     * explicit stack.
+     */
+    private void number(NodeExpr root) {
+        ArrayDeque<NodeExpr> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            NodeExpr node = stack.peek();
+
+            if (valueOf.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+
+            if (node instanceof NodeBinOp) {
+                NodeBinOp binOp = (NodeBinOp) node;
+
+                if (!valueOf.containsKey(binOp.getLeft()) || !valueOf.containsKey(binOp.getRight())) {
+                    if (!valueOf.containsKey(binOp.getRight()))
+                        stack.push(binOp.getRight());
+                    if (!valueOf.containsKey(binOp.getLeft()))
+                        stack.push(binOp.getLeft());
+                    continue;
+                }
+            }
+
+            stack.pop();
+            valueOf.put(node, valueNumber(node));
+        }
+    }
+
+    private int valueNumber(NodeExpr node) {
+        String key;
+        boolean failing = false;
+
+        if (node instanceof NodeDeref) {
+            String name = ((NodeDeref) node).getId().getName();
+            key = "v " + name + " " + versions.getOrDefault(name, 0);
+        } else if (node instanceof NodeCost) {
+            key = "c " + ((NodeCost) node).getType() + " " + ((NodeCost) node).getValue();
+        } else {
+            NodeBinOp binOp = (NodeBinOp) node;
+            int left = valueOf.get(binOp.getLeft());
+            int right = valueOf.get(binOp.getRight());
+            LangType type = Expressions.isInt(binOp) ? LangType.INT : LangType.FLOAT;
+
+            if (binOp.getOp() == LangOper.PLUS || binOp.getOp() == LangOper.TIMES)
+                key = "o " + binOp.getOp() + " " + type + " " + Math.min(left, right) + " " + Math.max(left, right);
+            else
+                key = "o " + binOp.getOp() + " " + type + " " + left + " " + right;
+
+            failing = unsafe.contains(left) || unsafe.contains(right)
+                    || (binOp.getOp() == LangOper.DIV || binOp.getOp() == LangOper.DIV_FLOAT)
+                            && !(binOp.getRight() instanceof NodeCost
+                                    && DcArithmetic.parse(((NodeCost) binOp.getRight()).getValue()).signum() != 0);
+        }
+
+        Integer number = numbers.get(key);
+
+        if (number == null) {
+            number = numbers.size();
+            numbers.put(key, number);
+        }
+
+        if (failing)
+            unsafe.add(number);
+
+        return number;
+    }
+
+    /**
+     * Counts the evaluations of each operation value in pre-order, left to
+     * right. The occurrences after the first will read a temporary, so their
+     * operands are not counted (unless the value may fail, and is never
+     * shared); neither is a right operand with the value of the left one,
+     * which will be duplicated, nor one that is the left node itself, which
+     * is rewritten once.
+     */
+    private void count(NodeExpr root, HashSet<Integer> seen) {
+        ArrayDeque<NodeExpr> stack = new ArrayDeque<>();
+
+        if (root != null)
+            stack.push(root);
+
+        while (!stack.isEmpty()) {
+            NodeExpr node = stack.pop();
+
+            if (!(node instanceof NodeBinOp))
+                continue;
+
+            int value = valueOf.get(node);
+            evaluations.merge(value, 1, Integer::sum);
+
+            if (!seen.add(value) && !unsafe.contains(value))
+                continue;
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!sameValue(binOp) && binOp.getRight() != binOp.getLeft())
+                stack.push(binOp.getRight());
+            stack.push(binOp.getLeft());
+        }
+    }
+
+    /**
+     * Rewrites an expression in post-order with an explicit stack: repeated
+     * values become reads of their temporary, and the declaration of a
+     * temporary is queued when its value is first computed. A node shared by
+     * both operands of an operation ({@code x + x} from the simplification)
+     * is rewritten once and stays shared.
+     */
+    private NodeExpr rewrite(NodeExpr root) {
+        rewritten.clear();
+        NodeExpr last = enter(root);
+
+        if (last != null)
+            return last;
+
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame((NodeBinOp) root));
+
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            NodeBinOp node = frame.node;
+
+            if (frame.stage == 0) {
+                frame.stage = 1;
+                last = enter(node.getLeft());
+
+                if (last == null) {
+                    stack.push(new Frame((NodeBinOp) node.getLeft()));
+                    continue;
+                }
+            }
+
+            if (frame.stage == 1) {
+                frame.stage = 2;
+                boolean same = sameValue(node);
+                node.setLeft(last);
+
+                if (same) {
+                    reused++;
+                } else {
+                    last = enter(node.getRight());
+
+                    if (last == null) {
+                        stack.push(new Frame((NodeBinOp) node.getRight()));
+                        continue;
+                    }
+                }
+            }
+
+            node.setRight(last);
+            stack.pop();
+            last = leave(node);
+            rewritten.put(node, last);
+        }
+
+        return last;
+    }
+
+    /**
+     * Returns the replacement of an expression that needs no rewriting of its
+     * operands, or null if the operation must be rewritten.
+     */
+    private NodeExpr enter(NodeExpr node) {
+        if (!(node instanceof NodeBinOp))
+            return node;
+        if (rewritten.containsKey(node))
+            return rewritten.get(node);
+
+        String temp = temps.get(valueOf.get(node));
+
+        if (temp != null) {
+            reused++;
+            return deref(temp, node);
+        }
+
+        return null;
+    }
+
+    /**
+     * Completes the rewriting of an operation whose operands are done: if its
+     * value is evaluated more than once, it becomes the initialization of a
+     * new temporary.
+     */
+    private NodeExpr leave(NodeBinOp node) {
+        int value = valueOf.get(node);
+
+        if (evaluations.getOrDefault(value, 0) < 2 || unsafe.contains(value))
+            return node;
+
+        String temp = "$t" + temps.size();
+        LangType type = Expressions.isInt(node) ? LangType.INT : LangType.FLOAT;
+
+        temps.put(value, temp);
+        SymbolTable.enter(temp, new Attributes(type, temp));
+        pending.add(new NodeDecl(new NodeId(temp), type, node));
+
+        if (tracer.isDebug())
+            tracer.debug("Temporary " + temp + " for " + node);
+
+        return deref(temp, node);
+    }
+
+    private boolean sameValue(NodeBinOp node) {
+        int value = valueOf.get(node.getLeft());
+        return value == valueOf.get(node.getRight()) && !unsafe.contains(value);
+    }
+
+    private static NodeExpr expression(NodeDecSt dec) {
+        if (dec instanceof NodeDecl)
+            return ((NodeDecl) dec).getInit();
+        if (dec instanceof NodeAssign)
+            return ((NodeAssign) dec).getExpr();
+        return null;
+    }
+
+    private static NodeDeref deref(String temp, NodeExpr value) {
+        NodeDeref deref = new NodeDeref(new NodeId(temp));
+        deref.setResType(new TypeDescriptor(Expressions.isInt(value) ? TypeTd.INT : TypeTd.FLOAT));
+        return deref;
+    }
+
+    /**
+     * Operation being rewritten: stage 0 before its left operand, 1 before its
+     * right operand, 2 when both are done.
+     */
+    private static final class Frame {
+        private final NodeBinOp node;
+        private int stage;
+
+        private Frame(NodeBinOp node) {
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package optimizer;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+
+import ast.LangType;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Constant folding.<br>
+ *
+ * Replaces every operation whose operands are both constants with the
+ * constant dc would compute (see {@link DcArithmetic}), bottom up, so
+ * {@code 5 + 3 * 2} becomes {@code 11}. Operations are not reassociated:
+ * in {@code a + 1 + 2} nothing is constant. Divisions by zero are left to dc,
+ * which reports them at run time.<br>
+ *
+ * The pass must run after the {@code TypeCheckingVisitor}, which turns the
+ * divisions with a float operand into {@code DIV_FLOAT}.
+ */
+public class ConstantFoldingVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+    private NodeExpr result;
+    private int folded;
+
+    /**
+     * Returns the number of operations replaced by a constant.
+     *
+     * @return the number of folded operations
+     */
+    public int getFoldCount() {
+        return folded;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+
+        if (tracer.isInfo())
+            tracer.info("Constant folding: " + folded + " operations folded");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null) {
+            node.getInit().accept(this);
+            node.setInit(result);
+        }
+    }
+
+    /**
+     * Folds an operation. The left spine is walked with a loop, from the
+     * innermost operation outwards, so a chain stays constant as long as its
+     * prefix is.
+     *
+     * @param node the NodeBinOp object representing the operation
+     */
+    @Override
+    public void visit(NodeBinOp node) {
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        NodeExpr leftmost = node;
+
+        while (leftmost instanceof NodeBinOp) {
+            spine.push((NodeBinOp) leftmost);
+            leftmost = ((NodeBinOp) leftmost).getLeft();
+        }
+
+        leftmost.accept(this);
+        NodeExpr current = result;
+
+        while (!spine.isEmpty()) {
+            NodeBinOp binOp = spine.pop();
+
+            if (binOp.getRight() == binOp.getLeft())
+                result = current;
+            else
+                binOp.getRight().accept(this);
+
+            binOp.setLeft(current);
+            binOp.setRight(result);
+            current = fold(binOp);
+        }
+
+        result = current;
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+        result = node;
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+        result = node;
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        node.getExpr().accept(this);
+        node.setExpr(result);
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+    }
+
+    /**
+     * Returns the constant an operation evaluates to, or the operation itself
+     * if an operand is not constant or the operation is a division by zero.
+     */
+    private NodeExpr fold(NodeBinOp node) {
+        if (!(node.getLeft() instanceof NodeCost) || !(node.getRight() instanceof NodeCost))
+            return node;
+
+        NodeCost left = (NodeCost) node.getLeft();
+        NodeCost right = (NodeCost) node.getRight();
+        BigDecimal value = DcArithmetic.apply(node.getOp(), DcArithmetic.parse(left.getValue()),
+                DcArithmetic.parse(right.getValue()));
+
+        if (value == null)
+            return node;
+
+        LangType type = left.getType() == LangType.FLOAT || right.getType() == LangType.FLOAT ? LangType.FLOAT
+                : LangType.INT;
+
+        if (tracer.isDebug())
+            tracer.debug("Folded " + node + " into " + DcArithmetic.format(value));
+
+        folded++;
+        return new NodeCost(DcArithmetic.format(value), type);
+    }
+}
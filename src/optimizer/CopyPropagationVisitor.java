@@ -0,0 +1,170 @@
+package optimizer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Copy propagation.<br>
+ *
+ * After {@code x = y} or {@code x = 5}, the reads of {@code x} are replaced
+ * with {@code y} (or {@code 5}) until {@code x} or {@code y} is assigned
+ * again. A print still reads the variable, because it prints a register.
+ * The copies left without readers are removed by the
+ * {@link DeadStoreVisitor}.<br>
+ *
+ * A read is replaced only by a value of its own type: a float variable
+ * holding a copy of an int keeps being read, so the operations around the
+ * read keep the result type computed by the type checker.
+ */
+public class CopyPropagationVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+
+    /**
+     * Value copied into each variable.
+     */
+    private final HashMap<String, NodeExpr> copies = new HashMap<>();
+
+    /**
+     * Variables holding a copy of each variable.
+     */
+    private final HashMap<String, HashSet<String>> holders = new HashMap<>();
+    private int propagated;
+
+    /**
+     * Returns the number of reads replaced.
+     *
+     * @return the number of propagated copies
+     */
+    public int getPropagatedCount() {
+        return propagated;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+
+        if (tracer.isInfo())
+            tracer.info("Copy propagation: " + propagated + " reads replaced");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null)
+            node.setInit(propagate(node.getInit()));
+
+        assigned(node.getId().getName(), node.getInit());
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        node.setExpr(propagate(node.getExpr()));
+        assigned(node.getId().getName(), node.getExpr());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+    }
+
+    /**
+     * Kills the copies involving an assigned variable, then records the new
+     * copy if the value is a variable or a constant.
+     */
+    private void assigned(String name, NodeExpr value) {
+        NodeExpr old = copies.remove(name);
+
+        if (old instanceof NodeDeref)
+            holders.get(((NodeDeref) old).getId().getName()).remove(name);
+
+        HashSet<String> stale = holders.remove(name);
+
+        if (stale != null)
+            for (String holder : stale)
+                copies.remove(holder);
+
+        if (value instanceof NodeCost) {
+            copies.put(name, value);
+        } else if (value instanceof NodeDeref && !((NodeDeref) value).getId().getName().equals(name)) {
+            copies.put(name, value);
+            holders.computeIfAbsent(((NodeDeref) value).getId().getName(), k -> new HashSet<>()).add(name);
+        }
+    }
+
+    /**
+     * Replaces the reads of the variables holding a copy.
+     *
+     * @return the expression, or its replacement if it is a read itself
+     */
+    private NodeExpr propagate(NodeExpr root) {
+        if (!(root instanceof NodeBinOp))
+            return replacement(root);
+
+        ArrayDeque<NodeBinOp> pending = new ArrayDeque<>();
+        pending.push((NodeBinOp) root);
+
+        while (!pending.isEmpty()) {
+            NodeBinOp binOp = pending.pop();
+            boolean shared = binOp.getRight() == binOp.getLeft();
+
+            binOp.setLeft(replacement(binOp.getLeft()));
+            binOp.setRight(shared ? binOp.getLeft() : replacement(binOp.getRight()));
+
+            if (binOp.getLeft() instanceof NodeBinOp)
+                pending.push((NodeBinOp) binOp.getLeft());
+            if (!shared && binOp.getRight() instanceof NodeBinOp)
+                pending.push((NodeBinOp) binOp.getRight());
+        }
+
+        return root;
+    }
+
+    private NodeExpr replacement(NodeExpr expr) {
+        if (!(expr instanceof NodeDeref))
+            return expr;
+
+        NodeExpr copy = copies.get(((NodeDeref) expr).getId().getName());
+
+        if (copy == null || copy.getResType().getType() != expr.getResType().getType())
+            return expr;
+
+        propagated++;
+
+        NodeExpr replacement = copy instanceof NodeCost
+                ? new NodeCost(((NodeCost) copy).getValue(), ((NodeCost) copy).getType())
+                : new NodeDeref(new NodeId(((NodeDeref) copy).getId().getName()));
+        replacement.setResType(copy.getResType());
+        return replacement;
+    }
+}
@@ -0,0 +1,122 @@
+package optimizer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import ast.LangOper;
+
+/**
+ * Arithmetic of dc on literals.<br>
+ *
+ * A dc number is a decimal with a scale (the number of fraction digits), and
+ * every operator decides the scale of its result:
+ *
+ * <pre>
+ * +, -   max(sa, sb), exact
+ * *      min(sa + sb, max(k, sa, sb)), truncated
+ * /      k, truncated
+ * </pre>
+ *
+ * where {@code k} is the precision register: 0 in the generated code, 5 while
+ * a float division ({@code 5 k / 0 k}) is computed. Truncation is toward
+ * zero. The results are those dc would print, digit by digit.
+ */
+public final class DcArithmetic {
+    /**
+     * Precision of the float division.
+     */
+    public static final int FLOAT_SCALE = 5;
+
+    /**
+     * Length of the lines printed by dc, backslash included.
+     */
+    public static final int LINE_LENGTH = 70;
+
+    private DcArithmetic() {
+    }
+
+    /**
+     * Parses a literal of the language or of dc ({@code _} for the minus sign).
+     *
+     * @param literal the literal
+     * @return its value, with the scale written in the literal
+     */
+    public static BigDecimal parse(String literal) {
+        return new BigDecimal(literal.startsWith("_") ? "-" + literal.substring(1) : literal);
+    }
+
+    /**
+     * Formats a value as a literal, keeping all its fraction digits (trailing
+     * zeros included, because they are part of the scale).
+     *
+     * @param value the value
+     * @return the literal, with a leading minus sign if negative
+     */
+    public static String format(BigDecimal value) {
+        return value.toPlainString();
+    }
+
+    /**
+     * Applies an operator as dc does with the precision register at 0.
+     *
+     * @param op    the operator
+     * @param left  the left operand
+     * @param right the right operand
+     * @return the result, or null for a division by zero (dc reports an error
+     *         at run time, so the operation must not be folded)
+     */
+    public static BigDecimal apply(LangOper op, BigDecimal left, BigDecimal right) {
+        switch (op) {
+            case PLUS:
+                return left.add(right);
+            case MINUS:
+                return left.subtract(right);
+            case TIMES:
+                return left.multiply(right).setScale(Math.max(left.scale(), right.scale()), RoundingMode.DOWN);
+            case DIV:
+                return right.signum() == 0 ? null : left.divide(right, 0, RoundingMode.DOWN);
+            case DIV_FLOAT:
+                return right.signum() == 0 ? null : left.divide(right, FLOAT_SCALE, RoundingMode.DOWN);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Formats a value as dc's {@code p} prints it: a minus sign for negative
+     * values, no integer digits if the integer part is 0 ({@code .5}), all
+     * the fraction digits of the scale, and {@code 0} for zero at any scale.
+     * Lines longer than {@value #LINE_LENGTH} characters are split with a
+     * backslash.
+     *
+     * @param value the value
+     * @return the text printed by dc, without the final newline
+     */
+    public static String display(BigDecimal value) {
+        if (value.signum() == 0)
+            return "0";
+
+        String digits = value.unscaledValue().abs().toString();
+        int scale = value.scale();
+
+        if (digits.length() < scale)
+            digits = "0".repeat(scale - digits.length()) + digits;
+
+        String integer = digits.substring(0, digits.length() - scale);
+        String text = (value.signum() < 0 ? "-" : "") + integer
+                + (scale > 0 ? "." + digits.substring(digits.length() - scale) : "");
+
+        if (text.length() < LINE_LENGTH)
+            return text;
+
+        StringBuilder lines = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i += LINE_LENGTH - 1) {
+            if (i > 0)
+                lines.append("\\\n");
+            lines.append(text, i, Math.min(text.length(), i + LINE_LENGTH - 1));
+        }
+
+        return lines.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Dead store and dead declaration elimination.<br>
+ *
+ * The only observable effect of a program is what it prints, so a variable is
+ * live at a statement if its current value reaches a print, directly or
+ * through the expressions of live stores. The statements are walked backwards
+ * with the set of live variables: an assignment to a variable that is not
+ * live is removed, a dead initialization is dropped from its declaration, and
+ * a declaration whose variable is no longer used anywhere is removed.<br>
+ *
+ * A store whose expression contains a division that may fail is kept, so dc
+ * still reports the division by zero.
+ */
+public class DeadStoreVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+    private final HashSet<String> live = new HashSet<>();
+    private final HashSet<String> used = new HashSet<>();
+    private boolean keep;
+    private int removedStores;
+    private int removedDeclarations;
+
+    /**
+     * Returns the number of assignments and initializations removed.
+     *
+     * @return the number of dead stores
+     */
+    public int getRemovedStores() {
+        return removedStores;
+    }
+
+    /**
+     * Returns the number of declarations removed.
+     *
+     * @return the number of dead declarations
+     */
+    public int getRemovedDeclarations() {
+        return removedDeclarations;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        List<NodeDecSt> kept = new ArrayList<>();
+
+        for (int i = node.getDecSts().size() - 1; i >= 0; i--) {
+            NodeDecSt dec = node.getDecSts().get(i);
+            dec.accept(this);
+
+            if (keep)
+                kept.add(dec);
+        }
+
+        Collections.reverse(kept);
+        node.getDecSts().clear();
+        node.getDecSts().addAll(kept);
+
+        if (tracer.isInfo())
+            tracer.info("Dead stores: " + removedStores + " stores and " + removedDeclarations
+                    + " declarations removed");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        String name = node.getId().getName();
+
+        if (node.getInit() != null && !store(name, node.getInit())) {
+            if (tracer.isDebug())
+                tracer.debug("Dead initialization of " + name);
+
+            node.setInit(null);
+            removedStores++;
+        }
+
+        live.remove(name);
+        keep = used.contains(name);
+
+        if (!keep) {
+            if (tracer.isDebug())
+                tracer.debug("Dead declaration of " + name);
+
+            removedDeclarations++;
+        }
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        keep = store(node.getId().getName(), node.getExpr());
+
+        if (!keep) {
+            if (tracer.isDebug())
+                tracer.debug("Dead store to " + node.getId().getName());
+
+            removedStores++;
+        }
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        live.add(node.getId().getName());
+        used.add(node.getId().getName());
+        keep = true;
+    }
+
+    /**
+     * Decides whether a store is kept, updating the live variables.
+     *
+     * @return false if the stored value is never observed
+     */
+    private boolean store(String name, NodeExpr expr) {
+        if (!live.remove(name) && Expressions.safe(expr))
+            return false;
+
+        used.add(name);
+        Expressions.forEachRead(expr, deref -> {
+            live.add(deref.getId().getName());
+            used.add(deref.getId().getName());
+        });
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package optimizer;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+import ast.LangOper;
+import ast.LangType;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.TypeTd;
+
+/**
+ * Queries on expressions shared by the optimization passes. Trees are walked
+ * with an explicit stack, and an operand shared by both sides of an operation
+ * is walked once.
+ */
+final class Expressions {
+
+    private Expressions() {
+    }
+
+    /**
+     * Checks whether an expression has type int, as decided by the type
+     * checking.
+     */
+    static boolean isInt(NodeExpr expr) {
+        if (expr instanceof NodeCost)
+            return ((NodeCost) expr).getType() == LangType.INT;
+
+        return expr.getResType() != null && expr.getResType().getType() == TypeTd.INT;
+    }
+
+    /**
+     * Checks that evaluating an expression cannot fail: every division in it
+     * has a nonzero constant divisor.
+     */
+    static boolean safe(NodeExpr expr) {
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            NodeExpr current = pending.pop();
+
+            if (!(current instanceof NodeBinOp))
+                continue;
+
+            NodeBinOp binOp = (NodeBinOp) current;
+
+            if (binOp.getOp() == LangOper.DIV || binOp.getOp() == LangOper.DIV_FLOAT) {
+                if (!(binOp.getRight() instanceof NodeCost)
+                        || DcArithmetic.parse(((NodeCost) binOp.getRight()).getValue()).signum() == 0)
+                    return false;
+            }
+
+            pending.push(binOp.getLeft());
+            if (binOp.getRight() != binOp.getLeft())
+                pending.push(binOp.getRight());
+        }
+
+        return true;
+    }
+
+    /**
+     * Calls an action on every variable read by an expression.
+     */
+    static void forEachRead(NodeExpr expr, Consumer<NodeDeref> action) {
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            NodeExpr current = pending.pop();
+
+            if (current instanceof NodeDeref) {
+                action.accept((NodeDeref) current);
+            } else if (current instanceof NodeBinOp) {
+                NodeBinOp binOp = (NodeBinOp) current;
+
+                pending.push(binOp.getLeft());
+                if (binOp.getRight() != binOp.getLeft())
+                    pending.push(binOp.getRight());
+            }
+        }
+    }
+
+    /**
+     * Counts the nodes of an expression.
+     */
+    static int size(NodeExpr expr) {
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+        int size = 0;
+
+        while (!pending.isEmpty()) {
+            NodeExpr current = pending.pop();
+            size++;
+
+            if (current instanceof NodeBinOp) {
+                NodeBinOp binOp = (NodeBinOp) current;
+
+                pending.push(binOp.getLeft());
+                if (binOp.getRight() != binOp.getLeft())
+                    pending.push(binOp.getRight());
+            }
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,40 @@
+package optimizer;
+
+/**
+ * Presets of optimization passes, from the fastest compilation to the
+ * shortest code (see {@link PassManager#forLevel(OptimizationLevel)}).
+ */
+public enum OptimizationLevel {
+    /**
+     * No optimization: the type-checked AST goes straight to the code
+     * generator.
+     */
+    O0,
+
+    /**
+     * The AST passes: copy propagation, constant folding, simplification,
+     * common subexpressions and dead stores.
+     */
+    O1,
+
+    /**
+     * The AST passes, then the program is translated to the intermediate
+     * representation and optimized again there: constant folding, value
+     * numbering and dead code elimination.
+     */
+    O2;
+
+    /**
+     * Reads a level from a command line argument such as {@code -O2}.
+     *
+     * @param argument the argument
+     * @return the level, or null if the argument is not a level
+     */
+    public static OptimizationLevel fromArgument(String argument) {
+        for (OptimizationLevel level : values())
+            if (argument.equals("-" + level.name()))
+                return level;
+
+        return null;
+    }
+}
@@ -0,0 +1,302 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ast.NodeAssign;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeProgram;
+import exception.IrException;
+import ir.IrBuilder;
+import ir.IrConstantFolding;
+import ir.IrDeadCodeElimination;
+import ir.IrPass;
+import ir.IrProgram;
+import ir.IrValueNumbering;
+import ir.IrVerifier;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Runs the optimization passes of a compilation.<br>
+ *
+ * Passes are registered by name, each with the names of the passes that must
+ * run before it; {@link #getOrder()} sorts them topologically, keeping the
+ * order of registration among passes that do not depend on each other. The
+ * AST passes run first, on the type-checked {@link NodeProgram}. If IR passes
+ * are registered, the program is then translated to an {@link IrProgram},
+ * which the IR passes transform and the {@link IrVerifier} checks after each
+ * of them.<br>
+ *
+ * Every pass is timed, and the size of the program (AST nodes or IR
+ * instructions) is measured before and after it; {@link #getStatistics()}
+ * returns the measures of the last run.
+ */
+public class PassManager {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+
+    /**
+     * Name under which the translation to the IR is measured.
+     */
+    public static final String IR_BUILDER = "ir-builder";
+
+    private final List<Registration> passes = new ArrayList<>();
+    private final HashMap<String, Registration> byName = new HashMap<>();
+    private final List<PassStatistics> statistics = new ArrayList<>();
+
+    private static final class Registration {
+        final String name;
+        final int index;
+        final IVisitor astPass;
+        final IrPass irPass;
+        final String[] dependencies;
+
+        Registration(String name, int index, IVisitor astPass, IrPass irPass, String[] dependencies) {
+            this.name = name;
+            this.index = index;
+            this.astPass = astPass;
+            this.irPass = irPass;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Creates the pass manager of an optimization level.<br>
+     *
+     * {@code -O0} has no passes. {@code -O1} has the AST passes: copy
+     * propagation, constant folding, simplification, common subexpressions
+     * and dead stores. {@code -O2} adds constant folding, value numbering and
+     * dead code elimination over the intermediate representation.
+     *
+     * @param level the optimization level
+     * @return a new pass manager
+     */
+    public static PassManager forLevel(OptimizationLevel level) {
+        PassManager manager = new PassManager();
+
+        if (level == OptimizationLevel.O0)
+            return manager;
+
+        manager.addAstPass("copy-propagation", new CopyPropagationVisitor());
+        manager.addAstPass("constant-folding", new ConstantFoldingVisitor(), "copy-propagation");
+        manager.addAstPass("simplification", new SimplificationVisitor(), "constant-folding");
+        manager.addAstPass("common-subexpressions", new CommonSubexpressionVisitor(), "simplification");
+        manager.addAstPass("dead-stores", new DeadStoreVisitor(), "copy-propagation", "common-subexpressions");
+
+        if (level == OptimizationLevel.O1)
+            return manager;
+
+        manager.addIrPass("ir-constant-folding", new IrConstantFolding());
+        manager.addIrPass("ir-value-numbering", new IrValueNumbering(), "ir-constant-folding");
+        manager.addIrPass("ir-dead-code", new IrDeadCodeElimination(), "ir-value-numbering");
+        return manager;
+    }
+
+    /**
+     * Registers a pass over the AST.
+     *
+     * @param name         the name of the pass
+     * @param pass         the visitor transforming the program
+     * @param dependencies the names of the passes that must run before
+     * @throws IllegalArgumentException if the name is already registered
+     */
+    public void addAstPass(String name, IVisitor pass, String... dependencies) {
+        register(new Registration(name, passes.size(), pass, null, dependencies));
+    }
+
+    /**
+     * Registers a pass over the intermediate representation.
+     *
+     * @param name         the name of the pass
+     * @param pass         the pass
+     * @param dependencies the names of the passes that must run before
+     * @throws IllegalArgumentException if the name is already registered
+     */
+    public void addIrPass(String name, IrPass pass, String... dependencies) {
+        register(new Registration(name, passes.size(), null, pass, dependencies));
+    }
+
+    /**
+     * Checks whether the program is translated to the intermediate
+     * representation, that is whether IR passes are registered.
+     *
+     * @return true if {@link #run(NodeProgram)} returns an IR program
+     */
+    public boolean hasIrPasses() {
+        for (Registration pass : passes)
+            if (pass.irPass != null)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Returns the names of the passes in the order they run.
+     *
+     * @return the sorted names
+     * @throws IllegalStateException if a dependency is not registered, is
+     *                               circular, or makes an AST pass wait for
+     *                               an IR pass
+     */
+    public List<String> getOrder() {
+        List<String> names = new ArrayList<>();
+
+        for (Registration pass : sort())
+            names.add(pass.name);
+
+        return names;
+    }
+
+    /**
+     * Runs the passes on a type-checked program.
+     *
+     * @param program the program, transformed in place by the AST passes
+     * @return the optimized intermediate representation of the program, or
+     *         null if there are no IR passes
+     * @throws IrException if the IR built or rewritten breaks an invariant
+     */
+    public IrProgram run(NodeProgram program) throws IrException {
+        List<Registration> order = sort();
+        statistics.clear();
+        IrProgram ir = null;
+
+        for (Registration pass : order) {
+            if (pass.astPass != null) {
+                int before = size(program);
+                long start = System.nanoTime();
+                program.accept(pass.astPass);
+                record(pass.name, System.nanoTime() - start, before, size(program), false);
+                continue;
+            }
+
+            if (ir == null) {
+                int before = size(program);
+                long start = System.nanoTime();
+                IrBuilder builder = new IrBuilder();
+                program.accept(builder);
+                ir = builder.getProgram();
+                IrVerifier.verify(ir);
+                record(IR_BUILDER, System.nanoTime() - start, before, ir.size(), true);
+            }
+
+            int before = ir.size();
+            long start = System.nanoTime();
+            pass.irPass.run(ir);
+            IrVerifier.verify(ir);
+            record(pass.name, System.nanoTime() - start, before, ir.size(), true);
+        }
+
+        return ir;
+    }
+
+    /**
+     * Returns the measures of the passes of the last run, in order. The
+     * translation to the IR, if any, is measured as {@value #IR_BUILDER}.
+     *
+     * @return the statistics of each pass
+     */
+    public List<PassStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Returns the total time of the last run.
+     *
+     * @return the nanoseconds spent in the passes
+     */
+    public long getTotalNanos() {
+        long total = 0;
+
+        for (PassStatistics pass : statistics)
+            total += pass.getNanos();
+
+        return total;
+    }
+
+    private void register(Registration pass) {
+        if (byName.containsKey(pass.name))
+            throw new IllegalArgumentException("Pass " + pass.name + " already registered");
+
+        passes.add(pass);
+        byName.put(pass.name, pass);
+    }
+
+    /**
+     * Kahn's algorithm, taking among the passes ready to run the AST passes
+     * first, then the one registered first.
+     */
+    private List<Registration> sort() {
+        HashMap<Registration, Integer> waiting = new HashMap<>();
+        HashMap<Registration, List<Registration>> dependents = new HashMap<>();
+
+        for (Registration pass : passes) {
+            waiting.put(pass, pass.dependencies.length);
+
+            for (String name : pass.dependencies) {
+                Registration dependency = byName.get(name);
+
+                if (dependency == null)
+                    throw new IllegalStateException("Pass " + pass.name + " depends on unknown pass " + name);
+                if (pass.astPass != null && dependency.irPass != null)
+                    throw new IllegalStateException("AST pass " + pass.name + " depends on IR pass " + name);
+
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(pass);
+            }
+        }
+
+        PriorityQueue<Registration> ready = new PriorityQueue<>((a, b) -> a.astPass != null && b.astPass == null ? -1
+                : a.astPass == null && b.astPass != null ? 1 : Integer.compare(a.index, b.index));
+        List<Registration> order = new ArrayList<>();
+
+        for (Registration pass : passes)
+            if (waiting.get(pass) == 0)
+                ready.add(pass);
+
+        while (!ready.isEmpty()) {
+            Registration pass = ready.poll();
+            order.add(pass);
+
+            for (Registration dependent : dependents.getOrDefault(pass, List.of()))
+                if (waiting.merge(dependent, -1, Integer::sum) == 0)
+                    ready.add(dependent);
+        }
+
+        if (order.size() < passes.size())
+            throw new IllegalStateException("Circular dependencies between the passes");
+
+        return order;
+    }
+
+    private void record(String name, long nanos, int before, int after, boolean ir) {
+        PassStatistics pass = new PassStatistics(name, nanos, before, after, ir);
+        statistics.add(pass);
+
+        if (tracer.isInfo())
+            tracer.info("Pass " + pass);
+    }
+
+    /**
+     * Counts the nodes of a program: one per declaration or statement, plus
+     * the nodes of its expression.
+     */
+    private static int size(NodeProgram program) {
+        int size = 0;
+
+        for (NodeDecSt dec : program.getDecSts()) {
+            size++;
+
+            if (dec instanceof NodeDecl && ((NodeDecl) dec).getInit() != null)
+                size += Expressions.size(((NodeDecl) dec).getInit());
+            else if (dec instanceof NodeAssign)
+                size += Expressions.size(((NodeAssign) dec).getExpr());
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,58 @@
+package optimizer;
+
+/**
+ * What a pass cost and what it did: the time it took and the size of the
+ * program before and after it, in AST nodes for the AST passes and in
+ * instructions for the passes over the intermediate representation.
+ */
+public final class PassStatistics {
+    private final String name;
+    private final long nanos;
+    private final int sizeBefore;
+    private final int sizeAfter;
+    private final boolean ir;
+
+    PassStatistics(String name, long nanos, int sizeBefore, int sizeAfter, boolean ir) {
+        this.name = name;
+        this.nanos = nanos;
+        this.sizeBefore = sizeBefore;
+        this.sizeAfter = sizeAfter;
+        this.ir = ir;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the time spent in the pass.
+     *
+     * @return the elapsed nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getSizeBefore() {
+        return sizeBefore;
+    }
+
+    public int getSizeAfter() {
+        return sizeAfter;
+    }
+
+    /**
+     * Checks whether the sizes count IR instructions rather than AST nodes.
+     *
+     * @return true for a pass over the intermediate representation
+     */
+    public boolean isIr() {
+        return ir;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s %9.3f ms %8d -> %-8d %s", name, nanos / 1e6, sizeBefore, sizeAfter,
+                ir ? "instructions" : "nodes");
+    }
+}
@@ -0,0 +1,122 @@
+package optimizer;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Polynomial with integer coefficients over the variables {@code x0},
+ * {@code x1}, ..., the exact value of an integer expression built with
+ * {@code +}, {@code -} and {@code *}. Two such expressions are equivalent
+ * exactly when their polynomials are equal. Instances are immutable.
+ */
+final class Polynomial {
+    /**
+     * Coefficient of each monomial, the monomial written as the exponents of
+     * the variables separated by commas ({@code "2,0,1"} is
+     * {@code x0^2 x2}). Zero coefficients are not stored.
+     */
+    private final TreeMap<String, BigInteger> terms;
+    private final int variables;
+
+    private Polynomial(TreeMap<String, BigInteger> terms, int variables) {
+        this.terms = terms;
+        this.variables = variables;
+    }
+
+    static Polynomial constant(BigInteger value, int variables) {
+        TreeMap<String, BigInteger> terms = new TreeMap<>();
+
+        if (value.signum() != 0)
+            terms.put(monomial(new int[variables]), value);
+
+        return new Polynomial(terms, variables);
+    }
+
+    static Polynomial variable(int index, int variables) {
+        int[] exponents = new int[variables];
+        exponents[index] = 1;
+        TreeMap<String, BigInteger> terms = new TreeMap<>();
+        terms.put(monomial(exponents), BigInteger.ONE);
+        return new Polynomial(terms, variables);
+    }
+
+    Polynomial add(Polynomial other) {
+        TreeMap<String, BigInteger> sum = new TreeMap<>(terms);
+
+        for (Map.Entry<String, BigInteger> term : other.terms.entrySet())
+            put(sum, term.getKey(), term.getValue());
+
+        return new Polynomial(sum, variables);
+    }
+
+    Polynomial subtract(Polynomial other) {
+        TreeMap<String, BigInteger> difference = new TreeMap<>(terms);
+
+        for (Map.Entry<String, BigInteger> term : other.terms.entrySet())
+            put(difference, term.getKey(), term.getValue().negate());
+
+        return new Polynomial(difference, variables);
+    }
+
+    Polynomial multiply(Polynomial other) {
+        TreeMap<String, BigInteger> product = new TreeMap<>();
+
+        for (Map.Entry<String, BigInteger> left : terms.entrySet()) {
+            int[] a = exponents(left.getKey());
+
+            for (Map.Entry<String, BigInteger> right : other.terms.entrySet()) {
+                int[] b = exponents(right.getKey());
+                int[] c = new int[variables];
+
+                for (int i = 0; i < variables; i++)
+                    c[i] = a[i] + b[i];
+
+                put(product, monomial(c), left.getValue().multiply(right.getValue()));
+            }
+        }
+
+        return new Polynomial(product, variables);
+    }
+
+    private static void put(TreeMap<String, BigInteger> terms, String monomial, BigInteger coefficient) {
+        BigInteger sum = terms.getOrDefault(monomial, BigInteger.ZERO).add(coefficient);
+
+        if (sum.signum() == 0)
+            terms.remove(monomial);
+        else
+            terms.put(monomial, sum);
+    }
+
+    private static String monomial(int[] exponents) {
+        StringBuilder key = new StringBuilder();
+
+        for (int i = 0; i < exponents.length; i++)
+            key.append(i == 0 ? "" : ",").append(exponents[i]);
+
+        return key.toString();
+    }
+
+    private int[] exponents(String monomial) {
+        if (variables == 0)
+            return new int[0];
+
+        return Arrays.stream(monomial.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Polynomial && terms.equals(((Polynomial) other).terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return terms.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package optimizer;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import emitter.DcEmitter;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Whole-program evaluation.<br>
+ *
+ * A program has no input and no control flow, so what it prints is known at
+ * compile time. The evaluator runs the type-checked program with the
+ * arithmetic of dc ({@link DcArithmetic}: integer divisions truncated, float
+ * divisions with 5 decimals, every value with its dc scale) and records the
+ * printed values; {@link #emit(DcEmitter)} then writes only the code printing
+ * them, {@code 42 p P 3.00000 p P}. A variable declared without a value reads
+ * 0, as an empty dc register.<br>
+ *
+ * A division by zero makes dc report an error and go on with the operands
+ * left on its stack, which the evaluator does not reproduce: it stops, and
+ * {@link #isEvaluated()} tells the program must be compiled normally.
+ */
+public class ProgramEvaluator implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+    private final HashMap<String, BigDecimal> values = new HashMap<>();
+    private final List<BigDecimal> printed = new ArrayList<>();
+    private boolean failed;
+
+    /**
+     * Checks whether the whole program was evaluated, that is whether it
+     * divides by zero nowhere.
+     *
+     * @return true if {@link #emit(DcEmitter)} reproduces the program output
+     */
+    public boolean isEvaluated() {
+        return !failed;
+    }
+
+    /**
+     * Returns the values printed by the program, as dc literals.
+     *
+     * @return the printed values, in order
+     */
+    public List<String> getPrinted() {
+        List<String> literals = new ArrayList<>();
+
+        for (BigDecimal value : printed)
+            literals.add(DcArithmetic.format(value));
+
+        return Collections.unmodifiableList(literals);
+    }
+
+    /**
+     * Writes the code printing the values printed by the program.
+     *
+     * @param emitter the emitter receiving the code
+     * @throws IllegalStateException if the program was not evaluated
+     */
+    public void emit(DcEmitter emitter) {
+        if (failed)
+            throw new IllegalStateException("The program divides by zero and was not evaluated");
+
+        for (String literal : getPrinted()) {
+            emitter.number(literal);
+            emitter.print();
+        }
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts()) {
+            dec.accept(this);
+
+            if (failed) {
+                if (tracer.isInfo())
+                    tracer.info("Evaluation stopped at a division by zero: " + dec);
+                return;
+            }
+        }
+
+        if (tracer.isInfo())
+            tracer.info("Program evaluated: " + printed.size() + " values printed");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null)
+            assign(node.getId().getName(), node.getInit());
+        else
+            values.put(node.getId().getName(), BigDecimal.ZERO);
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        assign(node.getId().getName(), node.getExpr());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        printed.add(values.getOrDefault(node.getId().getName(), BigDecimal.ZERO));
+    }
+
+    private void assign(String name, NodeExpr expr) {
+        BigDecimal value = evaluate(expr);
+
+        if (value == null)
+            failed = true;
+        else
+            values.put(name, value);
+    }
+
+    /**
+     * Computes the value of an expression in post-order with an explicit
+     * stack; a node shared by both sides of an operation is computed once.
+     *
+     * @return the value, or null if a division by zero is reached
+     */
+    private BigDecimal evaluate(NodeExpr root) {
+        IdentityHashMap<NodeExpr, BigDecimal> computed = new IdentityHashMap<>();
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.peek();
+
+            if (computed.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+
+            if (node instanceof NodeCost) {
+                pending.pop();
+                computed.put(node, DcArithmetic.parse(((NodeCost) node).getValue()));
+                continue;
+            }
+
+            if (node instanceof NodeDeref) {
+                pending.pop();
+                computed.put(node, values.getOrDefault(((NodeDeref) node).getId().getName(), BigDecimal.ZERO));
+                continue;
+            }
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!computed.containsKey(binOp.getLeft()) || !computed.containsKey(binOp.getRight())) {
+                if (!computed.containsKey(binOp.getRight()))
+                    pending.push(binOp.getRight());
+                if (!computed.containsKey(binOp.getLeft()))
+                    pending.push(binOp.getLeft());
+                continue;
+            }
+
+            pending.pop();
+            BigDecimal value = DcArithmetic.apply(binOp.getOp(), computed.get(binOp.getLeft()),
+                    computed.get(binOp.getRight()));
+
+            if (value == null)
+                return null;
+
+            computed.put(node, value);
+        }
+
+        return computed.get(root);
+    }
+}
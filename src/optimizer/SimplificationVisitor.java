@@ -0,0 +1,227 @@
+package optimizer;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+
+import ast.LangOper;
+import ast.LangType;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.TypeDescriptor;
+import ast.TypeTd;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+import visitor.IVisitor;
+
+/**
+ * Algebraic simplification and strength reduction.<br>
+ *
+ * Rewrites, bottom up:
+ *
+ * <pre>
+ * x * 1, 1 * x, x + 0, 0 + x, x - 0   x
+ * x / 1                               x        (integer division)
+ * x * 0, 0 * x                        0        (x int)
+ * x - x                               0        (x int variable)
+ * x * 2, 2 * x                        x + x    (x evaluated once: x d +)
+ * </pre>
+ *
+ * The constants must be integer literals: with dc's scale rules
+ * {@code x * 1.0} or {@code x + 0.0} may change the scale of {@code x}, and so
+ * its printed digits, and a float division always has scale 5. For the same
+ * reason the rules producing {@code 0} only apply when {@code x} is an
+ * integer, whose scale is 0. An operand is dropped only if evaluating it
+ * cannot fail, that is if it contains no division by a non-constant or zero
+ * divisor.<br>
+ *
+ * The pass uses the types stored in the nodes by the
+ * {@code TypeCheckingVisitor}, so it must run after it.
+ */
+public class SimplificationVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+    private NodeExpr result;
+    private int rewritten;
+
+    /**
+     * Returns the number of operations rewritten.
+     *
+     * @return the number of rules applied
+     */
+    public int getRewriteCount() {
+        return rewritten;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+
+        if (tracer.isInfo())
+            tracer.info("Simplification: " + rewritten + " operations rewritten");
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null) {
+            node.getInit().accept(this);
+            node.setInit(result);
+        }
+    }
+
+    /**
+     * Simplifies an operation. The left spine is walked with a loop, from the
+     * innermost operation outwards.
+     *
+     * @param node the NodeBinOp object representing the operation
+     */
+    @Override
+    public void visit(NodeBinOp node) {
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        NodeExpr leftmost = node;
+
+        while (leftmost instanceof NodeBinOp) {
+            spine.push((NodeBinOp) leftmost);
+            leftmost = ((NodeBinOp) leftmost).getLeft();
+        }
+
+        leftmost.accept(this);
+        NodeExpr current = result;
+
+        while (!spine.isEmpty()) {
+            NodeBinOp binOp = spine.pop();
+
+            if (binOp.getRight() == binOp.getLeft())
+                result = current;
+            else
+                binOp.getRight().accept(this);
+
+            binOp.setLeft(current);
+            binOp.setRight(result);
+            current = simplify(binOp);
+        }
+
+        result = current;
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+        result = node;
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+        result = node;
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        node.getExpr().accept(this);
+        node.setExpr(result);
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+    }
+
+    /**
+     * Applies the first rule matching an operation.
+     *
+     * @return the replacement, or the operation itself
+     */
+    private NodeExpr simplify(NodeBinOp node) {
+        NodeExpr left = node.getLeft();
+        NodeExpr right = node.getRight();
+        NodeExpr simplified = null;
+
+        switch (node.getOp()) {
+            case PLUS:
+                if (isInteger(right, 0))
+                    simplified = left;
+                else if (isInteger(left, 0))
+                    simplified = right;
+                break;
+            case MINUS:
+                if (isInteger(right, 0))
+                    simplified = left;
+                else if (Expressions.isInt(left) && Expressions.safe(left) && sameValue(left, right))
+                    simplified = zero();
+                break;
+            case TIMES:
+                if (isInteger(right, 1))
+                    simplified = left;
+                else if (isInteger(left, 1))
+                    simplified = right;
+                else if (isInteger(right, 0) && Expressions.isInt(left) && Expressions.safe(left)
+                        || isInteger(left, 0) && Expressions.isInt(right) && Expressions.safe(right))
+                    simplified = zero();
+                else if (isInteger(right, 2))
+                    simplified = twice(left);
+                else if (isInteger(left, 2))
+                    simplified = twice(right);
+                break;
+            case DIV:
+                if (isInteger(right, 1))
+                    simplified = left;
+                break;
+            default:
+                break;
+        }
+
+        if (simplified == null)
+            return node;
+
+        if (tracer.isDebug())
+            tracer.debug("Simplified " + node + " into " + simplified);
+
+        rewritten++;
+        return simplified;
+    }
+
+    /**
+     * Checks whether an expression is an integer literal with a given value.
+     */
+    private static boolean isInteger(NodeExpr expr, int value) {
+        if (!(expr instanceof NodeCost) || ((NodeCost) expr).getType() != LangType.INT)
+            return false;
+
+        BigDecimal literal = DcArithmetic.parse(((NodeCost) expr).getValue());
+        return literal.scale() == 0 && literal.compareTo(BigDecimal.valueOf(value)) == 0;
+    }
+
+    /**
+     * Checks whether two expressions are the same node or read the same
+     * variable.
+     */
+    private static boolean sameValue(NodeExpr left, NodeExpr right) {
+        return left == right || left instanceof NodeDeref && right instanceof NodeDeref
+                && ((NodeDeref) left).getId().getName().equals(((NodeDeref) right).getId().getName());
+    }
+
+    private static NodeExpr zero() {
+        NodeCost zero = new NodeCost("0", LangType.INT);
+        zero.setResType(new TypeDescriptor(TypeTd.INT));
+        return zero;
+    }
+
+    /**
+     * Builds {@code x + x} with both operands the same node.
+     */
+    private static NodeExpr twice(NodeExpr expr) {
+        NodeBinOp sum = new NodeBinOp(LangOper.PLUS, expr, expr);
+        sum.setResType(new TypeDescriptor(Expressions.isInt(expr) ? TypeTd.INT : TypeTd.FLOAT));
+        return sum;
+    }
+}
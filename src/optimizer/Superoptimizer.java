@@ -0,0 +1,717 @@
+package optimizer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import ast.LangOper;
+import ast.LangType;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.TypeTd;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+
+/**
+ * Superoptimizer of small integer expressions.<br>
+ *
+ * An int expression of {@code +}, {@code -} and {@code *} with at most
+ * {@value #MAX_LEAVES} leaves is reduced to its shape: the prefix form of the
+ * tree with the variables renamed {@code x0}, {@code x1}, ... in order of
+ * appearance and the constants written {@code #n}, so {@code a * b + a * c}
+ * is {@code + * x0 x1 * x0 x2}. For each shape, a breadth-first search over
+ * the dc sequences of variable loads, constants of the expression, {@code d},
+ * {@code r}, {@code +}, {@code -} and {@code *} finds the shortest sequence
+ * leaving the value of the expression on the stack ({@code x0 x1 x2 + *}).
+ * <br>
+ *
+ * Integer arithmetic in dc is exact at any precision, so the value of such a
+ * sequence is a polynomial of the variables. The stacks reached are
+ * identified by their values at a few random points modulo a prime, and
+ * stacks with the same values are explored once; a sequence found this way is
+ * accepted only if its exact {@link Polynomial} is the one of the
+ * expression. A search stops after {@value #MAX_STATES} stacks.<br>
+ *
+ * The results, including the shapes with no shorter sequence, are cached by
+ * shape; {@link #load(Path)} and {@link #save(Path)} keep the cache between
+ * compilations, so each shape is searched once.
+ */
+public class Superoptimizer {
+    private static final Tracer tracer = Trace.tracer(Phase.OPTIMIZER);
+
+    /**
+     * Maximum number of leaves of the expressions optimized.
+     */
+    public static final int MAX_LEAVES = 6;
+
+    /**
+     * Maximum number of stacks explored by a search.
+     */
+    public static final int MAX_STATES = 200_000;
+
+    private static final int MAX_HEIGHT = 4;
+    private static final long PRIME = 2_147_483_647L;
+    private static final int POINTS = 6;
+    private static final long SEED = 0x5eedL;
+    private static final String[] COMMANDS = { "d", "r", "+", "-", "*" };
+
+    private final HashMap<String, List<String>> cache = new HashMap<>();
+    private int searches;
+    private int hits;
+    private int applied;
+
+    /**
+     * A sequence replacing an expression. The instructions are {@code xi}
+     * (push the variable {@code i}, see {@link #getVariable(int)}),
+     * {@code #n} (push the integer {@code n}), {@code d}, {@code r},
+     * {@code +}, {@code -} and {@code *}.
+     */
+    public static final class Sequence {
+        private final List<String> instructions;
+        private final List<NodeDeref> variables;
+
+        private Sequence(List<String> instructions, List<NodeDeref> variables) {
+            this.instructions = instructions;
+            this.variables = variables;
+        }
+
+        public List<String> getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * Returns a read of a variable of the expression.
+         *
+         * @param index the number of the variable in the shape
+         * @return a read of the variable {@code x<index>}
+         */
+        public NodeDeref getVariable(int index) {
+            return variables.get(index);
+        }
+    }
+
+    /**
+     * The shape of an expression and what the code generator would emit for
+     * it.
+     */
+    private static final class Shape {
+        final List<String> prefix = new ArrayList<>();
+        final List<NodeDeref> variables = new ArrayList<>();
+        final HashMap<String, Integer> names = new HashMap<>();
+        final List<BigInteger> constants = new ArrayList<>();
+
+        String key() {
+            return String.join(" ", prefix);
+        }
+    }
+
+    /**
+     * Finds a shorter sequence for an expression, searching its shape if it
+     * is not in the cache.
+     *
+     * @param expr the expression
+     * @return the sequence, or null if the expression is not a small integer
+     *         expression or no sequence is shorter than the code generated
+     *         for it
+     */
+    public Sequence optimize(NodeBinOp expr) {
+        Shape shape = shape(expr);
+
+        if (shape == null)
+            return null;
+
+        String key = shape.key();
+        List<String> best = cache.get(key);
+
+        if (best != null) {
+            hits++;
+        } else {
+            searches++;
+            best = search(shape);
+            cache.put(key, best);
+
+            if (tracer.isDebug())
+                tracer.debug("Superoptimized " + key + ": " + (best.isEmpty() ? "no shorter sequence" : best));
+        }
+
+        if (best.isEmpty() || best.size() >= codeSize(expr))
+            return null;
+
+        applied++;
+        return new Sequence(best, shape.variables);
+    }
+
+    /**
+     * Returns the number of shapes searched, that is not found in the cache.
+     *
+     * @return the number of searches
+     */
+    public int getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * Returns the number of shapes found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of expressions replaced with a shorter sequence.
+     *
+     * @return the number of optimized expressions
+     */
+    public int getAppliedCount() {
+        return applied;
+    }
+
+    /**
+     * Returns the number of shapes in the cache.
+     *
+     * @return the size of the cache
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Adds to the cache the shapes saved in a file, one per line: the shape,
+     * a tab and the instructions of the sequence (nothing if there is no
+     * shorter sequence). A line whose sequence is malformed or does not
+     * compute its shape exactly is dropped, so an edited or stale file
+     * cannot change the generated code.
+     *
+     * @param file the cache file
+     * @throws IOException if the file cannot be read
+     */
+    public void load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                int tab = line.indexOf('\t');
+
+                if (tab < 0)
+                    continue;
+
+                String key = line.substring(0, tab);
+                String sequence = line.substring(tab + 1).strip();
+                List<String> instructions = sequence.isEmpty() ? List.of() : List.of(sequence.split(" "));
+
+                if (valid(List.of(key.split(" ")), instructions))
+                    cache.put(key, instructions);
+                else if (tracer.isInfo())
+                    tracer.info("Dropped the invalid cache entry " + line);
+            }
+        }
+    }
+
+    /**
+     * Writes the cache to a file, sorted by shape, in the format read by
+     * {@link #load(Path)}.
+     *
+     * @param file the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for (Map.Entry<String, List<String>> entry : new TreeMap<>(cache).entrySet()) {
+                out.write(entry.getKey() + "\t" + String.join(" ", entry.getValue()));
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Computes the shape of an expression, walking it in prefix order with an
+     * explicit stack. A larger tree is given up as soon as it has too many
+     * nodes, so the root of a long chain costs a few steps.
+     *
+     * @return the shape, or null if the expression cannot be optimized
+     */
+    private static Shape shape(NodeBinOp expr) {
+        Shape shape = new Shape();
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+        int leaves = 0;
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.pop();
+
+            if (shape.prefix.size() >= 2 * MAX_LEAVES - 1)
+                return null;
+
+            if (node instanceof NodeBinOp) {
+                NodeBinOp binOp = (NodeBinOp) node;
+                String op = symbol(binOp.getOp());
+
+                if (op == null || !isInt(binOp))
+                    return null;
+
+                shape.prefix.add(op);
+                pending.push(binOp.getRight());
+                pending.push(binOp.getLeft());
+            } else if (node instanceof NodeDeref && isInt(node)) {
+                NodeDeref deref = (NodeDeref) node;
+                Integer index = shape.names.get(deref.getId().getName());
+
+                if (index == null) {
+                    index = shape.variables.size();
+                    shape.names.put(deref.getId().getName(), index);
+                    shape.variables.add(deref);
+                }
+
+                shape.prefix.add("x" + index);
+                leaves++;
+            } else if (node instanceof NodeCost && ((NodeCost) node).getType() == LangType.INT) {
+                BigInteger value = DcArithmetic.parse(((NodeCost) node).getValue()).toBigIntegerExact();
+
+                if (!shape.constants.contains(value))
+                    shape.constants.add(value);
+
+                shape.prefix.add("#" + value);
+                leaves++;
+            } else {
+                return null;
+            }
+        }
+
+        return leaves <= MAX_LEAVES ? shape : null;
+    }
+
+    /**
+     * Searches the shortest sequence computing a shape, shorter than the
+     * expression written without shared operands.
+     *
+     * @return the instructions, or an empty list if none was found
+     */
+    private static List<String> search(Shape shape) {
+        int variables = shape.variables.size();
+        List<String> instructions = new ArrayList<>();
+
+        for (int i = 0; i < variables; i++)
+            instructions.add("x" + i);
+        for (BigInteger constant : shape.constants)
+            instructions.add("#" + constant);
+        instructions.addAll(Arrays.asList(COMMANDS));
+
+        Random random = new Random(SEED);
+        long[][] points = new long[variables][POINTS];
+
+        for (long[] point : points)
+            for (int j = 0; j < POINTS; j++)
+                point[j] = 1 + random.nextInt((int) PRIME - 1);
+
+        Values values = new Values();
+        int[] leaf = new int[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            String instruction = instructions.get(i);
+
+            if (instruction.startsWith("x")) {
+                leaf[i] = values.intern(points[Integer.parseInt(instruction.substring(1))].clone());
+            } else if (instruction.startsWith("#")) {
+                long[] value = new long[POINTS];
+                Arrays.fill(value, new BigInteger(instruction.substring(1)).mod(BigInteger.valueOf(PRIME)).longValue());
+                leaf[i] = values.intern(value);
+            } else {
+                leaf[i] = -1;
+            }
+        }
+
+        int target = values.intern(fingerprint(shape.prefix, points));
+        Polynomial exact = polynomial(shape.prefix, variables);
+        int limit = shape.prefix.size() - 1;
+
+        List<int[]> stacks = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        List<Integer> steps = new ArrayList<>();
+        HashSet<Key> visited = new HashSet<>();
+        stacks.add(new int[0]);
+        parents.add(-1);
+        steps.add(-1);
+        visited.add(new Key(new int[0]));
+        int layerStart = 0;
+
+        for (int depth = 1; depth <= limit; depth++) {
+            int layerEnd = stacks.size();
+
+            for (int s = layerStart; s < layerEnd; s++) {
+                int[] stack = stacks.get(s);
+
+                for (int i = 0; i < instructions.size(); i++) {
+                    int[] next = step(stack, instructions.get(i), leaf[i], values);
+
+                    if (next == null || next.length > MAX_HEIGHT || next.length - 1 > limit - depth)
+                        continue;
+
+                    if (!visited.add(new Key(next)))
+                        continue;
+
+                    stacks.add(next);
+                    parents.add(s);
+                    steps.add(i);
+
+                    if (next.length == 1 && next[0] == target) {
+                        List<String> found = path(stacks.size() - 1, parents, steps, instructions);
+
+                        if (exact.equals(execute(found, variables)))
+                            return found;
+                    }
+                }
+
+                if (stacks.size() > MAX_STATES)
+                    return List.of();
+            }
+
+            layerStart = layerEnd;
+        }
+
+        return List.of();
+    }
+
+    /**
+     * Applies an instruction to a stack of values.
+     *
+     * @return the new stack, or null if the instruction needs more values
+     */
+    private static int[] step(int[] stack, String instruction, int leaf, Values values) {
+        int height = stack.length;
+
+        if (leaf >= 0) {
+            int[] next = Arrays.copyOf(stack, height + 1);
+            next[height] = leaf;
+            return next;
+        }
+
+        if (instruction.equals("d")) {
+            if (height < 1)
+                return null;
+
+            int[] next = Arrays.copyOf(stack, height + 1);
+            next[height] = stack[height - 1];
+            return next;
+        }
+
+        if (height < 2)
+            return null;
+
+        if (instruction.equals("r")) {
+            int[] next = stack.clone();
+            next[height - 1] = stack[height - 2];
+            next[height - 2] = stack[height - 1];
+            return next;
+        }
+
+        long[] a = values.get(stack[height - 2]);
+        long[] b = values.get(stack[height - 1]);
+        long[] result = new long[POINTS];
+
+        for (int j = 0; j < POINTS; j++)
+            result[j] = apply(instruction.charAt(0), a[j], b[j]);
+
+        int[] next = Arrays.copyOf(stack, height - 1);
+        next[height - 2] = values.intern(result);
+        return next;
+    }
+
+    private static long apply(char op, long a, long b) {
+        switch (op) {
+            case '+':
+                return (a + b) % PRIME;
+            case '-':
+                return (a - b + PRIME) % PRIME;
+            default:
+                return a * b % PRIME;
+        }
+    }
+
+    private static List<String> path(int state, List<Integer> parents, List<Integer> steps,
+            List<String> instructions) {
+        ArrayDeque<String> path = new ArrayDeque<>();
+
+        for (int s = state; parents.get(s) >= 0; s = parents.get(s))
+            path.push(instructions.get(steps.get(s)));
+
+        return List.copyOf(path);
+    }
+
+    /**
+     * Evaluates a prefix expression at the random points, reading it from
+     * the right.
+     */
+    private static long[] fingerprint(List<String> prefix, long[][] points) {
+        ArrayDeque<long[]> stack = new ArrayDeque<>();
+
+        for (int i = prefix.size() - 1; i >= 0; i--) {
+            String token = prefix.get(i);
+
+            if (token.startsWith("x")) {
+                stack.push(points[Integer.parseInt(token.substring(1))]);
+            } else if (token.startsWith("#")) {
+                long[] value = new long[POINTS];
+                Arrays.fill(value, new BigInteger(token.substring(1)).mod(BigInteger.valueOf(PRIME)).longValue());
+                stack.push(value);
+            } else {
+                long[] left = stack.pop();
+                long[] right = stack.pop();
+                long[] result = new long[POINTS];
+
+                for (int j = 0; j < POINTS; j++)
+                    result[j] = apply(token.charAt(0), left[j], right[j]);
+
+                stack.push(result);
+            }
+        }
+
+        return stack.pop();
+    }
+
+    /**
+     * Checks an entry of a cache file: the shape must be a prefix expression,
+     * and the sequence, if any, must leave exactly the value of the shape on
+     * an empty stack.
+     */
+    private static boolean valid(List<String> prefix, List<String> sequence) {
+        int variables = 0;
+        int height = 0;
+
+        for (int i = prefix.size() - 1; i >= 0; i--) {
+            String token = prefix.get(i);
+
+            if (isLeaf(token)) {
+                if (token.startsWith("x"))
+                    variables = Math.max(variables, Integer.parseInt(token.substring(1)) + 1);
+                height++;
+            } else if (token.length() == 1 && "+-*".indexOf(token.charAt(0)) >= 0 && height >= 2) {
+                height--;
+            } else {
+                return false;
+            }
+        }
+
+        if (height != 1)
+            return false;
+        if (sequence.isEmpty())
+            return true;
+
+        height = 0;
+
+        for (String instruction : sequence) {
+            if (isLeaf(instruction)) {
+                if (instruction.startsWith("x") && Integer.parseInt(instruction.substring(1)) >= variables)
+                    return false;
+                height++;
+            } else if (instruction.equals("d") && height >= 1) {
+                height++;
+            } else if (instruction.length() == 1 && "+-*".indexOf(instruction.charAt(0)) >= 0 && height >= 2) {
+                height--;
+            } else if (!instruction.equals("r") || height < 2) {
+                return false;
+            }
+        }
+
+        return height == 1 && execute(sequence, variables).equals(polynomial(prefix, variables));
+    }
+
+    /**
+     * Checks that a token is a variable ({@code x0} to {@code x99}) or an
+     * integer constant ({@code #n}).
+     */
+    private static boolean isLeaf(String token) {
+        int start = token.startsWith("#-") ? 2 : 1;
+
+        if (!token.startsWith("x") && !token.startsWith("#") || token.length() <= start
+                || token.startsWith("x") && token.length() > 3)
+            return false;
+
+        for (int i = start; i < token.length(); i++)
+            if (token.charAt(i) < '0' || token.charAt(i) > '9')
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Computes the exact value of a prefix expression.
+     */
+    private static Polynomial polynomial(List<String> prefix, int variables) {
+        ArrayDeque<Polynomial> stack = new ArrayDeque<>();
+
+        for (int i = prefix.size() - 1; i >= 0; i--) {
+            String token = prefix.get(i);
+
+            if (token.startsWith("x") || token.startsWith("#")) {
+                stack.push(leaf(token, variables));
+            } else {
+                Polynomial left = stack.pop();
+                stack.push(combine(token.charAt(0), left, stack.pop()));
+            }
+        }
+
+        return stack.pop();
+    }
+
+    /**
+     * Computes the exact value left on the stack by a sequence.
+     */
+    private static Polynomial execute(List<String> sequence, int variables) {
+        ArrayDeque<Polynomial> stack = new ArrayDeque<>();
+
+        for (String instruction : sequence) {
+            switch (instruction) {
+                case "d":
+                    stack.push(stack.peek());
+                    break;
+                case "r":
+                    Polynomial top = stack.pop();
+                    Polynomial below = stack.pop();
+                    stack.push(top);
+                    stack.push(below);
+                    break;
+                case "+":
+                case "-":
+                case "*":
+                    Polynomial right = stack.pop();
+                    stack.push(combine(instruction.charAt(0), stack.pop(), right));
+                    break;
+                default:
+                    stack.push(leaf(instruction, variables));
+                    break;
+            }
+        }
+
+        return stack.pop();
+    }
+
+    private static Polynomial leaf(String token, int variables) {
+        if (token.startsWith("x"))
+            return Polynomial.variable(Integer.parseInt(token.substring(1)), variables);
+
+        return Polynomial.constant(new BigInteger(token.substring(1)), variables);
+    }
+
+    private static Polynomial combine(char op, Polynomial left, Polynomial right) {
+        switch (op) {
+            case '+':
+                return left.add(right);
+            case '-':
+                return left.subtract(right);
+            default:
+                return left.multiply(right);
+        }
+    }
+
+    /**
+     * Counts the instructions the code generator emits for an expression:
+     * one per leaf and per operator, and a single {@code d} for an operand
+     * shared by both sides.
+     */
+    private static int codeSize(NodeBinOp expr) {
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+        int size = 0;
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.pop();
+            size++;
+
+            if (node instanceof NodeBinOp) {
+                NodeBinOp binOp = (NodeBinOp) node;
+                pending.push(binOp.getLeft());
+
+                if (binOp.getRight() == binOp.getLeft())
+                    size++;
+                else
+                    pending.push(binOp.getRight());
+            }
+        }
+
+        return size;
+    }
+
+    private static String symbol(LangOper op) {
+        switch (op) {
+            case PLUS:
+                return "+";
+            case MINUS:
+                return "-";
+            case TIMES:
+                return "*";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isInt(NodeExpr expr) {
+        return expr.getResType() != null && expr.getResType().getType() == TypeTd.INT;
+    }
+
+    /**
+     * Values reached by the search, identified by their fingerprints.
+     */
+    private static final class Values {
+        private final List<long[]> values = new ArrayList<>();
+        private final HashMap<Key, Integer> ids = new HashMap<>();
+
+        int intern(long[] value) {
+            int[] key = new int[POINTS * 2];
+
+            for (int j = 0; j < POINTS; j++) {
+                key[2 * j] = (int) value[j];
+                key[2 * j + 1] = (int) (value[j] >>> 32);
+            }
+
+            return ids.computeIfAbsent(new Key(key), k -> {
+                values.add(value);
+                return values.size() - 1;
+            });
+        }
+
+        long[] get(int id) {
+            return values.get(id);
+        }
+    }
+
+    /**
+     * An array of ints compared by content.
+     */
+    private static final class Key {
+        private final int[] elements;
+        private final int hash;
+
+        Key(int[] elements) {
+            this.elements = elements;
+            this.hash = Arrays.hashCode(elements);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(elements, ((Key) other).elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
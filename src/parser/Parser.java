@@ -20,12 +20,19 @@ import ast.NodeProgram;
 import ast.NodeStm;
 import exception.LexicalException;
 import exception.SyntacticException;
-import scanner.Scanner;
+import scanner.IScanner;
+import scanner.TokenBuffer;
 import token.Token;
 import token.TokenType;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
 
 public class Parser {
-    private Scanner scanner;
+    private static final Tracer tracer = Trace.tracer(Phase.PARSER);
+    private IScanner scanner;
+    private TokenBuffer tokens;
+    private int cursor;
     private String errorCatched = "Error detected";
 
     /**
@@ -34,39 +41,110 @@ public class Parser {
      * 
      * @param scanner the scanner to read tokens from
      */
-    public Parser(Scanner scanner) {
+    public Parser(IScanner scanner) {
         this.scanner = scanner;
     }
 
+    /**
+     * Constructor for the Parser class.
+     * Initializes the parser with an already scanned token stream, which is read
+     * by index without creating Token objects.
+     * 
+     * @param tokens the token stream to parse
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Returns the index of the current token in the token buffer.
+     * Past the end of the buffer it stays on the final EOF token, as the scanner
+     * keeps returning EOF.
+     * 
+     * @return the index of the current token
+     * @throws SyntacticException if the buffer stopped on a lexical error
+     */
+    private int current() throws SyntacticException {
+        if (cursor < tokens.size())
+            return cursor;
+
+        if (tokens.getError() != null)
+            throw new SyntacticException(errorCatched, tokens.getError());
+
+        return tokens.size() - 1;
+    }
+
+    /**
+     * Peeks the next token from the scanner.
+     * 
+     * @return the next token
+     * @throws SyntacticException if the scanner raises a lexical error
+     */
+    private Token peek() throws SyntacticException {
+        try {
+            return scanner.peekToken();
+        } catch (LexicalException e) {
+            throw new SyntacticException(errorCatched, e);
+        }
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     * 
+     * @return the type of the next token
+     * @throws SyntacticException if a lexical error is found
+     */
+    private TokenType peekType() throws SyntacticException {
+        return tokens != null ? tokens.type(current()) : peek().getType();
+    }
+
+    /**
+     * Returns the row of the next token without consuming it.
+     * 
+     * @return the row of the next token
+     * @throws SyntacticException if a lexical error is found
+     */
+    private int peekRow() throws SyntacticException {
+        return tokens != null ? tokens.row(current()) : peek().getRow();
+    }
+
+    /**
+     * Returns the value of the next token without consuming it.
+     * 
+     * @return the value of the next token, or null if it has none
+     * @throws SyntacticException if a lexical error is found
+     */
+    private String peekValue() throws SyntacticException {
+        return tokens != null ? tokens.text(current()) : peek().getValue();
+    }
+
     /**
      * Matches the next token with the expected type.
-     * If the token matches, it consumes it and returns it.
+     * If the token matches, it consumes it and returns its value.
      * If it does not match, it throws a SyntacticException.
      * 
      * @param type the expected token type
-     * @return the matched token
+     * @return the value of the matched token (null for tokens without value)
      * @throws SyntacticException if the token does not match the expected type
      */
-    private Token match(TokenType type) throws SyntacticException {
-        Token token;
+    private String match(TokenType type) throws SyntacticException {
+        TokenType found = peekType();
 
-        try {
-            token = scanner.peekToken();
+        if (tracer.isDebug())
+            tracer.debug("Mathcing " + found + " with " + type);
 
-            System.out.println("Mathcing " + token.getType() + " with " + type);
+        if (type != found)
+            throw new SyntacticException(
+                    "ERROR: expected token: " + type + " but was: " + found + " at line: " + peekRow());
+
+        if (tokens != null)
+            return tokens.text(cursor++);
+
+        try {
+            return scanner.nextToken().getValue();
         } catch (LexicalException e) {
             throw new SyntacticException(errorCatched, e);
         }
-
-        if (type == token.getType())
-            try {
-                return scanner.nextToken();
-            } catch (LexicalException e) {
-                throw new SyntacticException(errorCatched, e);
-            }
-
-        throw new SyntacticException(
-                "ERROR: expected token: " + type + " but was: " + token.getType() + " at line: " + token.getRow());
     }
 
     /**
@@ -79,7 +157,8 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     public NodeProgram parse() throws SyntacticException {
-        System.out.println("Program started. Creating parse tree:");
+        if (tracer.isInfo())
+            tracer.info("Program started. Creating parse tree:");
 
         return parsePrg();
     }
@@ -92,23 +171,18 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeProgram parsePrg() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException(errorCatched, e);
-        }
+        TokenType type = peekType();
 
         // Prg -> DSs $
-        switch (token.getType()) {
+        switch (type) {
             case TYFLOAT, TYINT, ID, PRINT, EOF:
-                System.out.println("Parsing program...");
+                if (tracer.isDebug())
+                    tracer.debug("Parsing program...");
                 ArrayList<NodeDecSt> decSt = parseDSs();
                 match(TokenType.EOF);
                 return new NodeProgram(decSt);
             default:
-                throw new SyntacticException("ERROR: token " + token.getType() + " at row " + token.getRow()
+                throw new SyntacticException("ERROR: token " + type + " at row " + peekRow()
                         + " is not a start of program.");
         }
     }
@@ -116,42 +190,42 @@ public class Parser {
     /**
      * Parses the declarations and statements in the program.
      * The production rule is DSs -> Dcl DSs | Stm DSs | ε.
+     * The right recursion of DSs is parsed as a loop that appends each
+     * declaration or statement in source order, so the stack depth does not
+     * grow with the length of the program.
      * 
      * @return a list of NodeDecSt objects representing declarations and statements
      * @throws SyntacticException if there is a syntax error in the input
      */
     private ArrayList<NodeDecSt> parseDSs() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException(errorCatched, e);
-        }
-
-        // DSs -> Dcl DSs | Stm DSs | ε
-        switch (token.getType()) {
-            // DSs -> Dcl DSs
-            case TYFLOAT, TYINT:
-                System.out.println("Parsing declarations...");
-                NodeDecl decl = parseDcl();
-                ArrayList<NodeDecSt> list = parseDSs();
-                list.add(0, decl);
-                return list;
-            // DSs -> Stm DSs
-            case ID, PRINT:
-                System.out.println("Parsing statements...");
-                NodeStm stm = parseStm();
-                ArrayList<NodeDecSt> list1 = parseDSs();
-                list1.add(0, stm);
-                return list1;
-            // DSs -> ε
-            case EOF:
-                System.out.println("End of program reached.");
-                return new ArrayList<>();
-            default:
-                throw new SyntacticException("ERROR: token " + token.getType() + " at row " + token.getRow()
-                        + " is not a start of program.");
+        ArrayList<NodeDecSt> list = new ArrayList<>();
+
+        for (;;) {
+            TokenType type = peekType();
+
+            // DSs -> Dcl DSs | Stm DSs | ε
+            switch (type) {
+                // DSs -> Dcl DSs
+                case TYFLOAT, TYINT:
+                    if (tracer.isDebug())
+                        tracer.debug("Parsing declarations...");
+                    list.add(parseDcl());
+                    break;
+                // DSs -> Stm DSs
+                case ID, PRINT:
+                    if (tracer.isDebug())
+                        tracer.debug("Parsing statements...");
+                    list.add(parseStm());
+                    break;
+                // DSs -> ε
+                case EOF:
+                    if (tracer.isDebug())
+                        tracer.debug("End of program reached.");
+                    return list;
+                default:
+                    throw new SyntacticException("ERROR: token " + type + " at row " + peekRow()
+                            + " is not a start of program.");
+            }
         }
     }
 
@@ -163,28 +237,23 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeDecl parseDcl() throws SyntacticException {
-        Token token;
+        TokenType type = peekType();
         LangType ty;
 
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException(errorCatched, e);
-        }
-
         NodeExpr expr;
 
         // Dcl -> Ty ID DclP
-        switch (token.getType()) {
+        switch (type) {
             case TYFLOAT, TYINT:
                 ty = parseTy();
-                token = match(TokenType.ID);
-                System.out.println("Parsing declaration: " + token.getValue() + " of type " + ty);
+                String name = match(TokenType.ID);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing declaration: " + name + " of type " + ty);
                 expr = parseDclP();
-                return new NodeDecl(new NodeId(token.getValue()), ty, expr);
+                return new NodeDecl(new NodeId(name), ty, expr);
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getValue(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", peekValue(), peekRow()));
         }
     }
 
@@ -196,29 +265,25 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private LangType parseTy() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException(errorCatched, e);
-        }
+        TokenType type = peekType();
 
         // Ty -> TYFLOAT | TYINT
-        switch (token.getType()) {
+        switch (type) {
             // Ty -> TYFLOAT
             case TYFLOAT:
                 match(TokenType.TYFLOAT);
-                System.out.println("Parsing type: FLOAT");
+                if (tracer.isDebug())
+                    tracer.debug("Parsing type: FLOAT");
                 return LangType.FLOAT;
             // Ty -> TYINT
             case TYINT:
                 match(TokenType.TYINT);
-                System.out.println("Parsing type: INT");
+                if (tracer.isDebug())
+                    tracer.debug("Parsing type: INT");
                 return LangType.INT;
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getValue(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", peekValue(), peekRow()));
         }
 
     }
@@ -232,31 +297,27 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeExpr parseDclP() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException(errorCatched, e);
-        }
+        TokenType type = peekType();
 
         // DclP -> SEMI | ASSIGN Exp SEMI
-        switch (token.getType()) {
+        switch (type) {
             // DclP -> SEMI
             case SEMI:
                 match(TokenType.SEMI);
-                System.out.println("Declaration without initialization.");
+                if (tracer.isDebug())
+                    tracer.debug("Declaration without initialization.");
                 return null;
             // DclP -> ASSIGN Exp SEMI
             case ASSIGN:
                 match(TokenType.ASSIGN);
                 NodeExpr node = parseExp();
                 match(TokenType.SEMI);
-                System.out.println("Declaration with initialization: " + node);
+                if (tracer.isDebug())
+                    tracer.debug("Declaration with initialization: " + node);
                 return node;
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getValue(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", peekValue(), peekRow()));
         }
     }
 
@@ -268,43 +329,41 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeStm parseStm() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
+        TokenType type = peekType();
 
         // Stm -> ID Op Exp SEMI | PRINT ID SEMI
-        switch (token.getType()) {
+        switch (type) {
             // Stm -> ID Op Exp SEMI
             case ID:
-                NodeId id = new NodeId(match(TokenType.ID).getValue());
-                System.out.println("Parsing statement: " + token.getValue());
+                String name = match(TokenType.ID);
+                NodeId id = new NodeId(name);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing statement: " + name);
                 LangOper op = parseOp();
                 NodeExpr expr = parseExp();
                 match(TokenType.SEMI);
-                System.out.println("Parsed assignment operation: " + token.getValue() + " with operator: " + op
-                        + " and expression: " + expr);
+                if (tracer.isDebug())
+                    tracer.debug("Parsed assignment operation: " + name + " with operator: " + op
+                            + " and expression: " + expr);
 
                 if (op != null) {
                     NodeExpr left = new NodeDeref(id);
                     NodeBinOp binOp = new NodeBinOp(op, left, expr);
-                    return new NodeAssign(new NodeId(token.getValue()), binOp);
+                    return new NodeAssign(new NodeId(name), binOp);
                 }
 
                 return new NodeAssign(id, expr);
             // Stm -> PRINT ID SEMI
             case PRINT:
                 match(TokenType.PRINT);
-                token = match(TokenType.ID);
+                name = match(TokenType.ID);
                 match(TokenType.SEMI);
-                System.out.println("Parsing print statement: " + token.getValue());
-                return new NodePrint(new NodeId(token.getValue()));
+                if (tracer.isDebug())
+                    tracer.debug("Parsing print statement: " + name);
+                return new NodePrint(new NodeId(name));
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", type, peekRow()));
         }
     }
 
@@ -316,142 +375,94 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeExpr parseExp() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
+        TokenType type = peekType();
 
         // Exp -> Tr ExpP
-        switch (token.getType()) {
+        switch (type) {
             case ID, FLOAT, INT:
-                System.out.println("Parsing expression starting with: " + token.getType());
-                NodeExpr valExpr = parseTr();
-                System.out.println("Parsed value expression: " + valExpr);
-                return parseExpP(valExpr);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing expression starting with: " + type);
+                NodeExpr expr = parseBinary(0);
+                type = peekType();
+
+                // ExpP -> ε and TrP -> ε are followed by SEMI
+                if (type != TokenType.SEMI)
+                    throw new SyntacticException(
+                            String.format("Unexpected token \'%s\' at line %d", type, peekRow()));
+
+                return expr;
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", type, peekRow()));
         }
     }
 
     /**
-     * Parses the continuation of an expression.
-     * The production rule is ExpP -> PLUS Tr ExpP | MINUS Tr ExpP | SEMI.
+     * Parses the operator chains of an expression by precedence climbing.
+     * The production rules ExpP -> PLUS Tr ExpP | MINUS Tr ExpP | ε and
+     * TrP -> TIMES Val TrP | DIVIDE Val TrP | ε are parsed as loops that fold
+     * each operand into the tree built so far, so operators of the same
+     * precedence associate to the left ({@code a - b - c} is
+     * {@code (a - b) - c}). Recursion only happens when the operator precedence
+     * increases, so the stack depth is bounded by the number of precedence
+     * levels, not by the length of the expression.
      * 
-     * @param left the left operand of the expression
-     * @return a NodeExpr object representing the continuation of the expression
+     * @param minPrecedence the lowest precedence of the operators to consume
+     * @return a NodeExpr object representing the parsed chain
      * @throws SyntacticException if there is a syntax error in the input
      */
-    private NodeExpr parseExpP(NodeExpr left) throws SyntacticException {
-        Token token;
-        NodeExpr nodeLeft;
+    private NodeExpr parseBinary(int minPrecedence) throws SyntacticException {
+        NodeExpr left = parseVal();
 
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
+        for (;;) {
+            TokenType type = peekType();
+            int precedence = precedence(type);
 
-        // ExpP -> PLUS Tr ExpP | MINUS Tr ExpP | SEMI
-        switch (token.getType()) {
-            // ExpP -> PLUS Tr ExpP
-            case PLUS:
-                match(TokenType.PLUS);
-                nodeLeft = parseTr();
-                System.out.println(
-                        "Parsed subtraction operation with left operand: " + left + " and right operand: " + nodeLeft);
-                return new NodeBinOp(LangOper.PLUS, left, parseExpP(nodeLeft));
-            // ExpP -> MINUS Tr ExpP
-            case MINUS:
-                match(TokenType.MINUS);
-                nodeLeft = parseTr();
-                System.out.println(
-                        "Parsed subtraction operation with left operand: " + left + " and right operand: " + nodeLeft);
-                return new NodeBinOp(LangOper.MINUS, left, parseExpP(nodeLeft));
-            // ExpP -> SEMI
-            case SEMI:
-                System.out.println("End of expression reached with left operand: " + left);
+            if (precedence < minPrecedence)
                 return left;
-            default:
-                throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+
+            match(type);
+            NodeExpr right = parseBinary(precedence + 1);
+            if (tracer.isDebug())
+                tracer.debug("Parsed " + operator(type) + " operation");
+            left = new NodeBinOp(operator(type), left, right);
         }
     }
 
     /**
-     * Parses a term.
-     * The production rule is Tr -> Val Trp.
+     * Returns the precedence of a binary operator token.
      * 
-     * @return a NodeExpr object representing the parsed term
-     * @throws SyntacticException if there is a syntax error in the input
+     * @param type the token type
+     * @return 1 for PLUS and MINUS, 2 for TIMES and DIVIDE, -1 for any token
+     *         that is not a binary operator
      */
-    private NodeExpr parseTr() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
-
-        // Tr -> Val Trp
-        switch (token.getType()) {
-            case ID, FLOAT, INT:
-                NodeExpr valExpr = parseVal();
-                System.out.println("Parsed value expression: " + valExpr);
-                return parseTrp(valExpr);
+    private static int precedence(TokenType type) {
+        switch (type) {
+            case PLUS, MINUS:
+                return 1;
+            case TIMES, DIVIDE:
+                return 2;
             default:
-                throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                return -1;
         }
     }
 
     /**
-     * Parses the continuation of a term.
-     * The production rule is Trp -> TIMES Val Trp | DIVIDE Val Trp | MINUS | PLUS |
-     * SEMI.
+     * Returns the AST operator of a binary operator token.
      * 
-     * @param left the left operand of the term
-     * @return a NodeExpr object representing the continuation of the term
-     * @throws SyntacticException if there is a syntax error in the input
+     * @param type the token type (PLUS, MINUS, TIMES or DIVIDE)
+     * @return the corresponding LangOper
      */
-    private NodeExpr parseTrp(NodeExpr left) throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
-
-        NodeExpr nodeLeft;
-
-        // Trp -> TIMES Val Trp | DIVIDE Val Trp | MINUS | PLUS | SEMI
-        switch (token.getType()) {
-            // Trp -> TIMES Val Trp
+    private static LangOper operator(TokenType type) {
+        switch (type) {
+            case PLUS:
+                return LangOper.PLUS;
+            case MINUS:
+                return LangOper.MINUS;
             case TIMES:
-                match(TokenType.TIMES);
-                nodeLeft = parseVal();
-                System.out.println("Parsed multiplication operation with left operand: " + left + " and right operand: "
-                        + nodeLeft);
-                return new NodeBinOp(LangOper.TIMES, left, parseTrp(nodeLeft));
-            // Trp -> DIVIDE Val Trp
-            case DIVIDE:
-                match(TokenType.DIVIDE);
-                nodeLeft = parseVal();
-                System.out.println(
-                        "Parsed division operation with left operand: " + left + " and right operand: " + nodeLeft);
-                return new NodeBinOp(LangOper.DIV, left, parseTrp(nodeLeft));
-            // Trp -> MINUS | PLUS | SEMI
-            case MINUS, PLUS, SEMI:
-                System.out.println("End of term reached with left operand: " + left);
-                return left;
+                return LangOper.TIMES;
             default:
-                throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                return LangOper.DIV;
         }
     }
 
@@ -463,34 +474,32 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private NodeExpr parseVal() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
+        TokenType type = peekType();
+        String value;
 
         // Val -> INT | FLOAT | ID
-        switch (token.getType()) {
+        switch (type) {
             // Val -> INT
             case INT:
-                token = match(token.getType());
-                System.out.println("Parsing integer value: " + token.getValue());
-                return new NodeCost(token.getValue(), LangType.INT);
+                value = match(type);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing integer value: " + value);
+                return new NodeCost(value, LangType.INT);
             // Val -> FLOAT
             case FLOAT:
-                token = match(token.getType());
-                System.out.println("Parsing float value: " + token.getValue());
-                return new NodeCost(token.getValue(), LangType.FLOAT);
+                value = match(type);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing float value: " + value);
+                return new NodeCost(value, LangType.FLOAT);
             // Val -> ID
             case ID:
-                token = match(token.getType());
-                System.out.println("Parsing identifier: " + token.getValue());
-                return new NodeDeref(new NodeId(token.getValue()));
+                value = match(type);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing identifier: " + value);
+                return new NodeDeref(new NodeId(value));
             default:
                 throw new SyntacticException(
-                        String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                        String.format("Unexpected token \'%s\' at line %d", type, peekRow()));
         }
     }
 
@@ -503,25 +512,21 @@ public class Parser {
      * @throws SyntacticException if there is a syntax error in the input
      */
     private LangOper parseOp() throws SyntacticException {
-        Token token;
-
-        try {
-            token = scanner.peekToken();
-        } catch (LexicalException e) {
-            throw new SyntacticException("Error catched", e);
-        }
+        TokenType type = peekType();
+        int row = peekRow();
 
         // Op -> ASSIGN | OP_ASSIGN
-        switch (token.getType()) {
+        switch (type) {
             // Op -> ASSIGN
             case ASSIGN:
                 match(TokenType.ASSIGN);
                 return null;
             // Op -> OP_ASSIGN
             case OP_ASSIGN:
-                match(TokenType.OP_ASSIGN);
-                System.out.println("Parsing operation assignment: " + token.getValue());
-                switch (token.getValue()) {
+                String value = match(TokenType.OP_ASSIGN);
+                if (tracer.isDebug())
+                    tracer.debug("Parsing operation assignment: " + value);
+                switch (value) {
                     case "+=":
                         return LangOper.PLUS;
                     case "-=":
@@ -532,7 +537,7 @@ public class Parser {
                         return LangOper.DIV;
                     default:
                         throw new SyntacticException(
-                                String.format("Unexpected token \'%s\' at line %d", token.getType(), token.getRow()));
+                                String.format("Unexpected token \'%s\' at line %d", type, row));
                 }
         }
 
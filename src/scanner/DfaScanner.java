@@ -0,0 +1,218 @@
+package scanner;
+
+import static scanner.LexerTables.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import exception.LexicalException;
+import token.Token;
+import token.TokenType;
+
+/**
+ * Table-driven scanner.<br>
+ *
+ * Produces the same token stream (and the same lexical errors) as
+ * {@link Scanner}, but classifies characters through the 128-entry class array
+ * and the transition table of {@link LexerTables} instead of per-character
+ * {@code Set}/{@code Map} lookups. Keywords are states of the automaton, so
+ * they need no lookup once the identifier has been read.
+ */
+public class DfaScanner implements IScanner {
+	private int row;
+	private SourceBuffer buffer;
+
+	/**
+	 * Offset and length of the lexeme of the last token scanned.
+	 */
+	private int tokenStart;
+	private int tokenLength;
+
+	/**
+	 * Next token readed without consuming characters.
+	 */
+	private Token nextTk;
+
+	/**
+	 * Sets up file reading.<br>
+	 *
+	 * The file is loaded into a {@link SourceBuffer} when the first token is
+	 * requested.
+	 *
+	 * @param fileName name of file to read
+	 * @throws FileNotFoundException if the file is not found
+	 */
+	public DfaScanner(String fileName) throws FileNotFoundException {
+		this.buffer = new SourceBuffer(fileName);
+		row = 1;
+	}
+
+	/**
+	 * Peeks and returns the next valid token from the input file without consuming
+	 * characters.<br>
+	 *
+	 * @return the next valid token
+	 * @throws LexicalException if a lexical error is encountered (invalid
+	 *                          character)
+	 */
+	public Token peekToken() throws LexicalException {
+		if (nextTk == null)
+			nextTk = nextToken();
+
+		return nextTk;
+	}
+
+	/**
+	 * Reads and returns the next valid token from the input file.
+	 *
+	 * @return the next valid token
+	 * @throws LexicalException if a lexical error is encountered (invalid
+	 *                          character)
+	 */
+	public Token nextToken() throws LexicalException {
+		if (nextTk != null) {
+			Token aus = nextTk;
+
+			nextTk = null;
+			return aus;
+		}
+
+		int state = scan();
+
+		if (state == DEAD)
+			return new Token(TokenType.EOF, row);
+
+		return VALUE[state] ? new Token(TYPE[state], row, buffer.text(tokenStart, tokenLength))
+				: new Token(TYPE[state], row);
+	}
+
+	/**
+	 * Scans the whole input into a {@link TokenBuffer}.<br>
+	 *
+	 * Tokens are stored as type, row and lexeme offset/length; no {@link Token}
+	 * or String is created. Scanning stops after {@code EOF} or at the first
+	 * lexical error, which is recorded in the buffer.
+	 *
+	 * @return the token stream of the remaining input
+	 * @throws LexicalException if an I/O error occurs while reading the file
+	 */
+	public TokenBuffer tokenize() throws LexicalException {
+		load();
+
+		TokenBuffer tokens = new TokenBuffer(buffer, buffer.length() / 4);
+
+		if (nextTk != null) {
+			TokenType type = nextTk.getType();
+
+			tokens.add(type, nextTk.getRow(), tokenStart, tokenLength);
+			nextTk = null;
+
+			if (type == TokenType.EOF)
+				return tokens;
+		}
+
+		for (;;) {
+			int state;
+
+			try {
+				state = scan();
+			} catch (LexicalException e) {
+				tokens.fail(e);
+				return tokens;
+			}
+
+			if (state == DEAD) {
+				tokens.add(TokenType.EOF, row, buffer.position(), 0);
+				return tokens;
+			}
+
+			tokens.add(TYPE[state], row, tokenStart, tokenLength);
+		}
+	}
+
+	/**
+	 * Scans the next token.<br>
+	 *
+	 * Skip characters are consumed first (counting rows), then the automaton is
+	 * run from {@code START} until no transition is possible; the state it stops
+	 * in decides the token or the error. The lexeme is left in
+	 * {@code tokenStart}/{@code tokenLength}.
+	 *
+	 * @return the accepting state, or {@code DEAD} at the end of the input
+	 * @throws LexicalException if a lexical error is encountered
+	 */
+	private int scan() throws LexicalException {
+		load();
+
+		for (char c = buffer.peek();; c = buffer.peek()) {
+			if (c == SourceBuffer.EOF) {
+				tokenStart = buffer.position();
+				tokenLength = 0;
+				buffer.advance();
+				return DEAD;
+			}
+
+			if (c >= 128 || !SKIP[c])
+				break;
+
+			if (c == '\n')
+				row++;
+
+			buffer.advance();
+		}
+
+		int start = buffer.position();
+		int valid = start;
+		int state = START;
+
+		for (;;) {
+			char c = buffer.peek();
+			int next = NEXT[state * CLASSES + (c < 128 ? CLASS[c] : OTHER)];
+
+			if (next == DEAD)
+				break;
+
+			if (next == GARBAGE && state != GARBAGE)
+				valid = buffer.position();
+
+			state = next;
+			buffer.advance();
+		}
+
+		int length = buffer.position() - start;
+
+		switch (ACTION[state]) {
+			case TOKEN:
+				tokenStart = start;
+				tokenLength = length;
+				return state;
+			case ERR_NO_DECIMALS:
+				throw new LexicalException("ERROR: invalid float format. No digits after decimal point. Result="
+						+ buffer.text(start, length) + ", row: " + row);
+			case ERR_DECIMALS:
+				throw new LexicalException("ERROR: float have more than 5 decimals number. Result="
+						+ buffer.text(start, length) + ", row: " + row);
+			case ERR_FORMAT:
+				throw new LexicalException(
+						"ERROR: invalid format. Result=" + buffer.text(start, valid - start) + ", row: " + row);
+			default:
+				throw new LexicalException(
+						"ERROR: illegal character. Row: " + row + ", character: " + buffer.charAt(start));
+		}
+	}
+
+	/**
+	 * Reads the source file on first use.
+	 *
+	 * @throws LexicalException if an I/O error occurs while reading the file
+	 */
+	private void load() throws LexicalException {
+		if (!buffer.isLoaded()) {
+			try {
+				buffer.load();
+			} catch (IOException e) {
+				throw new LexicalException(e.toString());
+			}
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import token.TokenType;
+
+/**
+ * Transition tables of the DFA used by {@link DfaScanner}.<br>
+ *
+ * The automaton is generated once, when the class is initialized, from the
+ * token/pattern table of the README ("Tokens and Patterns"):
+ *
+ * <pre>
+ * INT       [0-9]+
+ * FLOAT     [0-9]+.([0-9]{0,5})
+ * ID        [a-z][a-z0-9]*
+ * TYINT     int
+ * TYFLOAT   float
+ * PRINT     print
+ * OP_ASSIGN += | -= | *= | /=
+ * ASSIGN    =
+ * PLUS, MINUS, TIMES, DIVIDE, SEMI
+ * </pre>
+ *
+ * Keywords are inserted as a trie of states inside the identifier automaton,
+ * so they are recognized while the identifier is read. The generator first
+ * builds a table with one column per ASCII character and then merges the
+ * columns that are identical into character classes, producing the
+ * {@link #CLASS} array (128 entries) and the compact {@link #NEXT} table.<br>
+ *
+ * Besides the accepting states, the automaton has states for the malformed
+ * numbers the hand written {@link Scanner} reports (no decimals, more than 5
+ * decimals, trailing letters), so both scanners consume exactly the same
+ * characters before raising the same error.
+ */
+final class LexerTables {
+	/**
+	 * Dead state: the current token cannot be extended.
+	 */
+	static final int DEAD = 0;
+
+	/**
+	 * Initial state of every token.
+	 */
+	static final int START = 1;
+
+	/**
+	 * Accept the token of type {@link #TYPE}.
+	 */
+	static final byte TOKEN = 1;
+
+	/**
+	 * Illegal character.
+	 */
+	static final byte ERR_ILLEGAL = 2;
+
+	/**
+	 * Float without digits after the decimal point.
+	 */
+	static final byte ERR_NO_DECIMALS = 3;
+
+	/**
+	 * Float with more than 5 decimals.
+	 */
+	static final byte ERR_DECIMALS = 4;
+
+	/**
+	 * Number followed by letters, digits or points.
+	 */
+	static final byte ERR_FORMAT = 5;
+
+	/**
+	 * Character class of every ASCII character.
+	 */
+	static final byte[] CLASS = new byte[128];
+
+	/**
+	 * Character class of the non-ASCII characters (and EOF).
+	 */
+	static final int OTHER;
+
+	/**
+	 * Number of character classes (columns of {@link #NEXT}).
+	 */
+	static final int CLASSES;
+
+	/**
+	 * Transition table: {@code NEXT[state * CLASSES + class]}.
+	 */
+	static final int[] NEXT;
+
+	/**
+	 * Action to perform when the automaton stops in a state.
+	 */
+	static final byte[] ACTION;
+
+	/**
+	 * Token type accepted by each {@link #TOKEN} state.
+	 */
+	static final TokenType[] TYPE;
+
+	/**
+	 * Whether the token accepted in a state carries its text as value.
+	 */
+	static final boolean[] VALUE;
+
+	/**
+	 * Skip characters: ' ', '\n', '\t', '\r'.
+	 */
+	static final boolean[] SKIP = new boolean[128];
+
+	/**
+	 * State entered by the trailing characters of a malformed number.
+	 */
+	static final int GARBAGE;
+
+	private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+	private static final String DIGITS = "0123456789";
+	private static final int MAX_DECIMALS = 5;
+
+	private static final List<int[]> rows = new ArrayList<>();
+	private static final List<Byte> actions = new ArrayList<>();
+	private static final List<TokenType> types = new ArrayList<>();
+	private static final List<Boolean> values = new ArrayList<>();
+
+	static {
+		for (char c : " \n\t\r".toCharArray())
+			SKIP[c] = true;
+
+		state(0, null, false); // DEAD
+		state(0, null, false); // START
+
+		// ID [a-z][a-z0-9]* with the keyword trie
+		int id = state(TOKEN, TokenType.ID, true);
+		edges(id, LETTERS + DIGITS, id);
+		edges(START, LETTERS, id);
+		keyword("int", TokenType.TYINT, id);
+		keyword("float", TokenType.TYFLOAT, id);
+		keyword("print", TokenType.PRINT, id);
+
+		// INT [0-9]+ and FLOAT [0-9]+.([0-9]{0,5})
+		int garbage = state(ERR_FORMAT, null, false);
+		edges(garbage, LETTERS + DIGITS + ".", garbage);
+
+		int integer = state(TOKEN, TokenType.INT, true);
+		edges(START, DIGITS, integer);
+		edges(integer, DIGITS, integer);
+		edges(integer, LETTERS, garbage);
+
+		int dot = state(ERR_NO_DECIMALS, null, false);
+		edges(integer, ".", dot);
+
+		int prev = dot;
+		for (int i = 1; i <= MAX_DECIMALS; i++) {
+			int frac = state(TOKEN, TokenType.FLOAT, true);
+			edges(prev, DIGITS, frac);
+			edges(frac, LETTERS + ".", garbage);
+			prev = frac;
+		}
+
+		int over = state(ERR_DECIMALS, null, false);
+		edges(prev, DIGITS, over);
+		edges(over, DIGITS, over);
+
+		// operators, OP_ASSIGN and delimiters
+		int opAssign = state(TOKEN, TokenType.OP_ASSIGN, true);
+		operator('+', TokenType.PLUS, opAssign);
+		operator('-', TokenType.MINUS, opAssign);
+		operator('*', TokenType.TIMES, opAssign);
+		operator('/', TokenType.DIVIDE, opAssign);
+
+		edges(START, "=", state(TOKEN, TokenType.ASSIGN, false));
+		edges(START, ";", state(TOKEN, TokenType.SEMI, false));
+
+		// any other character is illegal
+		int illegal = state(ERR_ILLEGAL, null, false);
+		int[] start = rows.get(START);
+		for (char c = 0; c < 128; c++)
+			if (start[c] == DEAD && !SKIP[c])
+				start[c] = illegal;
+		start[128] = illegal;
+
+		GARBAGE = garbage;
+
+		// merge identical columns into character classes
+		int[][] columns = new int[129][rows.size()];
+		for (int s = 0; s < rows.size(); s++)
+			for (int c = 0; c <= 128; c++)
+				columns[c][s] = rows.get(s)[c];
+
+		List<int[]> classes = new ArrayList<>();
+		int[] classOf = new int[129];
+		for (int c = 0; c <= 128; c++) {
+			int k = 0;
+			while (k < classes.size() && !Arrays.equals(classes.get(k), columns[c]))
+				k++;
+			if (k == classes.size())
+				classes.add(columns[c]);
+			classOf[c] = k;
+		}
+
+		for (int c = 0; c < 128; c++)
+			CLASS[c] = (byte) classOf[c];
+		OTHER = classOf[128];
+		CLASSES = classes.size();
+
+		NEXT = new int[rows.size() * CLASSES];
+		for (int s = 0; s < rows.size(); s++)
+			for (int k = 0; k < CLASSES; k++)
+				NEXT[s * CLASSES + k] = classes.get(k)[s];
+
+		ACTION = new byte[rows.size()];
+		TYPE = new TokenType[rows.size()];
+		VALUE = new boolean[rows.size()];
+		for (int s = 0; s < rows.size(); s++) {
+			ACTION[s] = actions.get(s);
+			TYPE[s] = types.get(s);
+			VALUE[s] = values.get(s);
+		}
+	}
+
+	private LexerTables() {
+	}
+
+	/**
+	 * Adds a state with no outgoing transitions. Column 128 stands for every
+	 * non-ASCII character.
+	 */
+	private static int state(int action, TokenType type, boolean value) {
+		rows.add(new int[129]);
+		actions.add((byte) action);
+		types.add(type);
+		values.add(value);
+		return rows.size() - 1;
+	}
+
+	private static void edges(int from, String chars, int to) {
+		for (char c : chars.toCharArray())
+			rows.get(from)[c] = to;
+	}
+
+	/**
+	 * Inserts a keyword as a chain of states below {@code START}. Every prefix is
+	 * still an identifier: the states fall back to {@code id} on any character
+	 * that leaves the trie.
+	 */
+	private static void keyword(String word, TokenType type, int id) {
+		int current = START;
+
+		for (int i = 0; i < word.length(); i++) {
+			int next = rows.get(current)[word.charAt(i)];
+
+			if (next == id || next == DEAD) {
+				next = state(TOKEN, TokenType.ID, true);
+				edges(next, LETTERS + DIGITS, id);
+				rows.get(current)[word.charAt(i)] = next;
+			}
+
+			current = next;
+		}
+
+		actions.set(current, TOKEN);
+		types.set(current, type);
+		values.set(current, false);
+	}
+
+	private static void operator(char c, TokenType type, int opAssign) {
+		int op = state(TOKEN, type, false);
+		edges(START, String.valueOf(c), op);
+		edges(op, "=", opAssign);
+	}
+}
@@ -1,19 +1,26 @@
 package scanner;
 
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.util.Map;
 import java.util.Set;
 
 import exception.LexicalException;
 import token.*;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
 
 public class Scanner implements IScanner {
 	final char EOF = (char) -1;
+
+	/**
+	 * Trace of the scanner phase.
+	 */
+	private static final Tracer tracer = Trace.tracer(Phase.SCANNER);
+
 	private int row;
-	private PushbackReader buffer;
+	private SourceBuffer buffer;
 
 	/**
 	 * Skip character set (includes EOF) and initialization
@@ -51,13 +58,16 @@ public class Scanner implements IScanner {
 	private Token nextTk;
 
 	/**
-	 * Initializes token types and sets up file reading.
+	 * Initializes token types and sets up file reading.<br>
+	 * 
+	 * The file is loaded into a {@link SourceBuffer} when the first token is
+	 * requested.
 	 * 
 	 * @param fileName name of file to read
 	 * @throws FileNotFoundException if the file is not found
 	 */
 	public Scanner(String fileName) throws FileNotFoundException {
-		this.buffer = new PushbackReader(new FileReader(fileName));
+		this.buffer = new SourceBuffer(fileName);
 		row = 1;
 
 		skpChars = Set.of(' ', '\n', '\t', '\r', EOF);
@@ -82,8 +92,8 @@ public class Scanner implements IScanner {
 	public Token peekToken() throws LexicalException {
 		if (nextTk == null) {
 			nextTk = nextToken();
-			System.out.println("Token peeked: " + nextTk);
-			System.out.println();
+			if (tracer.isDebug())
+				tracer.debug("Token peeked: " + nextTk);
 		}
 
 		return nextTk;
@@ -116,6 +126,14 @@ public class Scanner implements IScanner {
 			return aus;
 		}
 
+		if (!buffer.isLoaded()) {
+			try {
+				buffer.load();
+			} catch (IOException e) {
+				throw new LexicalException(e.toString());
+			}
+		}
+
 		// Avanza nel buffer leggendo i carattere in skipChars
 		while (skpChars.contains(peekChar())) {
 			// incrementando riga se leggi '\n'.
@@ -128,7 +146,8 @@ public class Scanner implements IScanner {
 
 				Token token = new Token(TokenType.EOF, row);
 
-				System.out.println("End reading file.");
+				if (tracer.isInfo())
+					tracer.info("End reading file.");
 
 				return token;
 			}
@@ -136,7 +155,8 @@ public class Scanner implements IScanner {
 			readChar();
 		}
 
-		System.out.println("Peeking chars...");
+		if (tracer.isDebug())
+			tracer.debug("Peeking chars...");
 
 		while (peekChar() != '\n') {
 			/*
@@ -194,7 +214,8 @@ public class Scanner implements IScanner {
 	private Token scanId() throws LexicalException {
 		StringBuilder builder = new StringBuilder();
 
-		System.out.println("Hypotetical id detected...");
+		if (tracer.isDebug())
+			tracer.debug("Hypotetical id detected...");
 
 		if (letters.contains(peekChar())) {
 			builder.append(readChar());
@@ -225,7 +246,8 @@ public class Scanner implements IScanner {
 	private Token scanOperator() throws LexicalException {
 		StringBuilder builder = new StringBuilder();
 
-		System.out.println("Hypotetical operator detected...");
+		if (tracer.isDebug())
+			tracer.debug("Hypotetical operator detected...");
 
 		builder.append(readChar());
 
@@ -252,7 +274,8 @@ public class Scanner implements IScanner {
 		int countFloatingPoint = 0;
 		boolean lexicalError = false;
 
-		System.out.println("Hypotetical number detected...");
+		if (tracer.isDebug())
+			tracer.debug("Hypotetical number detected...");
 
 		while (digits.contains(peekChar())) {
 			builder.append(readChar());
@@ -261,7 +284,8 @@ public class Scanner implements IScanner {
 		if (peekChar() == '.') {
 			builder.append(readChar());
 
-			System.out.println("Hypotetical float number detected...");
+			if (tracer.isDebug())
+				tracer.debug("Hypotetical float number detected...");
 
 			while (digits.contains(peekChar())) {
 				builder.append(readChar());
@@ -296,30 +320,17 @@ public class Scanner implements IScanner {
 	 * Reads char and it consumes it.
 	 * 
 	 * @return read char
-	 * @throws IOException if I/O error exception while reading file
 	 */
-	private char readChar() throws LexicalException {
-		try {
-			return ((char) this.buffer.read());
-		} catch (IOException e) {
-			throw new LexicalException(e.toString());
-		}
+	private char readChar() {
+		return buffer.advance();
 	}
 
 	/**
 	 * Reads char without consuming it.
 	 * 
 	 * @return read char
-	 * @throws IOException if I/O error exception while reading file
 	 */
-	private char peekChar() throws LexicalException {
-		char c = 0;
-		try {
-			c = (char) buffer.read();
-			buffer.unread(c);
-		} catch (IOException e) {
-			throw new LexicalException(e.toString());
-		}
-		return c;
+	private char peekChar() {
+		return buffer.peek();
 	}
 }
@@ -0,0 +1,177 @@
+package scanner;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Whole source file held in memory and read through a cursor.<br>
+ *
+ * Small files are decoded once into a heap {@code char[]} with the platform
+ * charset (the same decoding {@code FileReader} performs). Files of at least
+ * {@link #MAP_THRESHOLD} bytes are memory-mapped with {@link FileChannel#map}
+ * and read byte by byte as ISO-8859-1, which is exact for AC sources since the
+ * language alphabet is plain ASCII.<br>
+ *
+ * {@link #peek()} and {@link #advance()} are plain array/buffer accesses with a
+ * bound check, so they are inlined by the JIT and cost no reader call per
+ * character.
+ */
+public final class SourceBuffer {
+	/**
+	 * Character returned past the end of the source.
+	 */
+	public static final char EOF = (char) -1;
+
+	/**
+	 * Size in bytes from which the file is memory-mapped instead of copied.
+	 */
+	public static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+
+	private final long mapThreshold;
+	private FileChannel channel;
+	private char[] chars;
+	private MappedByteBuffer bytes;
+	private int length;
+	private int pos;
+
+	/**
+	 * Opens the source file. Its content is read on the first call to
+	 * {@link #load()}.
+	 *
+	 * @param fileName name of file to read
+	 * @throws FileNotFoundException if the file is not found
+	 */
+	public SourceBuffer(String fileName) throws FileNotFoundException {
+		this(fileName, MAP_THRESHOLD);
+	}
+
+	/**
+	 * Opens the source file with a custom mapping threshold.
+	 *
+	 * @param fileName     name of file to read
+	 * @param mapThreshold size in bytes from which the file is memory-mapped
+	 * @throws FileNotFoundException if the file is not found
+	 */
+	public SourceBuffer(String fileName, long mapThreshold) throws FileNotFoundException {
+		this.channel = new FileInputStream(fileName).getChannel();
+		this.mapThreshold = mapThreshold;
+	}
+
+	/**
+	 * Returns whether the file content has already been read.
+	 *
+	 * @return true after a successful {@link #load()}
+	 */
+	public boolean isLoaded() {
+		return channel == null;
+	}
+
+	/**
+	 * Reads (or maps) the whole file and closes it.
+	 *
+	 * @throws IOException if an I/O error occurs while reading the file, or the
+	 *                     file is larger than 2 GB
+	 */
+	public void load() throws IOException {
+		try (FileChannel ch = channel) {
+			long size = ch.size();
+
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Source file too large: " + size + " bytes");
+
+			if (size >= mapThreshold) {
+				bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				length = (int) size;
+			} else {
+				ByteBuffer raw = ByteBuffer.allocate((int) size);
+
+				while (raw.hasRemaining() && ch.read(raw) >= 0)
+					;
+
+				raw.flip();
+				CharBuffer decoded = Charset.defaultCharset().decode(raw);
+				chars = decoded.array();
+				length = decoded.limit();
+			}
+		}
+
+		channel = null;
+		pos = 0;
+	}
+
+	/**
+	 * Returns the character under the cursor without consuming it.
+	 *
+	 * @return next character, or {@link #EOF} at the end of the source
+	 */
+	public char peek() {
+		return charAt(pos);
+	}
+
+	/**
+	 * Returns the character under the cursor and moves past it. At the end of the
+	 * source the cursor stays in place and {@link #EOF} is returned.
+	 *
+	 * @return consumed character, or {@link #EOF} at the end of the source
+	 */
+	public char advance() {
+		if (pos >= length)
+			return EOF;
+
+		return charAt(pos++);
+	}
+
+	/**
+	 * Returns the character at an absolute offset.
+	 *
+	 * @param index offset in the source
+	 * @return character at {@code index}, or {@link #EOF} past the end
+	 */
+	public char charAt(int index) {
+		if (index >= length)
+			return EOF;
+
+		return chars != null ? chars[index] : (char) (bytes.get(index) & 0xFF);
+	}
+
+	/**
+	 * Returns the current cursor offset.
+	 *
+	 * @return offset of the next character to be read
+	 */
+	public int position() {
+		return pos;
+	}
+
+	/**
+	 * Returns the number of characters in the source.
+	 *
+	 * @return source length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a slice of the source as a String.
+	 *
+	 * @param offset offset of the first character
+	 * @param count  number of characters
+	 * @return the text in {@code [offset, offset + count)}
+	 */
+	public String text(int offset, int count) {
+		if (chars != null)
+			return new String(chars, offset, count);
+
+		byte[] slice = new byte[count];
+		bytes.get(offset, slice, 0, count);
+		return new String(slice, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,167 @@
+package scanner;
+
+import java.util.Arrays;
+
+import exception.LexicalException;
+import token.Token;
+import token.TokenType;
+
+/**
+ * Whole token stream of a source file stored as parallel primitive arrays.<br>
+ *
+ * For each token the buffer keeps its type, row, and the offset/length of its
+ * lexeme in the {@link SourceBuffer}; no {@link Token} or String is created
+ * while scanning. The text of identifiers, numbers and {@code OP_ASSIGN}
+ * tokens is built only when {@link #text(int)} is called.<br>
+ *
+ * A buffer filled by {@link DfaScanner#tokenize()} ends either with the
+ * {@code EOF} token or, if the source has a lexical error, right before the
+ * bad token; in the latter case {@link #getError()} returns the exception the
+ * scanner raised there.
+ */
+public class TokenBuffer {
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final SourceBuffer source;
+	private byte[] types;
+	private int[] rows;
+	private int[] offsets;
+	private int[] lengths;
+	private int size;
+	private LexicalException error;
+
+	/**
+	 * Creates an empty buffer over the given source.
+	 *
+	 * @param source   source the lexemes are sliced from
+	 * @param capacity initial number of tokens
+	 */
+	public TokenBuffer(SourceBuffer source, int capacity) {
+		this.source = source;
+		capacity = Math.max(capacity, 16);
+		types = new byte[capacity];
+		rows = new int[capacity];
+		offsets = new int[capacity];
+		lengths = new int[capacity];
+	}
+
+	/**
+	 * Appends a token.
+	 *
+	 * @param type   type of the token
+	 * @param row    row of the token
+	 * @param offset offset of the lexeme in the source
+	 * @param length length of the lexeme
+	 */
+	void add(TokenType type, int row, int offset, int length) {
+		if (size == types.length) {
+			int capacity = size + (size >> 1);
+			types = Arrays.copyOf(types, capacity);
+			rows = Arrays.copyOf(rows, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+
+		types[size] = (byte) type.ordinal();
+		rows[size] = row;
+		offsets[size] = offset;
+		lengths[size] = length;
+		size++;
+	}
+
+	/**
+	 * Records the lexical error that stopped the scanning.
+	 *
+	 * @param error the exception raised by the scanner
+	 */
+	void fail(LexicalException error) {
+		this.error = error;
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return number of tokens stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the lexical error found after the last token, if any.
+	 *
+	 * @return the lexical error, or null if the buffer ends with {@code EOF}
+	 */
+	public LexicalException getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the type of a token.
+	 *
+	 * @param index index of the token
+	 * @return type of the token
+	 */
+	public TokenType type(int index) {
+		return TYPES[types[index]];
+	}
+
+	/**
+	 * Returns the row of a token.
+	 *
+	 * @param index index of the token
+	 * @return specific row in the source code where the token is located
+	 */
+	public int row(int index) {
+		return rows[index];
+	}
+
+	/**
+	 * Returns the offset of a token lexeme in the source.
+	 *
+	 * @param index index of the token
+	 * @return offset of the first character of the token
+	 */
+	public int offset(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Returns the length of a token lexeme.
+	 *
+	 * @param index index of the token
+	 * @return number of characters of the token
+	 */
+	public int length(int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * Returns the textual value of a token, built from the source on demand.
+	 *
+	 * @param index index of the token
+	 * @return the lexeme for {@code ID}, {@code INT}, {@code FLOAT} and
+	 *         {@code OP_ASSIGN} tokens, null for the other types (as
+	 *         {@link Token#getValue()})
+	 */
+	public String text(int index) {
+		switch (type(index)) {
+			case ID, INT, FLOAT, OP_ASSIGN:
+				return source.text(offsets[index], lengths[index]);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Materializes a token as a {@link Token} object.
+	 *
+	 * @param index index of the token
+	 * @return the token at {@code index}
+	 */
+	public Token token(int index) {
+		String value = text(index);
+
+		return value != null ? new Token(type(index), row(index), value) : new Token(type(index), row(index));
+	}
+}
@@ -6,6 +6,7 @@ public class Attributes {
     private LangType type;
     private String name;
     private char register;
+    private int slot = -1;
 
     /**
      * Constructor for Attributes.
@@ -58,4 +59,33 @@ public class Attributes {
     public void setRegister(char registro) {
         this.register = registro;
     }
+
+    /**
+     * Returns the index of the spill slot holding this variable.
+     * 
+     * @return the slot in {@link Registers#SPILL_ARRAY}, or -1 if the variable
+     *         lives in a register
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Moves this variable to a spill slot.
+     * 
+     * @param slot the index in {@link Registers#SPILL_ARRAY}, or -1 to keep
+     *             it in its register
+     */
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * Checks whether this variable lives in the spill array.
+     * 
+     * @return true if the variable has a spill slot
+     */
+    public boolean isSpilled() {
+        return slot >= 0;
+    }
 }
@@ -0,0 +1,90 @@
+package symbolTable;
+
+/**
+ * Live range of a variable over the statement list of a program.<br>
+ *
+ * Statements are numbered from 0 in program order; the interval goes from the
+ * declaration of the variable to the last statement that reads or writes it.
+ */
+public class LiveInterval {
+    private final String name;
+    private final int start;
+    private int end;
+    private int uses;
+    private boolean readBeforeWrite;
+    private boolean written;
+
+    /**
+     * Creates the interval of a variable declared at a statement.
+     * 
+     * @param name  the name of the variable
+     * @param start the index of the declaration
+     */
+    public LiveInterval(String name, int start) {
+        this.name = name;
+        this.start = start;
+        this.end = start;
+    }
+
+    /**
+     * Records a read of the variable.
+     * 
+     * @param statement the index of the statement reading it
+     */
+    public void read(int statement) {
+        if (!written)
+            readBeforeWrite = true;
+
+        uses++;
+        end = Math.max(end, statement);
+    }
+
+    /**
+     * Records a write of the variable.
+     * 
+     * @param statement the index of the statement writing it
+     */
+    public void write(int statement) {
+        written = true;
+        uses++;
+        end = Math.max(end, statement);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the number of reads and writes of the variable, the weight used
+     * to decide which variables are spilled.
+     * 
+     * @return the number of uses
+     */
+    public int getUses() {
+        return uses;
+    }
+
+    /**
+     * Returns whether the variable is read before its first assignment, so its
+     * register must hold 0 (the value of an empty dc register) when the
+     * interval starts.
+     * 
+     * @return true if the value before any assignment is observed
+     */
+    public boolean isReadBeforeWrite() {
+        return readBeforeWrite;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + start + ", " + end + "]";
+    }
+}
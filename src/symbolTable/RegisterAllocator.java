@@ -0,0 +1,140 @@
+package symbolTable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import exception.CodeGeneratorException;
+
+/**
+ * Linear scan register allocation with spilling.<br>
+ *
+ * The live intervals are visited by increasing start; before an interval is
+ * given a storage, the intervals ending before its start are expired and
+ * their registers (or spill slots) are released. Variables whose lives do not
+ * overlap can therefore share a register.<br>
+ *
+ * Storage comes in tiers: the lowercase registers, then the extended register
+ * names of {@link Registers}, then the slots of the dc array
+ * {@link Registers#SPILL_ARRAY} ({@code n ;@} and {@code n :@}), which cost
+ * an extra push at every use. When no register is free, the live variable with
+ * the fewest uses (the new one included) goes to a slot for its whole life, so
+ * the most used variables stay in registers. Slots are unbounded, so the
+ * allocation always succeeds.<br>
+ *
+ * Fresh registers are preferred over released ones, so programs that fit in
+ * the register set keep one register per variable.
+ */
+public class RegisterAllocator {
+    private final Set<String> resets = new HashSet<>();
+    private int spillCount;
+
+    /**
+     * Assigns a register or a spill slot to every variable with an interval,
+     * storing it in the {@link SymbolTable}. {@link Registers#init()} must have
+     * been called.
+     *
+     * @param intervals the intervals sorted by start
+     * @throws CodeGeneratorException if a register cannot be handed out
+     */
+    public void allocate(List<LiveInterval> intervals) throws CodeGeneratorException {
+        PriorityQueue<LiveInterval> active = new PriorityQueue<>(
+                (a, b) -> Integer.compare(a.getEnd(), b.getEnd()));
+        PriorityQueue<LiveInterval> spilled = new PriorityQueue<>(
+                (a, b) -> Integer.compare(a.getEnd(), b.getEnd()));
+        PriorityQueue<Integer> freeSlots = new PriorityQueue<>();
+        Set<Character> usedRegisters = new HashSet<>();
+        int slots = 0;
+
+        for (LiveInterval interval : intervals) {
+            Attributes attributes = SymbolTable.lookup(interval.getName());
+
+            if (attributes == null)
+                continue;
+
+            while (!active.isEmpty() && active.peek().getEnd() < interval.getStart())
+                Registers.release(SymbolTable.lookup(active.poll().getName()).getRegister());
+
+            while (!spilled.isEmpty() && spilled.peek().getEnd() < interval.getStart())
+                freeSlots.add(SymbolTable.lookup(spilled.poll().getName()).getSlot());
+
+            LiveInterval victim = interval;
+
+            if (Registers.available()) {
+                char register = Registers.newRegister();
+
+                if (!usedRegisters.add(register))
+                    reset(interval);
+
+                attributes.setRegister(register);
+                attributes.setSlot(-1);
+                active.add(interval);
+                continue;
+            }
+
+            LiveInterval coldest = coldest(active);
+
+            if (coldest != null && coldest.getUses() < interval.getUses()) {
+                active.remove(coldest);
+                attributes.setRegister(SymbolTable.lookup(coldest.getName()).getRegister());
+                attributes.setSlot(-1);
+                reset(interval);
+                active.add(interval);
+                victim = coldest;
+            }
+
+            boolean reused = !freeSlots.isEmpty();
+            int slot = reused ? freeSlots.poll() : slots++;
+
+            resets.remove(victim.getName());
+            if (reused)
+                reset(victim);
+
+            SymbolTable.lookup(victim.getName()).setSlot(slot);
+            spilled.add(victim);
+            spillCount++;
+        }
+    }
+
+    /**
+     * Checks whether a variable got a storage previously used by another
+     * variable while its value before the first assignment is read: its
+     * declaration must then clear the storage.
+     *
+     * @param name the name of the variable
+     * @return true if the storage must be set to 0 at the declaration
+     */
+    public boolean needsReset(String name) {
+        return resets.contains(name);
+    }
+
+    /**
+     * Returns the number of variables moved to the spill array.
+     *
+     * @return the number of spilled variables
+     */
+    public int getSpillCount() {
+        return spillCount;
+    }
+
+    private void reset(LiveInterval interval) {
+        if (interval.isReadBeforeWrite())
+            resets.add(interval.getName());
+    }
+
+    /**
+     * Finds the register variable with the fewest uses; among equals, the one
+     * ending last, which would hold its register longest.
+     */
+    private static LiveInterval coldest(PriorityQueue<LiveInterval> active) {
+        LiveInterval coldest = null;
+
+        for (LiveInterval interval : active)
+            if (coldest == null || interval.getUses() < coldest.getUses()
+                    || interval.getUses() == coldest.getUses() && interval.getEnd() > coldest.getEnd())
+                coldest = interval;
+
+        return coldest;
+    }
+}
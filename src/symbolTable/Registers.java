@@ -1,32 +1,70 @@
 package symbolTable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 import exception.CodeGeneratorException;
 
 public class Registers {
+    /**
+     * Register holding the dc array used as spill area.
+     */
+    public static final char SPILL_ARRAY = '@';
+
     static ArrayList<Character> characters;
+    static ArrayDeque<Character> released;
 
     /**
      * Initializes the list of available registers.
      * This method should be called before generating new code to ensure
      * that all registers are available for use.
+     * The lowercase letters come first, then the extended register names
+     * ('A'-'Z', '0'-'9'), which dc accepts as well.
      */
     public static void init() {
         characters = new ArrayList<>();
+        released = new ArrayDeque<>();
 
         for (char c = 'a'; c <= 'z'; c++)
             characters.add(c);
+        for (char c = 'A'; c <= 'Z'; c++)
+            characters.add(c);
+        for (char c = '0'; c <= '9'; c++)
+            characters.add(c);
     }
 
     /**
-     * Resets the list of available registers.
-     * This method should be called before generating new code to ensure
-     * that all registers are available for use.
+     * Checks whether a register can be handed out.
+     * 
+     * @return true if {@link #newRegister()} would succeed
+     */
+    public static boolean available() {
+        return !characters.isEmpty() || !released.isEmpty();
+    }
+
+    /**
+     * Returns a free register.
+     * Registers never used are handed out first, in alphabetical order; then
+     * the released ones, in the order they were released.
+     * 
+     * @return the register
+     * @throws CodeGeneratorException if every register is in use
      */
     public static char newRegister() throws CodeGeneratorException {
-        if (characters.isEmpty())
-            throw new CodeGeneratorException("No more registers available");
-        return characters.remove(0);
+        if (!characters.isEmpty())
+            return characters.remove(0);
+        if (!released.isEmpty())
+            return released.poll();
+        throw new CodeGeneratorException("No more registers available");
+    }
+
+    /**
+     * Gives back a register whose variable is no longer live, so that it can be
+     * assigned to another variable.
+     * 
+     * @param register the register to release
+     */
+    public static void release(char register) {
+        released.add(register);
     }
 }
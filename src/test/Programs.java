@@ -0,0 +1,86 @@
+package test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import ast.NodeProgram;
+import exception.LexicalException;
+import exception.SyntacticException;
+import optimizer.DcArithmetic;
+import optimizer.ProgramEvaluator;
+import parser.Parser;
+import scanner.DfaScanner;
+import scanner.Scanner;
+import visitor.TypeCheckingVisitor;
+
+/**
+ * Programs shared by the tests of the backends.<br>
+ *
+ * The long chain checks that a phase does not recurse on the length of an
+ * expression: {@code x} is a chain of {@value #CHAIN_TERMS} terms
+ * ({@code a + 1 + 2 * a - a + 4 ...}), then divided by a float.
+ */
+final class Programs {
+    static final int CHAIN_TERMS = 100_000;
+
+    private static String chainOutput;
+
+    private Programs() {
+    }
+
+    /**
+     * Parses and type checks a program file.
+     *
+     * @param path the file of the program
+     * @return the tree of the program
+     */
+    static NodeProgram parse(String path) throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        nP.accept(new TypeCheckingVisitor());
+        return nP;
+    }
+
+    /**
+     * Writes, parses and type checks the long chain.
+     *
+     * @return the tree of the program
+     */
+    static NodeProgram longChain() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("chain", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.print("int a = 3;\nint x = a");
+            for (int i = 1; i < CHAIN_TERMS; i++)
+                pw.print(i % 3 == 0 ? " * a - a" : " + " + i);
+            pw.println(";\nfloat f = x / 7.0;\nprint x;\nprint f;");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        return nP;
+    }
+
+    /**
+     * Returns the output of the long chain, computed once by the
+     * {@link ProgramEvaluator}.
+     *
+     * @return the printed values, one per line
+     */
+    static synchronized String longChainOutput() throws IOException, SyntacticException, LexicalException {
+        if (chainOutput == null) {
+            var evaluator = new ProgramEvaluator();
+            longChain().accept(evaluator);
+            StringBuilder printed = new StringBuilder();
+
+            for (String value : evaluator.getPrinted())
+                printed.append(DcArithmetic.display(DcArithmetic.parse(value))).append('\n');
+
+            chainOutput = printed.toString();
+        }
+
+        return chainOutput;
+    }
+}
@@ -3,15 +3,31 @@ package test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
 
 import org.junit.jupiter.api.Test;
 
+import ast.LangOper;
 import ast.NodeProgram;
+import emitter.DcEmitter;
+import emitter.PeepholeRules;
 import exception.LexicalException;
 import exception.SyntacticException;
 import parser.Parser;
+import scanner.DfaScanner;
 import scanner.Scanner;
+import symbolTable.SymbolTable;
 import token.Token;
 import token.TokenType;
 import visitor.CodeGeneratorVisitor;
@@ -40,7 +56,7 @@ public class TestCodeGenerator {
 
         assertEquals(cgVisit.getLog(), "");
         assertEquals(
-                "0 sa la 1 + sa 6 sb 1.0 6 5 k / 0 k la lb / + sc la p P lb p P lc p P", cgVisit.getGeneratedCode());
+                "0 sa la 1 + sa 6 sb 1.0 6 5 k / la lb 0 k / + sc la p P lb p P lc p P", cgVisit.getGeneratedCode());
     }
 
     @Test
@@ -52,7 +68,7 @@ public class TestCodeGenerator {
         nP.accept(cgVisit);
 
         assertEquals(cgVisit.getLog(), "");
-        assertEquals("5 3 + sa la 0.5 + sb la p P lb 4 5 k / 0 k sb lb p P lb 1 - sc lc lb * sc lc p P",
+        assertEquals("5 3 + sa la 0.5 + sb la p P lb 4 5 k / sb lb p P lb 1 - sc lc lb 0 k * sc lc p P",
         cgVisit.getGeneratedCode());
     }
 
@@ -64,7 +80,324 @@ public class TestCodeGenerator {
         var cgVisit = new CodeGeneratorVisitor();
         nP.accept(cgVisit);
 
-        assertEquals("No more registers available", cgVisit.getLog());
-        assertEquals("", cgVisit.getGeneratedCode());
+        assertEquals("", cgVisit.getLog());
+        assertEquals("6 2 / sa la p P 9 2 / sb lb p P", cgVisit.getGeneratedCode());
+        assertEquals('A', SymbolTable.lookup("uno").getRegister());
+    }
+
+    @Test
+    void testRegistriRiusati() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("temps", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("int acc = 0;");
+            for (int i = 0; i < 5_000; i++)
+                pw.println("int t" + i + " = acc + " + i + ";\nacc = t" + i + " * 2;");
+            pw.println("int z;\nacc = acc + z;\nprint acc;");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        String code = cgVisit.getGeneratedCode();
+        assertTrue(code.startsWith("0 sa la 0 + sb lb 2 * sa la 1 + sc lc 2 * sa"));
+        assertEquals(0, cgVisit.getSpillCount());
+        assertTrue(code.endsWith(" 0 s" + SymbolTable.lookup("z").getRegister() + " la l"
+                + SymbolTable.lookup("z").getRegister() + " + sa la p P"));
+    }
+
+    @Test
+    void testRegistriEstesi() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("live", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (int i = 0; i < 27; i++)
+                pw.println("int v" + i + " = " + i + ";");
+            for (int i = 0; i < 27; i++)
+                pw.println("print v" + i + ";");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(0, cgVisit.getSpillCount());
+        assertEquals('z', SymbolTable.lookup("v25").getRegister());
+        assertEquals('A', SymbolTable.lookup("v26").getRegister());
+        assertTrue(cgVisit.getGeneratedCode().endsWith("lz p P lA p P"));
+    }
+
+    @Test
+    void testSpill() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("spill", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (int i = 0; i < 100; i++)
+                pw.println("int v" + i + " = " + i + ";");
+            pw.println("int hot = 1;");
+            for (int i = 0; i < 10; i++)
+                pw.println("hot += hot;");
+            for (int i = 0; i < 100; i++)
+                pw.println("print v" + i + ";");
+            pw.println("int w;\nw += 1;\nprint w;\nprint hot;");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(39, cgVisit.getSpillCount());
+        assertTrue(!SymbolTable.lookup("hot").isSpilled());
+        assertTrue(SymbolTable.lookup("v99").isSpilled());
+
+        String code = cgVisit.getGeneratedCode();
+        int slot = SymbolTable.lookup("v99").getSlot();
+        assertTrue(code.contains("99 " + slot + " :@"));
+        assertTrue(code.contains(slot + " ;@ p P"));
+
+        char w = SymbolTable.lookup("w").getRegister();
+        assertTrue(code.endsWith("0 s" + w + " l" + w + " 1 + s" + w + " l" + w + " p P l"
+                + SymbolTable.lookup("hot").getRegister() + " p P"));
+    }
+
+    @Test
+    void testAssociativita() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/TestCodeGenerator/5_associativita.txt")).parse();
+        var tcVisit = new TypeCheckingVisitor();
+        nP.accept(tcVisit);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals(cgVisit.getLog(), "");
+        assertEquals("10 4 - 3 - sa 100 10 / 5 / sb lb 2 * 4.0 5 k / la r - 1 - sc la p P lb p P lc p P",
+                cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testLongChain() throws IOException, SyntacticException, LexicalException {
+        NodeProgram nP = Programs.longChain();
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals(cgVisit.getLog(), "");
+        assertTrue(maxStackDepth(cgVisit.getGeneratedCode()) <= 3);
+        assertEquals(maxStackDepth(cgVisit.getGeneratedCode()), cgVisit.getMaxStackDepth());
+    }
+
+    @Test
+    void testOrdineOperandi() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/TestCodeGenerator/6_ordine.txt")).parse();
+        var tcVisit = new TypeCheckingVisitor();
+        nP.accept(tcVisit);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals("8 sa 3 sb lb 2 * la r - sc lb lc * la + sd lb 2.0 5 k / la r - se lc p P ld p P le p P",
+                cgVisit.getGeneratedCode());
+        assertEquals(List.of(1, 1, 2, 2, 3, 1, 1, 1), cgVisit.getStackDepths());
+        assertEquals(3, cgVisit.getMaxStackDepth());
+    }
+
+    @Test
+    void testPeephole() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/TestCodeGenerator/7_peephole.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals("1.0 3 5 k / sa la 2 / 4 / sb 5 sc 6 sc la p P lb p P lc p P",
+                cgVisit.getGeneratedCode());
+
+        DcEmitter emitter = new DcEmitter();
+        emitter.setPeepholeRules(PeepholeRules.defaults());
+        nP.accept(new CodeGeneratorVisitor(emitter));
+
+        assertEquals("1.0 3 5 k / d sa 2 / 4 / sb 6 sc la p P lb p P lc p P", emitter.getCode());
+        assertEquals(2, emitter.getRewriteCount());
+
+        emitter = new DcEmitter();
+        emitter.setPeepholeRules(PeepholeRules.defaults());
+        emitter.number("5");
+        emitter.store('a');
+        emitter.resetMaxDepth();
+        emitter.load('a');
+        emitter.print();
+
+        assertEquals("5 d sa p P", emitter.getCode());
+        assertEquals(2, emitter.getMaxDepth());
+    }
+
+    @Test
+    void testMacro() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("macro", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("int a = 1;\nfloat b = 0.5;");
+            for (int i = 0; i < 2000; i++)
+                pw.println("a = a + 1;\nb = b * 2 - a / 3.0;\nprint b;");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+        String plain = cgVisit.getGeneratedCode();
+
+        DcEmitter emitter = new DcEmitter();
+        emitter.setMacroExtraction(true);
+        nP.accept(new CodeGeneratorVisitor(emitter));
+        String code = emitter.getCode();
+
+        assertTrue(emitter.getMacroCount() > 0);
+        assertTrue(code.length() * 20 < plain.length(), code);
+        assertEquals(plain, expandMacros(code));
+
+        DcEmitter minified = new DcEmitter();
+        minified.setMacroExtraction(true);
+        minified.setMinified(true);
+        nP.accept(new CodeGeneratorVisitor(minified));
+
+        assertTrue(minified.getCode().length() < code.length());
+    }
+
+    @Test
+    void testMinified() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/TestCodeGenerator/2_divsioni.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        DcEmitter emitter = new DcEmitter();
+        emitter.setMinified(true);
+        nP.accept(new CodeGeneratorVisitor(emitter));
+
+        assertEquals("0sala1+sa6sb1.0 6 5k/lalb0k/+sclapPlbpPlcpP", emitter.getCode());
+
+        emitter = new DcEmitter();
+        emitter.setMinified(true);
+        emitter.number("0.50");
+        emitter.store('a');
+        emitter.number("-0.0");
+        emitter.number("007");
+        emitter.number("-3.");
+        emitter.operator(LangOper.PLUS);
+        emitter.operator(LangOper.MINUS);
+        emitter.command("x");
+
+        assertEquals(".50sa.0 7 _3+-x", emitter.getCode());
+    }
+
+    @Test
+    void testStreamingEmitter() throws IOException, SyntacticException, LexicalException {
+        for (File file : new File("src/test/data/testCodeGenerator").listFiles()) {
+            NodeProgram nP = new Parser(new Scanner(file.getPath())).parse();
+            nP.accept(new TypeCheckingVisitor());
+            var cgVisit = new CodeGeneratorVisitor();
+            nP.accept(cgVisit);
+
+            if (!cgVisit.getLog().isEmpty())
+                continue;
+
+            StringWriter out = new StringWriter();
+            try (DcEmitter emitter = new DcEmitter(out)) {
+                nP.accept(new CodeGeneratorVisitor(emitter));
+            }
+
+            assertEquals(cgVisit.getGeneratedCode(), out.toString(), file.getPath());
+        }
+    }
+
+    @Test
+    void testStreamingToFile() throws IOException, SyntacticException, LexicalException {
+        File file = File.createTempFile("stream", ".txt");
+        File dc = File.createTempFile("stream", ".dc");
+        file.deleteOnExit();
+        dc.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("int a = 1;");
+            for (int i = 1; i < 200_000; i++)
+                pw.println(i % 2 == 0 ? "a += 2;" : "print a;");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+
+        try (FileChannel channel = FileChannel.open(dc.toPath(), StandardOpenOption.WRITE);
+                DcEmitter emitter = new DcEmitter(channel)) {
+            var cgVisit = new CodeGeneratorVisitor(emitter);
+            nP.accept(cgVisit);
+            assertTrue(dc.length() > emitter.length() - 2 * DcEmitter.FLUSH_THRESHOLD);
+            assertEquals(List.of(), cgVisit.getStackDepths());
+            assertEquals(2, cgVisit.getMaxStackDepth());
+        }
+
+        String code = Files.readString(dc.toPath());
+        assertTrue(code.startsWith("1 sa la p P la 2 + sa la p P"));
+        assertTrue(code.endsWith("la p P"));
+        assertEquals(100_000, code.split(" p P").length);
+    }
+
+    /**
+     * Replaces the macro calls ({@code lX x}) of dc code with the bodies of
+     * the macros defined at its start.
+     */
+    private static String expandMacros(String code) {
+        Map<Character, String> macros = new HashMap<>();
+        int i = 0;
+
+        while (code.startsWith("[", i)) {
+            int end = code.indexOf(']', i);
+            macros.put(code.charAt(end + 3), code.substring(i + 1, end));
+            i = end + 5;
+        }
+
+        return expand(code.substring(i), macros);
+    }
+
+    private static String expand(String code, Map<Character, String> macros) {
+        StringJoiner out = new StringJoiner(" ");
+        String[] ops = code.split(" ");
+
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i].length() == 2 && ops[i].charAt(0) == 'l' && macros.containsKey(ops[i].charAt(1))
+                    && i + 1 < ops.length && ops[i + 1].equals("x")) {
+                out.add(expand(macros.get(ops[i].charAt(1)), macros));
+                i++;
+            } else {
+                out.add(ops[i]);
+            }
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Simulates the dc stack depth of the generated code.
+     */
+    private static int maxStackDepth(String code) {
+        int depth = 0;
+        int max = 0;
+
+        for (String op : code.split(" ")) {
+            if (Character.isDigit(op.charAt(0)) || op.charAt(0) == 'l' || op.equals("d"))
+                depth++;
+            else if (op.charAt(0) != 'p' && !op.equals("r"))
+                depth--;
+
+            max = Math.max(max, depth);
+        }
+
+        return max;
     }
 }
@@ -0,0 +1,66 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import exception.InterpreterException;
+import exception.LexicalException;
+import exception.SyntacticException;
+import interpreter.Interpreter;
+import optimizer.DcArithmetic;
+
+public class TestInterpreter {
+    @Test
+    void testTipi() throws FileNotFoundException, SyntacticException, InterpreterException {
+        Interpreter interpreter = Interpreter.compile(Programs.parse("src/test/data/testInterpreter/1_tipi.txt"));
+
+        assertEquals("3\n3.50000\n5.25000\n.50\n-.50\n0\n-7\n1.75000\n0\n", interpreter.run());
+        assertEquals(0, interpreter.getRewriteCount());
+    }
+
+    @Test
+    void testOverflow() throws FileNotFoundException, SyntacticException, InterpreterException {
+        Interpreter interpreter = Interpreter.compile(Programs.parse("src/test/data/testInterpreter/2_overflow.txt"));
+        String expected = "1000000000000000000000000\n1000000\n1881676377413297425304778.607\n"
+                + "1881676377413297425304.77860\n";
+
+        assertEquals(expected, interpreter.run());
+        assertEquals(5, interpreter.getRewriteCount());
+        assertEquals(expected, interpreter.run());
+        assertEquals(5, interpreter.getRewriteCount());
+    }
+
+    @Test
+    void testDivisionByZero() throws FileNotFoundException, SyntacticException {
+        Interpreter interpreter = Interpreter.compile(Programs.parse("src/test/data/testInterpreter/3_zero.txt"));
+        StringBuilder out = new StringBuilder();
+
+        InterpreterException e = assertThrows(InterpreterException.class, () -> interpreter.run(out));
+        assertEquals("Division by zero in statement 4", e.getMessage());
+        assertEquals("4\n", out.toString());
+    }
+
+    @Test
+    void testDisplay() {
+        assertEquals(".5", DcArithmetic.display(DcArithmetic.parse("0.5")));
+        assertEquals("-.05", DcArithmetic.display(DcArithmetic.parse("_0.05")));
+        assertEquals("0", DcArithmetic.display(DcArithmetic.parse("0.000")));
+        assertEquals("12.30", DcArithmetic.display(DcArithmetic.parse("12.30")));
+        assertEquals("1".repeat(69) + "\\\n" + "1".repeat(69) + "\\\n" + "11",
+                DcArithmetic.display(DcArithmetic.parse("1".repeat(140))));
+    }
+
+    @Test
+    void testLongChain() throws IOException, SyntacticException, LexicalException, InterpreterException {
+        Interpreter interpreter = Interpreter.compile(Programs.longChain());
+
+        assertEquals(Programs.longChainOutput(), interpreter.run());
+        assertEquals(395, interpreter.getSlotCount());
+        assertEquals(0, interpreter.getRewriteCount());
+    }
+}
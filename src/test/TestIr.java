@@ -0,0 +1,154 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ast.LangOper;
+import ast.LangType;
+import ast.NodeProgram;
+import emitter.DcEmitter;
+import exception.CodeGeneratorException;
+import exception.IrException;
+import exception.LexicalException;
+import exception.SyntacticException;
+import ir.IrBuilder;
+import ir.IrConstantFolding;
+import ir.IrDeadCodeElimination;
+import ir.IrInstruction;
+import ir.IrLowering;
+import ir.IrProgram;
+import ir.IrValueNumbering;
+import ir.IrVerifier;
+import parser.Parser;
+import scanner.Scanner;
+import visitor.TypeCheckingVisitor;
+
+public class TestIr {
+    @Test
+    void testBuilder() throws FileNotFoundException, SyntacticException, IrException {
+        IrProgram program = build("src/test/data/testIr/1_ssa.txt");
+
+        IrVerifier.verify(program);
+        assertEquals("%0 = const INT 5    ; a.0\n"
+                + "%1 = const INT 2\n"
+                + "%2 = TIMES INT %0, %1    ; b.0\n"
+                + "%3 = PLUS INT %2, %0    ; a.1\n"
+                + "%4 = copy FLOAT %3    ; c.0\n"
+                + "print %4    ; c\n"
+                + "%6 = const INT 1\n"
+                + "%7 = MINUS INT %3, %6    ; a.2\n"
+                + "print %7    ; a\n", program.toString());
+    }
+
+    @Test
+    void testVerifier() {
+        IrProgram forward = new IrProgram();
+        forward.add(IrInstruction.binary(LangOper.PLUS, LangType.INT, 1, 1));
+        forward.add(IrInstruction.constant(LangType.INT, "1"));
+        assertThrows(IrException.class, () -> IrVerifier.verify(forward));
+
+        IrProgram mixed = new IrProgram();
+        mixed.add(IrInstruction.constant(LangType.FLOAT, "1.5"));
+        mixed.add(IrInstruction.binary(LangOper.PLUS, LangType.INT, 0, 0));
+        assertThrows(IrException.class, () -> IrVerifier.verify(mixed));
+
+        IrProgram narrowing = new IrProgram();
+        narrowing.add(IrInstruction.constant(LangType.FLOAT, "1.5"));
+        narrowing.add(IrInstruction.copy(LangType.INT, 0));
+        assertThrows(IrException.class, () -> IrVerifier.verify(narrowing));
+
+        IrProgram printed = new IrProgram();
+        printed.add(IrInstruction.constant(LangType.INT, "1"));
+        printed.add(IrInstruction.print(0));
+        printed.add(IrInstruction.print(1));
+        assertThrows(IrException.class, () -> IrVerifier.verify(printed));
+
+        IrProgram versions = new IrProgram();
+        versions.add(IrInstruction.constant(LangType.INT, "1"));
+        versions.get(0).setVariable("a", 1);
+        versions.add(IrInstruction.constant(LangType.INT, "2"));
+        versions.get(1).setVariable("a", 0);
+        assertThrows(IrException.class, () -> IrVerifier.verify(versions));
+
+        IrProgram literal = new IrProgram();
+        literal.add(IrInstruction.constant(LangType.INT, "1x"));
+        assertThrows(IrException.class, () -> IrVerifier.verify(literal));
+    }
+
+    @Test
+    void testLowering() throws FileNotFoundException, SyntacticException, CodeGeneratorException {
+        assertEquals("5 2 * 5 + sa la p P la 1 - p P", lower(build("src/test/data/testIr/1_ssa.txt")));
+        assertEquals("5 3 + sa la p P la 0.5 + 4 5 k / sb lb p P lb 1 - lb 0 k * p P",
+                lower(build("src/test/data/testIr/2_generale.txt")));
+        assertEquals("7 3 * sa 7 3 * la + sb 7 0 / sc lb p P lb 7 / 2.0 5 k / p P",
+                lower(build("src/test/data/testIr/3_passi.txt")));
+    }
+
+    @Test
+    void testPasses() throws FileNotFoundException, SyntacticException, IrException, CodeGeneratorException {
+        IrProgram program = build("src/test/data/testIr/3_passi.txt");
+        var folding = new IrConstantFolding();
+        var numbering = new IrValueNumbering();
+        var dead = new IrDeadCodeElimination();
+
+        folding.run(program);
+        IrVerifier.verify(program);
+        numbering.run(program);
+        IrVerifier.verify(program);
+        dead.run(program);
+        IrVerifier.verify(program);
+
+        assertEquals(6, folding.getFoldCount());
+        assertEquals("%0 = const INT 7    ; x.0\n"
+                + "%1 = const INT 42    ; z.0\n"
+                + "%2 = const FLOAT 3.00000    ; f.0\n"
+                + "%3 = const INT 0\n"
+                + "%4 = DIV INT %0, %3    ; q.0\n"
+                + "print %1    ; z\n"
+                + "print %2    ; f\n", program.toString());
+        assertEquals("7 0 / sa 42 p P 3.00000 p P", lower(program));
+
+        program = build("src/test/data/testIr/2_generale.txt");
+        new IrConstantFolding().run(program);
+        new IrValueNumbering().run(program);
+        new IrDeadCodeElimination().run(program);
+        IrVerifier.verify(program);
+        assertEquals("8 p P 2.12500 p P 2.39062 p P", lower(program));
+    }
+
+    @Test
+    void testLongChain() throws IOException, SyntacticException, LexicalException, IrException,
+            CodeGeneratorException {
+        NodeProgram nP = Programs.longChain();
+        var builder = new IrBuilder();
+        nP.accept(builder);
+        IrProgram program = builder.getProgram();
+        IrVerifier.verify(program);
+
+        var dead = new IrDeadCodeElimination();
+        dead.run(program);
+        IrVerifier.verify(program);
+        assertEquals(0, dead.getRemovedCount());
+        assertTrue(lower(program).endsWith("p P"));
+    }
+
+    private static IrProgram build(String path) throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var builder = new IrBuilder();
+        nP.accept(builder);
+        return builder.getProgram();
+    }
+
+    private static String lower(IrProgram program) throws CodeGeneratorException {
+        var emitter = new DcEmitter();
+        new IrLowering(emitter).lower(program);
+        return emitter.getCode();
+    }
+}
@@ -0,0 +1,120 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import ast.NodeProgram;
+import exception.InterpreterException;
+import exception.LexicalException;
+import exception.SyntacticException;
+import interpreter.Interpreter;
+import jvm.JvmProgram;
+import parser.Parser;
+import scanner.DfaScanner;
+import visitor.TypeCheckingVisitor;
+import vm.BytecodeCompiler;
+
+public class TestJvm {
+    @Test
+    void testTipi() throws FileNotFoundException, SyntacticException, InterpreterException {
+        NodeProgram nP = Programs.parse("src/test/data/testInterpreter/1_tipi.txt");
+        JvmProgram program = JvmProgram.compile(nP);
+
+        assertEquals(Interpreter.compile(nP).run(), program.run());
+        assertTrue(program.hasFastPath());
+        assertFalse(program.isChunked());
+        assertEquals(0, program.getFallbackCount());
+
+        ByteBuffer classFile = ByteBuffer.wrap(program.getClassFile());
+        assertEquals(0xCAFEBABE, classFile.getInt());
+        assertEquals(0, classFile.getShort());
+        assertEquals(52, classFile.getShort());
+    }
+
+    @Test
+    void testOverflow() throws FileNotFoundException, SyntacticException, InterpreterException {
+        NodeProgram nP = Programs.parse("src/test/data/testInterpreter/2_overflow.txt");
+        JvmProgram program = JvmProgram.compile(nP);
+        String expected = Interpreter.compile(nP).run();
+
+        assertEquals(expected, program.run());
+        assertEquals(1, program.getFallbackCount());
+        assertFalse(program.hasFastPath());
+        assertEquals(expected, program.run());
+        assertEquals(1, program.getFallbackCount());
+    }
+
+    @Test
+    void testDivisionByZero() throws FileNotFoundException, SyntacticException {
+        JvmProgram program = JvmProgram.compile(Programs.parse("src/test/data/testInterpreter/3_zero.txt"));
+        StringBuilder out = new StringBuilder();
+
+        InterpreterException e = assertThrows(InterpreterException.class, () -> program.run(out));
+        assertTrue(e.getMessage().startsWith("Division by zero"));
+        assertEquals("4\n", out.toString());
+    }
+
+    @Test
+    void testLongChain() throws IOException, SyntacticException, LexicalException, InterpreterException {
+        JvmProgram program = JvmProgram.compile(Programs.longChain());
+
+        assertTrue(program.isChunked());
+        assertTrue(program.hasFastPath());
+        assertEquals(Programs.longChainOutput(), program.run());
+        assertEquals(Programs.longChainOutput(), program.run());
+        assertEquals(0, program.getFallbackCount());
+    }
+
+    @Test
+    void testManyRegisters() throws IOException, SyntacticException, LexicalException, InterpreterException,
+            InterruptedException, ExecutionException {
+        File file = File.createTempFile("registers", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (int i = 0; i < 20_000; i++)
+                pw.println(i % 2 == 0 ? "int v" + i + " = " + i + ";" : "float v" + i + " = v" + (i - 1) + " / 4.0;");
+            for (int i = 0; i < 20_000; i += 999)
+                pw.println("print v" + i + ";");
+        }
+
+        NodeProgram nP = new Parser(new DfaScanner(file.getPath()).tokenize()).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var compiler = new BytecodeCompiler();
+        nP.accept(compiler);
+        JvmProgram program = JvmProgram.compile(compiler.getBytecode());
+        String expected = Interpreter.compile(nP).run();
+
+        assertTrue(compiler.getBytecode().getRegisterCount() > 10_000);
+        assertTrue(program.isChunked());
+        assertTrue(program.hasFastPath());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<String>> runs = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                runs.add(executor.submit(() -> program.run()));
+            for (Future<String> run : runs)
+                assertEquals(expected, run.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
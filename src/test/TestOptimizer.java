@@ -0,0 +1,305 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ast.LangOper;
+import ast.NodeProgram;
+import emitter.DcEmitter;
+import exception.CodeGeneratorException;
+import exception.IrException;
+import exception.SyntacticException;
+import ir.IrConstantFolding;
+import ir.IrLowering;
+import ir.IrProgram;
+import optimizer.CommonSubexpressionVisitor;
+import optimizer.ConstantFoldingVisitor;
+import optimizer.CopyPropagationVisitor;
+import optimizer.DeadStoreVisitor;
+import optimizer.DcArithmetic;
+import optimizer.OptimizationLevel;
+import optimizer.PassManager;
+import optimizer.PassStatistics;
+import optimizer.ProgramEvaluator;
+import optimizer.SimplificationVisitor;
+import optimizer.Superoptimizer;
+import parser.Parser;
+import scanner.Scanner;
+import visitor.CodeGeneratorVisitor;
+import visitor.TypeCheckingVisitor;
+
+public class TestOptimizer {
+    @Test
+    void testFolding() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/1_folding.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var folding = new ConstantFoldingVisitor();
+        nP.accept(folding);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(9, folding.getFoldCount());
+        assertEquals("11 sa 2.53333 sb 4 sc _7 sd la 1 + 2 + se 1 0 / sf 1.0 sg ld 2 / sd "
+                + "la p P lb p P lc p P ld p P le p P lg p P", cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testFoldingGenerale() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testCodeGenerator/3_generale.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        nP.accept(new ConstantFoldingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("8 sa la 0.5 + sb la p P lb 4 5 k / sb lb p P lb 1 - sc lc lb 0 k * sc lc p P",
+                cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testSimplification() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/2_simplificazione.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var simplification = new SimplificationVisitor();
+        nP.accept(simplification);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(12, simplification.getRewriteCount());
+        assertEquals("3 sa 1.5 sb la sc lb sd 0 se la sf 0 sg la d + sh lb d + si lb 0 * sj lb lb - sk "
+                + "lb 1 5 k / sl la d + d + sm la 0 0 k / 0 * sn la 1.0 * so lm p P", cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testCommonSubexpressions() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/3_cse.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cse = new CommonSubexpressionVisitor();
+        nP.accept(cse);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(2, cse.getTempCount());
+        assertEquals(4, cse.getReuseCount());
+        assertEquals("2 sa 3 sb la lb * sc lc d + sd lc 1 - se lc sa la lb * sf lf sg "
+                + "la 2.0 5 k / lf + sh lg le 0 k / lg le / + si ld p P", cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testCommonSubexpressionsSharedOperand() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/7_condivisi.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        nP.accept(new SimplificationVisitor());
+        var cse = new CommonSubexpressionVisitor();
+        nP.accept(cse);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(0, cse.getTempCount());
+        assertEquals("4 sa 14 la * la / 3 * 15 / d + sb lb p P", cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testCopyPropagationDeadStores() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/4_copie.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var copies = new CopyPropagationVisitor();
+        nP.accept(copies);
+        var deadStores = new DeadStoreVisitor();
+        nP.accept(deadStores);
+        var cgVisit = new CodeGeneratorVisitor();
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        assertEquals(2, copies.getPropagatedCount());
+        assertEquals(5, deadStores.getRemovedStores());
+        assertEquals(3, deadStores.getRemovedDeclarations());
+        assertEquals(10, nP.getDecSts().size());
+        assertEquals("4 3 * sa 2.5 sb la sc lc p P lb p P 5 0 / sd le p P", cgVisit.getGeneratedCode());
+    }
+
+    @Test
+    void testCopyPropagationAcrossTypes()
+            throws FileNotFoundException, SyntacticException, IrException, CodeGeneratorException {
+        assertEquals("_245 p P", compile("src/test/data/testOptimizer/8_tipi.txt", OptimizationLevel.O2));
+    }
+
+    @Test
+    void testPassOrder() {
+        var passes = new PassManager();
+        passes.addIrPass("ir-c", new IrConstantFolding(), "ir-b");
+        passes.addAstPass("c", new CopyPropagationVisitor(), "b");
+        passes.addIrPass("ir-b", new IrConstantFolding());
+        passes.addAstPass("b", new CopyPropagationVisitor(), "a");
+        passes.addAstPass("a", new CopyPropagationVisitor());
+        assertEquals(List.of("a", "b", "c", "ir-b", "ir-c"), passes.getOrder());
+
+        assertThrows(IllegalArgumentException.class, () -> passes.addAstPass("a", new CopyPropagationVisitor()));
+        passes.addAstPass("d", new CopyPropagationVisitor(), "ir-b");
+        assertThrows(IllegalStateException.class, passes::getOrder);
+
+        var circular = new PassManager();
+        circular.addAstPass("a", new CopyPropagationVisitor(), "b");
+        circular.addAstPass("b", new CopyPropagationVisitor(), "a");
+        assertThrows(IllegalStateException.class, circular::getOrder);
+
+        var unknown = new PassManager();
+        unknown.addAstPass("a", new CopyPropagationVisitor(), "missing");
+        assertThrows(IllegalStateException.class, unknown::getOrder);
+
+        assertEquals(List.of(), PassManager.forLevel(OptimizationLevel.O0).getOrder());
+        assertEquals(OptimizationLevel.O2, OptimizationLevel.fromArgument("-O2"));
+        assertNull(OptimizationLevel.fromArgument("-O3"));
+    }
+
+    @Test
+    void testOptimizationLevels()
+            throws FileNotFoundException, SyntacticException, IrException, CodeGeneratorException {
+        assertEquals("4 sa la sb lb 3 * sc lc 1 + sd 1.5 se 2.5 se lc sf lf p P 7 sc le p P 5 0 / sg lh p P",
+                compile(OptimizationLevel.O0));
+        assertEquals("12 sa 2.5 sb la sc lc p P lb p P 5 0 / sd le p P", compile(OptimizationLevel.O1));
+        assertEquals("12 p P 2.5 p P 5 0 / sa 0 p P", compile(OptimizationLevel.O2));
+
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/4_copie.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var passes = PassManager.forLevel(OptimizationLevel.O2);
+        passes.run(nP);
+        List<PassStatistics> statistics = passes.getStatistics();
+
+        assertEquals(9, statistics.size());
+        assertEquals(PassManager.IR_BUILDER, statistics.get(5).getName());
+        for (int i = 1; i < statistics.size(); i++)
+            assertEquals(statistics.get(i - 1).getSizeAfter(), statistics.get(i).getSizeBefore());
+        assertEquals(false, statistics.get(4).isIr());
+        assertEquals(true, statistics.get(8).isIr());
+    }
+
+    private static String compile(OptimizationLevel level)
+            throws FileNotFoundException, SyntacticException, IrException, CodeGeneratorException {
+        return compile("src/test/data/testOptimizer/4_copie.txt", level);
+    }
+
+    private static String compile(String path, OptimizationLevel level)
+            throws FileNotFoundException, SyntacticException, IrException, CodeGeneratorException {
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        nP.accept(new TypeCheckingVisitor());
+        IrProgram ir = PassManager.forLevel(level).run(nP);
+
+        if (ir == null) {
+            var cgVisit = new CodeGeneratorVisitor();
+            nP.accept(cgVisit);
+            return cgVisit.getGeneratedCode();
+        }
+
+        var emitter = new DcEmitter();
+        new IrLowering(emitter).lower(ir);
+        return emitter.getCode();
+    }
+
+    @Test
+    void testSuperoptimizer() throws IOException, SyntacticException {
+        var superoptimizer = new Superoptimizer();
+
+        assertEquals("3 sa 4 sb 5 sc la lb lc + * sd la la la + * se la lb lc - * sf la la * d * sg la 2 3 + * sh "
+                + "lb lc + la * la - si ld p P le p P lf p P lg p P lh p P li p P", superoptimize(superoptimizer));
+        assertEquals(6, superoptimizer.getSearchCount());
+        assertEquals(6, superoptimizer.getAppliedCount());
+
+        File cache = File.createTempFile("superoptimizer", ".cache");
+        cache.deleteOnExit();
+        superoptimizer.save(cache.toPath());
+
+        var cached = new Superoptimizer();
+        cached.load(cache.toPath());
+        assertEquals(superoptimize(superoptimizer), superoptimize(cached));
+        assertEquals(0, cached.getSearchCount());
+        assertEquals(6, cached.getHitCount());
+    }
+
+    @Test
+    void testSuperoptimizerInvalidCache() throws IOException, SyntacticException {
+        File cache = File.createTempFile("superoptimizer", ".cache");
+        cache.deleteOnExit();
+        Files.write(cache.toPath(), List.of(
+                "+ * x0 x1 * x0 x2\tx0 x1 x2 - *",
+                "* * * x0 x0 x0 x0\tx0 x1 * d *",
+                "- * x0 x1 * x0 x2\tx0 xa x2 - *",
+                "+ * x0 #2 * x0 #3\tx0 #2 #3 + * +",
+                "+ * x0 x0 * x0 x0\tx0 x0 x0 + *",
+                "* x0 x1\t"));
+
+        var superoptimizer = new Superoptimizer();
+        superoptimizer.load(cache.toPath());
+
+        assertEquals(2, superoptimizer.getCacheSize());
+        assertEquals(superoptimize(new Superoptimizer()), superoptimize(superoptimizer));
+        assertEquals(5, superoptimizer.getSearchCount());
+        assertEquals(1, superoptimizer.getHitCount());
+    }
+
+    private static String superoptimize(Superoptimizer superoptimizer)
+            throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/5_superottimizzatore.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var cgVisit = new CodeGeneratorVisitor();
+        cgVisit.setSuperoptimizer(superoptimizer);
+        nP.accept(cgVisit);
+
+        assertEquals("", cgVisit.getLog());
+        return cgVisit.getGeneratedCode();
+    }
+
+    @Test
+    void testEvaluation() throws FileNotFoundException, SyntacticException {
+        NodeProgram nP = new Parser(new Scanner("src/test/data/testOptimizer/6_valutazione.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var evaluator = new ProgramEvaluator();
+        nP.accept(evaluator);
+        var emitter = new DcEmitter();
+        evaluator.emit(emitter);
+
+        assertEquals(List.of("3", "3.50000", "5.25000", "0", "-7", "27368747340080916343", "1.75000"),
+                evaluator.getPrinted());
+        assertEquals("3 p P 3.50000 p P 5.25000 p P 0 p P _7 p P 27368747340080916343 p P 1.75000 p P",
+                emitter.getCode());
+
+        nP = new Parser(new Scanner("src/test/data/testOptimizer/4_copie.txt")).parse();
+        nP.accept(new TypeCheckingVisitor());
+        var failing = new ProgramEvaluator();
+        nP.accept(failing);
+
+        assertEquals(false, failing.isEvaluated());
+        assertThrows(IllegalStateException.class, () -> failing.emit(new DcEmitter()));
+    }
+
+    @Test
+    void testDcArithmetic() {
+        assertEquals("3", fold(LangOper.DIV, "7", "2"));
+        assertEquals("-3", fold(LangOper.DIV, "_7", "2"));
+        assertEquals("0.33333", fold(LangOper.DIV_FLOAT, "1.0", "3"));
+        assertEquals("-0.66666", fold(LangOper.DIV_FLOAT, "_2", "3"));
+        assertEquals("2.2", fold(LangOper.TIMES, "1.5", "1.5"));
+        assertEquals("0.00", fold(LangOper.TIMES, "0.01", "0.05"));
+        assertEquals("3.75000", fold(LangOper.TIMES, "2.5", "1.50000"));
+        assertEquals("1.0", fold(LangOper.PLUS, "0.5", "0.5"));
+        assertEquals("-1.25", fold(LangOper.MINUS, "1", "2.25"));
+        assertNull(DcArithmetic.apply(LangOper.DIV, DcArithmetic.parse("1"), DcArithmetic.parse("0")));
+        assertNull(DcArithmetic.apply(LangOper.DIV_FLOAT, DcArithmetic.parse("1.0"), DcArithmetic.parse("0.0")));
+    }
+
+    private static String fold(LangOper op, String left, String right) {
+        return DcArithmetic.format(DcArithmetic.apply(op, DcArithmetic.parse(left), DcArithmetic.parse(right)));
+    }
+}
@@ -1,16 +1,30 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 
 import org.junit.jupiter.api.Test;
 
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodePrint;
 import exception.LexicalException;
 import exception.SyntacticException;
 import parser.Parser;
+import scanner.DfaScanner;
 import scanner.Scanner;
+import trace.Phase;
+import trace.RingBufferSink;
+import trace.Trace;
+import trace.TraceLevel;
+import trace.TraceSink;
 
 public class TestParser {
 
@@ -105,4 +119,69 @@ public class TestParser {
         assertDoesNotThrow(parser::parse);
     }
 
+    @Test
+    void testTokenBufferParser() throws IOException, LexicalException {
+        for (File file : new File("src/test/data/testParser").listFiles()) {
+            String expected, actual;
+
+            try {
+                expected = new Parser(new Scanner(file.getPath())).parse().toString();
+            } catch (SyntacticException e) {
+                expected = e.getMessage();
+            }
+
+            try {
+                actual = new Parser(new DfaScanner(file.getPath()).tokenize()).parse().toString();
+            } catch (SyntacticException e) {
+                actual = e.getMessage();
+            }
+
+            assertEquals(expected, actual, file.getPath());
+        }
+    }
+
+    @Test
+    void testMillionStatements() throws IOException, LexicalException, SyntacticException {
+        File file = File.createTempFile("million", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("int a = 1;");
+            for (int i = 1; i < 1_000_000; i++)
+                pw.println(i % 2 == 0 ? "a += 2;" : "print a;");
+        }
+
+        ArrayList<NodeDecSt> decSts = new Parser(new DfaScanner(file.getPath()).tokenize()).parse().getDecSts();
+
+        assertEquals(1_000_000, decSts.size());
+        assertEquals(NodeDecl.class, decSts.get(0).getClass());
+        assertEquals(NodePrint.class, decSts.get(1).getClass());
+        assertEquals(NodePrint.class, decSts.get(decSts.size() - 1).getClass());
+    }
+
+    @Test
+    void testTracing() throws IOException, LexicalException, SyntacticException {
+        TraceSink previous = Trace.getSink();
+        RingBufferSink sink = new RingBufferSink(4);
+        Trace.setSink(sink);
+
+        try {
+            new Parser(new Scanner("src/test/data/testParser/firstTest.txt")).parse();
+            assertEquals(0, sink.getCount());
+
+            Trace.enable(Phase.PARSER, TraceLevel.INFO);
+            new Parser(new Scanner("src/test/data/testParser/firstTest.txt")).parse();
+            assertEquals(1, sink.getCount());
+            assertEquals("[PARSER] Program started. Creating parse tree:", sink.getLines().get(0));
+
+            Trace.configure("parser:debug");
+            new Parser(new Scanner("src/test/data/testParser/firstTest.txt")).parse();
+            assertTrue(sink.getCount() > 5);
+            assertEquals(4, sink.getLines().size());
+            assertTrue(sink.getLines().stream().allMatch(line -> line.startsWith("[PARSER] ")));
+        } finally {
+            Trace.disable();
+            Trace.setSink(previous);
+        }
+    }
 }
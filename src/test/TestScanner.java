@@ -2,6 +2,7 @@ package test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -9,7 +10,11 @@ import java.lang.reflect.Method;
 import org.junit.jupiter.api.Test;
 
 import exception.LexicalException;
+import scanner.DfaScanner;
+import scanner.IScanner;
 import scanner.Scanner;
+import scanner.SourceBuffer;
+import scanner.TokenBuffer;
 import token.Token;
 import token.TokenType;
 
@@ -311,4 +316,72 @@ class TestScanner {
 		assertEquals(t.getRow(), 1);
 		assertEquals(t.getValue(), "temp");
 	}
+
+	@Test
+	void testSourceBufferMapped() throws IOException {
+		SourceBuffer heap = new SourceBuffer("src/test/data/testScanner/testGenerale.txt");
+		SourceBuffer mapped = new SourceBuffer("src/test/data/testScanner/testGenerale.txt", 0);
+		heap.load();
+		mapped.load();
+
+		assertEquals(heap.length(), mapped.length());
+		assertEquals(heap.text(0, heap.length()), mapped.text(0, mapped.length()));
+
+		while (heap.peek() != SourceBuffer.EOF) {
+			assertEquals(heap.peek(), mapped.peek());
+			assertEquals(heap.advance(), mapped.advance());
+		}
+
+		assertEquals(SourceBuffer.EOF, mapped.advance());
+		assertEquals(heap.position(), mapped.position());
+	}
+
+	@Test
+	void testDfaScannerSameTokens() throws IOException {
+		for (String dir : new String[] { "testScanner", "testParser", "testTypeChecking", "testCodeGenerator" }) {
+			for (File file : new File("src/test/data/" + dir).listFiles()) {
+				if (file.getName().startsWith("."))
+					continue;
+
+				IScanner expected = new Scanner(file.getPath());
+				IScanner actual = new DfaScanner(file.getPath());
+				String exp, act;
+
+				do {
+					exp = nextOrError(expected);
+					act = nextOrError(actual);
+					assertEquals(exp, act, file.getPath());
+				} while (!exp.startsWith("<EOF"));
+			}
+		}
+	}
+
+	private static String nextOrError(IScanner scanner) {
+		try {
+			return scanner.nextToken().toString();
+		} catch (LexicalException e) {
+			return e.getMessage();
+		}
+	}
+
+	@Test
+	void testTokenBuffer() throws IOException, LexicalException {
+		for (String file : new String[] { "testGenerale.txt", "testOpsDels.txt", "testIdKeyWords.txt" }) {
+			Scanner scanner = new Scanner("src/test/data/testScanner/" + file);
+			TokenBuffer tokens = new DfaScanner("src/test/data/testScanner/" + file).tokenize();
+
+			for (int i = 0; i < tokens.size(); i++) {
+				Token t = scanner.nextToken();
+
+				assertEquals(t.toString(), tokens.token(i).toString());
+				assertEquals(t.getValue(), tokens.text(i));
+			}
+
+			if (tokens.getError() != null)
+				assertEquals(assertThrows(LexicalException.class, scanner::nextToken).getMessage(),
+						tokens.getError().getMessage());
+			else
+				assertEquals(TokenType.EOF, tokens.type(tokens.size() - 1));
+		}
+	}
 }
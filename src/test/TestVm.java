@@ -0,0 +1,109 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import ast.NodeProgram;
+import exception.InterpreterException;
+import exception.LexicalException;
+import exception.SyntacticException;
+import interpreter.Interpreter;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+import vm.Opcodes;
+import vm.VirtualMachine;
+
+public class TestVm {
+    @Test
+    void testSameOutputAsInterpreter() throws FileNotFoundException, SyntacticException, InterpreterException {
+        for (String name : new String[] { "1_tipi.txt", "2_overflow.txt" }) {
+            String path = "src/test/data/testInterpreter/" + name;
+            assertEquals(Interpreter.compile(Programs.parse(path)).run(),
+                    VirtualMachine.run(compile(Programs.parse(path))), name);
+        }
+    }
+
+    @Test
+    void testDivisionByZero() throws FileNotFoundException, SyntacticException {
+        Bytecode program = compile(Programs.parse("src/test/data/testInterpreter/3_zero.txt"));
+        StringBuilder out = new StringBuilder();
+
+        InterpreterException e = assertThrows(InterpreterException.class, () -> VirtualMachine.run(program, out));
+        assertTrue(e.getMessage().startsWith("Division by zero"));
+        assertEquals("4\n", out.toString());
+    }
+
+    @Test
+    void testDisassembly() throws FileNotFoundException, SyntacticException, InterpreterException {
+        Bytecode program = compile(Programs.parse("src/test/data/testVm/1_disassemblato.txt"));
+        String expected = "   0  LOAD  r0, 3\n"
+                + "   3  LOAD  r2, 2.0\n"
+                + "   6  FDIV5 r1, r0, r2 (scales 0, 1)\n"
+                + "  12  FMUL  r2, r1, r1 (scales 5, 5)\n"
+                + "  18  FADD  r1, r2, r1 (scales 5, 5)\n"
+                + "  24  PRINT r1 (scale 5)\n";
+
+        assertEquals(expected, program.toString());
+        assertEquals(3, program.getRegisterCount());
+        assertEquals(6, program.getInstructionCount());
+        assertEquals("3.75000\n", VirtualMachine.run(program));
+    }
+
+    @Test
+    void testSerialization() throws IOException, SyntacticException, InterpreterException {
+        Bytecode program = compile(Programs.parse("src/test/data/testInterpreter/2_overflow.txt"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        program.writeTo(bytes);
+        Bytecode loaded = Bytecode.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(program, loaded);
+        assertEquals(VirtualMachine.run(program), VirtualMachine.run(loaded));
+
+        byte[] corrupt = bytes.toByteArray();
+        corrupt[0] = 'X';
+        assertThrows(IOException.class, () -> Bytecode.readFrom(new ByteArrayInputStream(corrupt)));
+        assertThrows(IOException.class,
+                () -> Bytecode.readFrom(new ByteArrayInputStream(bytes.toByteArray(), 0, bytes.size() - 2)));
+    }
+
+    @Test
+    void testVerification() {
+        BigDecimal[] constants = { BigDecimal.ONE };
+
+        assertThrows(IllegalArgumentException.class, () -> new Bytecode(new int[] { 42, 0, 0 }, constants, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Bytecode(new int[] { Opcodes.LOAD, 1, 0 }, constants, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Bytecode(new int[] { Opcodes.LOAD, 0, 1 }, constants, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Bytecode(new int[] { Opcodes.FADD, 0, 0, 0, -1, 0 }, constants, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Bytecode(new int[] { Opcodes.IADD, 0 }, constants, 1));
+    }
+
+    @Test
+    void testLongChain() throws IOException, SyntacticException, LexicalException, InterpreterException {
+        Bytecode program = compile(Programs.longChain());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        program.writeTo(bytes);
+        Bytecode loaded = Bytecode.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(5, program.getRegisterCount());
+        assertEquals(2 * Programs.CHAIN_TERMS + 3, program.getInstructionCount());
+        assertEquals(Programs.longChainOutput(), VirtualMachine.run(loaded));
+    }
+
+    private static Bytecode compile(NodeProgram program) {
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        program.accept(compiler);
+        return compiler.getBytecode();
+    }
+}
@@ -0,0 +1,36 @@
+package trace;
+
+/**
+ * Compiler phases that can be traced independently.
+ */
+public enum Phase {
+    /**
+     * Lexical analysis (scanner.Scanner).
+     */
+    SCANNER,
+
+    /**
+     * Syntactic analysis (parser.Parser).
+     */
+    PARSER,
+
+    /**
+     * Semantic checks (visitor.TypeCheckingVisitor).
+     */
+    TYPE_CHECKING,
+
+    /**
+     * AST optimizations (package optimizer).
+     */
+    OPTIMIZER,
+
+    /**
+     * dc code generation (visitor.CodeGeneratorVisitor).
+     */
+    CODE_GENERATOR,
+
+    /**
+     * Execution in the JVM (packages interpreter, vm and jvm).
+     */
+    INTERPRETER
+}
@@ -0,0 +1,61 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink keeping only the last messages in memory.<br>
+ * 
+ * Useful to inspect what happened right before an error without paying for
+ * the output of a whole compilation.
+ */
+public class RingBufferSink implements TraceSink {
+    private final String[] lines;
+    private int next;
+    private long count;
+
+    /**
+     * Creates a ring buffer.
+     * 
+     * @param capacity the number of messages kept
+     */
+    public RingBufferSink(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + capacity);
+
+        lines = new String[capacity];
+    }
+
+    @Override
+    public synchronized void write(Phase phase, TraceLevel level, String message) {
+        lines[next] = "[" + phase + "] " + message;
+        next = (next + 1) % lines.length;
+        count++;
+    }
+
+    /**
+     * Returns the messages kept, from the oldest to the newest.
+     * 
+     * @return the last messages written
+     */
+    public synchronized List<String> getLines() {
+        List<String> result = new ArrayList<>();
+        int size = (int) Math.min(count, lines.length);
+        int first = count > lines.length ? next : 0;
+
+        for (int i = 0; i < size; i++)
+            result.add(lines[(first + i) % lines.length]);
+
+        return result;
+    }
+
+    /**
+     * Returns the number of messages written since creation, including the ones
+     * no longer kept.
+     * 
+     * @return the total number of messages
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+}
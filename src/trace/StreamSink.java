@@ -0,0 +1,32 @@
+package trace;
+
+import java.io.PrintStream;
+
+/**
+ * Sink writing one line per message on a stream, in the format
+ * {@code [PHASE] message}.
+ */
+public class StreamSink implements TraceSink {
+    private final PrintStream out;
+
+    /**
+     * Creates a sink writing on the given stream.
+     * 
+     * @param out the stream to write on
+     */
+    public StreamSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(Phase phase, TraceLevel level, String message) {
+        out.println("[" + phase + "] " + message);
+    }
+
+    /**
+     * Flushes the underlying stream.
+     */
+    public void flush() {
+        out.flush();
+    }
+}
@@ -0,0 +1,143 @@
+package trace;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Configuration of the compiler tracing.<br>
+ * 
+ * Each {@link Phase} has a {@link Tracer} with its own {@link TraceLevel};
+ * all of them write on a single {@link TraceSink}. Tracing is off by default.
+ * It can be configured in code or with the system properties
+ * {@code flt.trace} (for example {@code parser:debug,scanner:info} or
+ * {@code all:debug}) and {@code flt.trace.file} (path of the output file,
+ * standard output otherwise).
+ */
+public final class Trace {
+    private static final Tracer[] tracers = new Tracer[Phase.values().length];
+    private static TraceSink sink = new StreamSink(System.out);
+
+    static {
+        for (Phase phase : Phase.values())
+            tracers[phase.ordinal()] = new Tracer(phase);
+
+        String spec = System.getProperty("flt.trace");
+        String file = System.getProperty("flt.trace.file");
+
+        try {
+            if (file != null)
+                toFile(file);
+        } catch (FileNotFoundException e) {
+            System.err.println("Trace file error: " + e.getMessage());
+        }
+
+        if (spec != null)
+            configure(spec);
+    }
+
+    private Trace() {
+    }
+
+    /**
+     * Returns the tracer of a phase.
+     * 
+     * @param phase the phase
+     * @return the tracer of {@code phase}
+     */
+    public static Tracer tracer(Phase phase) {
+        return tracers[phase.ordinal()];
+    }
+
+    /**
+     * Sets the level of a phase.
+     * 
+     * @param phase the phase
+     * @param level the new level
+     */
+    public static void enable(Phase phase, TraceLevel level) {
+        tracers[phase.ordinal()].setLevel(level);
+    }
+
+    /**
+     * Sets the level of every phase.
+     * 
+     * @param level the new level
+     */
+    public static void enableAll(TraceLevel level) {
+        for (Tracer tracer : tracers)
+            tracer.setLevel(level);
+    }
+
+    /**
+     * Turns off the tracing of every phase.
+     */
+    public static void disable() {
+        enableAll(TraceLevel.OFF);
+    }
+
+    /**
+     * Sets the levels from a comma separated list of {@code phase[:level]}
+     * entries, where {@code phase} may be {@code all} and {@code level} defaults
+     * to {@code debug}. Phase and level names are case insensitive.
+     * 
+     * @param spec the configuration, for example {@code parser:debug,scanner}
+     * @throws IllegalArgumentException if a phase or level is unknown
+     */
+    public static void configure(String spec) {
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank())
+                continue;
+
+            String[] parts = entry.trim().split(":");
+            TraceLevel level = parts.length > 1 ? TraceLevel.valueOf(parts[1].trim().toUpperCase())
+                    : TraceLevel.DEBUG;
+
+            if (parts[0].trim().equalsIgnoreCase("all"))
+                enableAll(level);
+            else
+                enable(Phase.valueOf(parts[0].trim().toUpperCase()), level);
+        }
+    }
+
+    /**
+     * Returns the current sink.
+     * 
+     * @return the sink every tracer writes on
+     */
+    public static TraceSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Sets the sink every tracer writes on.
+     * 
+     * @param sink the new sink
+     */
+    public static void setSink(TraceSink sink) {
+        Trace.sink = sink;
+    }
+
+    /**
+     * Writes the trace on a stream.
+     * 
+     * @param out the stream to write on
+     */
+    public static void toStream(PrintStream out) {
+        setSink(new StreamSink(out));
+    }
+
+    /**
+     * Writes the trace on a file, overwriting it.
+     * 
+     * @param path the path of the file
+     * @throws FileNotFoundException if the file cannot be created
+     */
+    public static void toFile(String path) throws FileNotFoundException {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(out::flush));
+        setSink(new StreamSink(out));
+    }
+}
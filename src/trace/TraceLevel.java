@@ -0,0 +1,27 @@
+package trace;
+
+/**
+ * Verbosity of a trace message. A phase traced at a level also reports the
+ * messages of the lower levels.
+ */
+public enum TraceLevel {
+    /**
+     * Nothing is reported.
+     */
+    OFF,
+
+    /**
+     * Semantic and generation errors.
+     */
+    ERROR,
+
+    /**
+     * Start and end of a phase.
+     */
+    INFO,
+
+    /**
+     * Every token, production and visited node.
+     */
+    DEBUG
+}
@@ -0,0 +1,15 @@
+package trace;
+
+/**
+ * Destination of the trace messages.
+ */
+public interface TraceSink {
+    /**
+     * Writes a trace message.
+     * 
+     * @param phase   the phase that produced the message
+     * @param level   the level of the message
+     * @param message the message text
+     */
+    void write(Phase phase, TraceLevel level, String message);
+}
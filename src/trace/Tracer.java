@@ -0,0 +1,110 @@
+package trace;
+
+/**
+ * Trace handle of a single phase.<br>
+ * 
+ * Call sites check the level before building the message, so a disabled
+ * trace costs a field read and no string concatenation or
+ * {@code toString()}:
+ * 
+ * <pre>
+ * if (tracer.isDebug())
+ *     tracer.debug("Visiting constant: " + node.getValue());
+ * </pre>
+ */
+public final class Tracer {
+    private final Phase phase;
+    private int level;
+
+    Tracer(Phase phase) {
+        this.phase = phase;
+    }
+
+    void setLevel(TraceLevel level) {
+        this.level = level.ordinal();
+    }
+
+    /**
+     * Returns the phase traced by this handle.
+     * 
+     * @return the phase
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Checks whether the messages of a level are reported.
+     * 
+     * @param level the level to check
+     * @return true if the phase is traced at {@code level} or above
+     */
+    public boolean isEnabled(TraceLevel level) {
+        return level.ordinal() <= this.level;
+    }
+
+    /**
+     * Checks whether ERROR messages are reported.
+     * 
+     * @return true if ERROR messages are reported
+     */
+    public boolean isError() {
+        return level >= 1;
+    }
+
+    /**
+     * Checks whether INFO messages are reported.
+     * 
+     * @return true if INFO messages are reported
+     */
+    public boolean isInfo() {
+        return level >= 2;
+    }
+
+    /**
+     * Checks whether DEBUG messages are reported.
+     * 
+     * @return true if DEBUG messages are reported
+     */
+    public boolean isDebug() {
+        return level >= 3;
+    }
+
+    /**
+     * Reports an ERROR message.
+     * 
+     * @param message the message text
+     */
+    public void error(String message) {
+        log(TraceLevel.ERROR, message);
+    }
+
+    /**
+     * Reports an INFO message.
+     * 
+     * @param message the message text
+     */
+    public void info(String message) {
+        log(TraceLevel.INFO, message);
+    }
+
+    /**
+     * Reports a DEBUG message.
+     * 
+     * @param message the message text
+     */
+    public void debug(String message) {
+        log(TraceLevel.DEBUG, message);
+    }
+
+    /**
+     * Reports a message if its level is enabled.
+     * 
+     * @param level   the level of the message
+     * @param message the message text
+     */
+    public void log(TraceLevel level, String message) {
+        if (isEnabled(level))
+            Trace.getSink().write(phase, level, message);
+    }
+}
@@ -1,32 +1,73 @@
 package visitor;
 
 import java.text.AttributedCharacterIterator.Attribute;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import ast.LangOper;
 import ast.NodeAssign;
 import ast.NodeBinOp;
 import ast.NodeCost;
 import ast.NodeDecSt;
 import ast.NodeDecl;
 import ast.NodeDeref;
+import ast.NodeExpr;
 import ast.NodeId;
 import ast.NodePrint;
 import ast.NodeProgram;
+import ast.TypeTd;
+import emitter.DcEmitter;
 import exception.CodeGeneratorException;
+import optimizer.Superoptimizer;
 import symbolTable.Attributes;
+import symbolTable.RegisterAllocator;
 import symbolTable.Registers;
 import symbolTable.SymbolTable;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
 
 public class CodeGeneratorVisitor implements IVisitor {
-    private String codeDc;
+    private static final Tracer tracer = Trace.tracer(Phase.CODE_GENERATOR);
+    private final DcEmitter emitter;
+    private final RegisterAllocator allocator = new RegisterAllocator();
+    private final StackLabeler labeler = new StackLabeler();
+    private final List<Integer> stackDepths = new ArrayList<>();
+    private int maxStackDepth;
+    private Attributes storage;
+    private Superoptimizer superoptimizer;
     private String log;
-    private String generatedCode = "";
 
     public CodeGeneratorVisitor() {
+        this(new DcEmitter());
+    }
+
+    /**
+     * Constructor writing the generated code through the given emitter.
+     * With an emitter over a Writer the code is streamed while the tree is
+     * visited, and {@link #getGeneratedCode()} cannot be used.
+     * 
+     * @param emitter the emitter receiving the code
+     */
+    public CodeGeneratorVisitor(DcEmitter emitter) {
         Registers.init();
-        codeDc = "";
+        this.emitter = emitter;
         log = "";
     }
 
+    /**
+     * Replaces the small integer expressions having a shorter equivalent dc
+     * sequence with the sequence found by the superoptimizer.
+     * 
+     * @param superoptimizer the superoptimizer and its cache, or null to
+     *                       generate every expression as it is
+     */
+    public void setSuperoptimizer(Superoptimizer superoptimizer) {
+        this.superoptimizer = superoptimizer;
+    }
+
     /**
      * Returns the generated code as a string.
      * The code is stripped of leading and trailing whitespace.
@@ -34,7 +75,7 @@ public class CodeGeneratorVisitor implements IVisitor {
      * @return the generated code
      */
     public String getGeneratedCode() {
-        return generatedCode.strip();
+        return emitter.getCode().strip();
     }
 
     /**
@@ -55,20 +96,38 @@ public class CodeGeneratorVisitor implements IVisitor {
      */
     @Override
     public void visit(NodeProgram node) {
+        LivenessVisitor liveness = new LivenessVisitor();
+        node.accept(liveness);
+
+        try {
+            allocator.allocate(liveness.getIntervals());
+        } catch (CodeGeneratorException e) {
+            log = e.getMessage();
+        }
+
+        if (allocator.getSpillCount() > 0 && tracer.isInfo())
+            tracer.info("Variables spilled to the array " + Registers.SPILL_ARRAY + ": " + allocator.getSpillCount());
+
         for (NodeDecSt dec : node.getDecSts()) {
-            if (log.isBlank() || log.isEmpty()) {
-                System.out.println("Visiting declaration: " + dec);
-                dec.accept(this);
-                if (!codeDc.isBlank()) {
-                    System.out.println("Generated code for declaration: " + codeDc);
-                    //System.out.println();
-                    generatedCode += codeDc + " ";
-                }
-                codeDc = "";
-            } else {
-                generatedCode = "";
-            }
+            if (!log.isBlank())
+                break;
+
+            if (tracer.isDebug())
+                tracer.debug("Visiting declaration: " + dec);
+
+            emitter.resetMaxDepth();
+            dec.accept(this);
+            maxStackDepth = Math.max(maxStackDepth, emitter.getMaxDepth());
+
+            if (!emitter.isStreaming())
+                stackDepths.add(emitter.getMaxDepth());
+
+            if (tracer.isDebug())
+                tracer.debug("Maximum stack depth: " + emitter.getMaxDepth());
         }
+
+        if (!log.isEmpty())
+            emitter.discard();
     }
 
     /**
@@ -79,73 +138,96 @@ public class CodeGeneratorVisitor implements IVisitor {
      */
     @Override
     public void visit(NodeId node) {
-        System.out.println("Visiting identifier: " + node.getName());
-        codeDc = String.valueOf(SymbolTable.lookup(node.getName()).getRegister());
+        if (tracer.isDebug())
+            tracer.debug("Visiting identifier: " + node.getName());
+        storage = SymbolTable.lookup(node.getName());
     }
 
     /**
      * Visits a declaration node.
      * This method generates code for variable declarations and initializations.
      * If the declaration has an initialization expression, it generates code for
-     * that as well.
+     * that as well. The register or spill slot of the variable was chosen by the
+     * {@link RegisterAllocator}; if it was used by a variable no longer live and
+     * the new variable is read before being assigned, it is cleared.
      * 
      * @param node the NodeDecl object representing the declaration
      */
     @Override
     public void visit(NodeDecl node) {
-        Attributes attribute = SymbolTable.lookup(node.getId().getName());
-        char register = 0;
-
-        try {
-            register = Registers.newRegister();
-        } catch (CodeGeneratorException e) {
-            log = e.getMessage();
-            return;
-        }
-
-        attribute.setRegister(register);
-
         if (node.getInit() != null) {
             node.getInit().accept(this);
-            String init = codeDc;
-
             node.getId().accept(this);
-            String id = codeDc;
-
-            codeDc = init + " s" + id;
+            store();
+        } else if (allocator.needsReset(node.getId().getName())) {
+            node.getId().accept(this);
+            emitter.number("0");
+            store();
         }
     }
 
     /**
-     * Visits a declaration statement node.
-     * This method generates code for variable declarations and initializations.
+     * Visits a binary operation node.
+     * This method generates the code of both operands followed by the operator.
+     * The left spine of the tree is walked with a loop, so long
+     * left-associative chains do not recurse once per operator; the generated
+     * code reduces the chain as it goes ({@code a b + c + ...}).
+     * An operation whose operands are the same node (as the {@code x + x}
+     * written by the simplification for {@code x * 2}) evaluates it once and
+     * duplicates it ({@code x d +}).
+     * When the right operand needs more stack slots than the left one (see
+     * {@link StackLabeler}) it is evaluated first, and the operands of
+     * {@code -} and {@code /} are then swapped back with {@code r}, so
+     * {@code a - b * c} becomes {@code lb lc * la r -}.
+     * The precision is set by the emitter only when the operator needs a
+     * different one (see {@link DcEmitter#operator(ast.LangOper, boolean)}).
+     * With a {@link Superoptimizer}, a small integer expression is replaced
+     * with the shortest sequence found for its shape, if it is shorter.
      * 
-     * @param node the NodeDecSt object representing the declaration statement
+     * @param node the NodeBinOp object representing the operation
      */
     @Override
     public void visit(NodeBinOp node) {
-        node.getLeft().accept(this);
-        String leftCode = codeDc;
+        if (superoptimizer != null) {
+            Superoptimizer.Sequence sequence = superoptimizer.optimize(node);
 
-        node.getRight().accept(this);
-        String rightCode = codeDc;
+            if (sequence != null) {
+                emit(sequence);
+                return;
+            }
+        }
 
-        switch (node.getOp()) {
-            case PLUS:
-                codeDc = leftCode + " " + rightCode + " +";
-                break;
-            case MINUS:
-                codeDc = leftCode + " " + rightCode + " -";
-                break;
-            case DIV:
-                codeDc = leftCode + " " + rightCode + " /";
-                break;
-            case TIMES:
-                codeDc = leftCode + " " + rightCode + " *";
-                break;
-            case DIV_FLOAT:
-                codeDc = leftCode + " " + rightCode + " 5 k / 0 k";
-                break;
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        NodeExpr leftmost = node;
+
+        while (leftmost instanceof NodeBinOp && !labeler.rightFirst((NodeBinOp) leftmost)) {
+            spine.push((NodeBinOp) leftmost);
+            leftmost = ((NodeBinOp) leftmost).getLeft();
+        }
+
+        if (leftmost instanceof NodeBinOp) {
+            NodeBinOp binOp = (NodeBinOp) leftmost;
+
+            binOp.getRight().accept(this);
+            binOp.getLeft().accept(this);
+
+            if (binOp.getOp() != LangOper.PLUS && binOp.getOp() != LangOper.TIMES)
+                emitter.swap();
+
+            emitter.operator(binOp.getOp(), isInt(binOp));
+        } else {
+            leftmost.accept(this);
+        }
+
+        while (!spine.isEmpty()) {
+            NodeBinOp binOp = spine.pop();
+
+            if (binOp.getRight() == binOp.getLeft())
+                emitter.duplicate();
+            else
+                binOp.getRight().accept(this);
+
+            emitter.operator(binOp.getOp(), isInt(binOp));
         }
     }
 
@@ -158,22 +240,24 @@ public class CodeGeneratorVisitor implements IVisitor {
      */
     @Override
     public void visit(NodeDeref node) {
-        System.out.println("Visiting dereference of: " + node.getId().getName());
+        if (tracer.isDebug())
+            tracer.debug("Visiting dereference of: " + node.getId().getName());
         node.getId().accept(this);
-        codeDc = "l" + codeDc;
+        load();
     }
 
     /**
      * Visits a constant node.
      * This method generates code for a constant value.
-     * It simply sets the code to the value of the constant.
+     * It simply pushes the value of the constant.
      * 
      * @param node the NodeCost object representing the constant
      */
     @Override
     public void visit(NodeCost node) {
-        System.out.println("Visiting constant: " + node.getValue());
-        codeDc = node.getValue();
+        if (tracer.isDebug())
+            tracer.debug("Visiting constant: " + node.getValue());
+        emitter.number(node.getValue());
     }
 
     /**
@@ -186,15 +270,14 @@ public class CodeGeneratorVisitor implements IVisitor {
      */
     @Override
     public void visit(NodeAssign node) {
-        System.out.println("Visiting assignment to: " + node.getId().getName());
+        if (tracer.isDebug())
+            tracer.debug("Visiting assignment to: " + node.getId().getName());
         node.getExpr().accept(this);
-        String exprCode = codeDc;
 
-        System.out.println("Visiting identifier for assignment: " + node.getId().getName());
+        if (tracer.isDebug())
+            tracer.debug("Visiting identifier for assignment: " + node.getId().getName());
         node.getId().accept(this);
-        String idCode = codeDc;
-
-        codeDc = exprCode + " s" + idCode;
+        store();
     }
 
     /**
@@ -207,14 +290,101 @@ public class CodeGeneratorVisitor implements IVisitor {
      */
     @Override
     public void visit(NodePrint node) {
-        StringBuilder sb = new StringBuilder();
-        System.out.println("Visiting print statement for: " + node.getId().getName());
+        if (tracer.isDebug())
+            tracer.debug("Visiting print statement for: " + node.getId().getName());
         node.getId().accept(this);
 
-        sb.append("l");
-        sb.append(codeDc);
-        sb.append(" p P");
+        load();
+        emitter.print();
+    }
+
+    /**
+     * Returns the number of variables the register allocator moved to the
+     * spill array.
+     * 
+     * @return the number of spilled variables
+     */
+    public int getSpillCount() {
+        return allocator.getSpillCount();
+    }
+
+    /**
+     * Returns the maximum dc stack depth reached by the code of each
+     * statement, in program order. A streaming emitter keeps only the
+     * maximum of the whole program, so the list is then empty.
+     * 
+     * @return the stack depth of every statement
+     */
+    public List<Integer> getStackDepths() {
+        return Collections.unmodifiableList(stackDepths);
+    }
 
-        codeDc = sb.toString();
+    /**
+     * Returns the maximum dc stack depth reached by the generated code.
+     * 
+     * @return the maximum stack depth
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * Checks whether the type checking gave an operation type int, that is
+     * whether its operands are integers.
+     */
+    private static boolean isInt(NodeExpr expr) {
+        return expr.getResType() != null && expr.getResType().getType() == TypeTd.INT;
+    }
+
+    /**
+     * Emits a sequence found by the superoptimizer.
+     */
+    private void emit(Superoptimizer.Sequence sequence) {
+        for (String instruction : sequence.getInstructions()) {
+            switch (instruction) {
+                case "d":
+                    emitter.duplicate();
+                    break;
+                case "r":
+                    emitter.swap();
+                    break;
+                case "+":
+                    emitter.operator(LangOper.PLUS, true);
+                    break;
+                case "-":
+                    emitter.operator(LangOper.MINUS, true);
+                    break;
+                case "*":
+                    emitter.operator(LangOper.TIMES, true);
+                    break;
+                default:
+                    if (instruction.startsWith("x"))
+                        sequence.getVariable(Integer.parseInt(instruction.substring(1))).accept(this);
+                    else
+                        emitter.number(instruction.substring(1));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Pushes the value of the last visited identifier, from its register or
+     * its spill slot.
+     */
+    private void load() {
+        if (storage.isSpilled())
+            emitter.loadArray(Registers.SPILL_ARRAY, storage.getSlot());
+        else
+            emitter.load(storage.getRegister());
+    }
+
+    /**
+     * Pops the top of the stack into the last visited identifier.
+     */
+    private void store() {
+        if (storage.isSpilled())
+            emitter.storeArray(Registers.SPILL_ARRAY, storage.getSlot());
+        else
+            emitter.store(storage.getRegister());
     }
 }
@@ -0,0 +1,125 @@
+package visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import symbolTable.LiveInterval;
+
+/**
+ * Computes the live interval of every variable of a program.<br>
+ *
+ * The program is a straight-line list of statements, so a variable is live
+ * from its declaration to the last statement that uses it. The intervals are
+ * returned in declaration order, which is also the order of their start.
+ */
+public class LivenessVisitor implements IVisitor {
+    private final HashMap<String, LiveInterval> intervals = new HashMap<>();
+    private final List<LiveInterval> ordered = new ArrayList<>();
+    private int statement;
+
+    /**
+     * Returns the intervals computed by the last visit of a program.
+     * 
+     * @return the intervals sorted by start
+     */
+    public List<LiveInterval> getIntervals() {
+        return ordered;
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        statement = 0;
+
+        for (NodeDecSt dec : node.getDecSts()) {
+            dec.accept(this);
+            statement++;
+        }
+    }
+
+    @Override
+    public void visit(NodeId node) {
+        LiveInterval interval = intervals.get(node.getName());
+
+        if (interval != null)
+            interval.read(statement);
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        LiveInterval interval = new LiveInterval(node.getId().getName(), statement);
+
+        if (intervals.putIfAbsent(interval.getName(), interval) == null)
+            ordered.add(interval);
+
+        if (node.getInit() != null) {
+            node.getInit().accept(this);
+            write(node.getId());
+        }
+    }
+
+    /**
+     * Visits the operands of a binary operation. The left spine is walked with
+     * a loop, as in {@link CodeGeneratorVisitor}; an operand shared by both
+     * sides is visited once.
+     * 
+     * @param node the NodeBinOp object representing the operation
+     */
+    @Override
+    public void visit(NodeBinOp node) {
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        NodeExpr leftmost = node;
+
+        while (leftmost instanceof NodeBinOp) {
+            spine.push((NodeBinOp) leftmost);
+            leftmost = ((NodeBinOp) leftmost).getLeft();
+        }
+
+        leftmost.accept(this);
+
+        while (!spine.isEmpty()) {
+            NodeBinOp binOp = spine.pop();
+
+            if (binOp.getRight() != binOp.getLeft())
+                binOp.getRight().accept(this);
+        }
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+        node.getId().accept(this);
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        node.getExpr().accept(this);
+        write(node.getId());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        node.getId().accept(this);
+    }
+
+    private void write(NodeId id) {
+        LiveInterval interval = intervals.get(id.getName());
+
+        if (interval != null)
+            interval.write(statement);
+    }
+}
@@ -0,0 +1,94 @@
+package visitor;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+
+import ast.LangOper;
+import ast.NodeBinOp;
+import ast.NodeExpr;
+
+/**
+ * Sethi–Ullman labels of expressions.<br>
+ *
+ * The label of an expression is the number of dc stack slots needed to
+ * evaluate it. A variable or a constant needs one (a spilled variable pushes
+ * its slot index, which {@code ;@} replaces with the value). An operation
+ * whose operands need {@code l} and {@code r} slots needs {@code max(l, r)}
+ * if they differ, since the heavier operand is evaluated first and only one
+ * slot holds it while the other is evaluated, and {@code l + 1} if they are
+ * equal. An operation on a shared operand ({@code x d +}) needs at least two
+ * slots, and a float division three, for the {@code 5} of {@code 5 k}.<br>
+ *
+ * Labels are computed on demand, in post-order with an explicit stack, and
+ * remembered per node.
+ */
+public class StackLabeler {
+    private final IdentityHashMap<NodeExpr, Integer> labels = new IdentityHashMap<>();
+
+    /**
+     * Returns the label of an expression.
+     *
+     * @param root the expression
+     * @return the stack slots needed to evaluate it
+     */
+    public int label(NodeExpr root) {
+        ArrayDeque<NodeExpr> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            NodeExpr node = stack.peek();
+
+            if (labels.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+
+            if (!(node instanceof NodeBinOp)) {
+                stack.pop();
+                labels.put(node, 1);
+                continue;
+            }
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!labels.containsKey(binOp.getLeft()) || !labels.containsKey(binOp.getRight())) {
+                if (!labels.containsKey(binOp.getRight()))
+                    stack.push(binOp.getRight());
+                if (!labels.containsKey(binOp.getLeft()))
+                    stack.push(binOp.getLeft());
+                continue;
+            }
+
+            stack.pop();
+            labels.put(node, combine(binOp));
+        }
+
+        return labels.get(root);
+    }
+
+    /**
+     * Checks whether the right operand of an operation should be evaluated
+     * first, because it needs more stack slots than the left one.
+     *
+     * @param node the operation
+     * @return true if the operands should be evaluated right to left
+     */
+    public boolean rightFirst(NodeBinOp node) {
+        return node.getRight() != node.getLeft() && label(node.getRight()) > label(node.getLeft());
+    }
+
+    private int combine(NodeBinOp node) {
+        int left = labels.get(node.getLeft());
+        int right = labels.get(node.getRight());
+        int label;
+
+        if (node.getRight() == node.getLeft())
+            label = Math.max(left, 2);
+        else if (left == right)
+            label = left + 1;
+        else
+            label = Math.max(left, right);
+
+        return node.getOp() == LangOper.DIV_FLOAT ? Math.max(label, 3) : label;
+    }
+}
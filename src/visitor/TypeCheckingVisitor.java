@@ -1,5 +1,7 @@
 package visitor;
 
+import java.util.ArrayDeque;
+
 import ast.LangOper;
 import ast.NodeAST;
 import ast.NodeAssign;
@@ -8,6 +10,7 @@ import ast.NodeCost;
 import ast.NodeDecSt;
 import ast.NodeDecl;
 import ast.NodeDeref;
+import ast.NodeExpr;
 import ast.NodeId;
 import ast.NodePrint;
 import ast.NodeProgram;
@@ -15,8 +18,12 @@ import ast.TypeDescriptor;
 import ast.TypeTd;
 import symbolTable.Attributes;
 import symbolTable.SymbolTable;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
 
 public class TypeCheckingVisitor implements IVisitor {
+    private static final Tracer tracer = Trace.tracer(Phase.TYPE_CHECKING);
     private TypeDescriptor resType;
     private int row;
     private String errorMessage;
@@ -65,17 +72,20 @@ public class TypeCheckingVisitor implements IVisitor {
             sb.append(node.getName());
             sb.append("' not declared.");
 
-            System.out.println(resType.getMessage());
+            if (tracer.isError())
+                tracer.error(sb.toString());
             resType = new TypeDescriptor(TypeTd.ERROR, sb.toString(), row);
             errorMessage = sb.toString();
         } else {
             switch (SymbolTable.lookup(node.getName()).getType()) {
                 case INT:
-                    System.out.println("Visit node id: " + node.getName() + " of type INT");
+                    if (tracer.isDebug())
+                        tracer.debug("Visit node id: " + node.getName() + " of type INT");
                     resType = new TypeDescriptor(TypeTd.INT);
                     break;
                 case FLOAT:
-                    System.out.println("Visit node id: " + node.getName() + " of type FLOAT");
+                    if (tracer.isDebug())
+                        tracer.debug("Visit node id: " + node.getName() + " of type FLOAT");
                     resType = new TypeDescriptor(TypeTd.FLOAT);
                     break;
             }
@@ -97,15 +107,18 @@ public class TypeCheckingVisitor implements IVisitor {
         if (SymbolTable.enter(node.getId().getName(), new Attributes(node.getType(), node.getId().getName()))) {
             switch (node.getType()) {
                 case INT:
-                    System.out.println("Visit node decl: " + node.getId().getName() + " of type INT");
+                    if (tracer.isDebug())
+                        tracer.debug("Visit node decl: " + node.getId().getName() + " of type INT");
                     idTd = new TypeDescriptor(TypeTd.INT);
                     break;
                 case FLOAT:
-                    System.out.println("Visit node decl: " + node.getId().getName() + " of type FLOAT");
+                    if (tracer.isDebug())
+                        tracer.debug("Visit node decl: " + node.getId().getName() + " of type FLOAT");
                     idTd = new TypeDescriptor(TypeTd.FLOAT);
                     break;
                 default:
-                    System.out.println("Visit node decl: " + node.getId().getName() + " of unknown type");
+                    if (tracer.isDebug())
+                        tracer.debug("Visit node decl: " + node.getId().getName() + " of unknown type");
                     sb.append("Semantic error: variable '");
                     sb.append(node.getId().getName());
                     sb.append("' has an unknown type.");
@@ -117,14 +130,16 @@ public class TypeCheckingVisitor implements IVisitor {
             sb.append(node.getId().getName());
             sb.append("' already declared.");
 
-            System.out.println(sb.toString());
+            if (tracer.isError())
+                tracer.error(sb.toString());
             resType = new TypeDescriptor(TypeTd.ERROR, sb.toString(), row);
             errorMessage = sb.toString();
             return;
         }
 
         if (node.getInit() == null) {
-            System.out.println("Visit node decl: " + node.getId().getName() + " with no initialization");
+            if (tracer.isDebug())
+                tracer.debug("Visit node decl: " + node.getId().getName() + " with no initialization");
             resType = new TypeDescriptor(TypeTd.OK);
             return;
         }
@@ -145,8 +160,9 @@ public class TypeCheckingVisitor implements IVisitor {
             resType = new TypeDescriptor(TypeTd.ERROR, sb.toString(), row);
             errorMessage = sb.toString();
         } else {
-            System.out.println(
-                    "Visit node decl: " + node.getId().getName() + " initialized with " + node.getInit().toString());
+            if (tracer.isDebug())
+                tracer.debug("Visit node decl: " + node.getId().getName() + " initialized with "
+                        + node.getInit().toString());
 
             resType = new TypeDescriptor(TypeTd.OK);
         }
@@ -155,43 +171,70 @@ public class TypeCheckingVisitor implements IVisitor {
     /**
      * Visits a NodeBinOp and checks the types of the left and right operands.
      * It changes the operation to DIV_FLOAT if either operand is of type FLOAT.
-     * It sets the result type based on the types of the operands.
+     * It sets the result type based on the types of the operands, and stores it
+     * in the node for the later passes.
+     * The left spine of the tree is walked with a loop, so long
+     * left-associative chains do not recurse once per operator.
      *
      * @param node the NodeBinOp to visit
      */
     @Override
     public void visit(NodeBinOp node) {
-        node.getLeft().accept(this);
-        TypeDescriptor leftTd = resType;
-        node.getRight().accept(this);
-        TypeDescriptor rightTd = resType;
+        ArrayDeque<NodeBinOp> spine = new ArrayDeque<>();
+        NodeExpr leftmost = node;
+
+        while (leftmost instanceof NodeBinOp) {
+            spine.push((NodeBinOp) leftmost);
+            leftmost = ((NodeBinOp) leftmost).getLeft();
+        }
+
+        leftmost.accept(this);
+
+        while (!spine.isEmpty()) {
+            NodeBinOp binOp = spine.pop();
+            TypeDescriptor leftTd = resType;
+            binOp.getRight().accept(this);
+            checkBinOp(binOp, leftTd, resType);
+        }
+    }
 
+    /**
+     * Checks a NodeBinOp once the types of its operands are known.
+     *
+     * @param node    the NodeBinOp to check
+     * @param leftTd  the type of the left operand
+     * @param rightTd the type of the right operand
+     */
+    private void checkBinOp(NodeBinOp node, TypeDescriptor leftTd, TypeDescriptor rightTd) {
         if (leftTd.getType() == TypeTd.ERROR) {
-            System.out.println("Error propagation visiting left operand: " + leftTd.getMessage());
+            if (tracer.isError())
+                tracer.error("Error propagation visiting left operand: " + leftTd.getMessage());
             resType = leftTd;
         } else if (rightTd.getType() == TypeTd.ERROR) {
-            System.out.println("Error propagation visiting right operand: " + rightTd.getMessage());
+            if (tracer.isError())
+                tracer.error("Error propagation visiting right operand: " + rightTd.getMessage());
             resType = rightTd;
         }
 
         if (node.getOp() == LangOper.DIV && (leftTd.getType() == TypeTd.FLOAT || rightTd.getType() == TypeTd.FLOAT)) {
-            System.out.println("Changing operation to DIV_FLOAT due to FLOAT type");
+            if (tracer.isDebug())
+                tracer.debug("Changing operation to DIV_FLOAT due to FLOAT type");
             node.setOp(LangOper.DIV_FLOAT);
         }
 
         if (leftTd.getType() == TypeTd.FLOAT || rightTd.getType() == TypeTd.FLOAT) {
-            System.out.println("Visit node binop: " + node.getLeft().toString() + " " + node.getOp() + " "
-                    + node.getRight().toString() +
-                    " with result type FLOAT");
+            if (tracer.isDebug())
+                tracer.debug("Visit node binop: " + node.getOp() + " with result type FLOAT");
 
             resType = new TypeDescriptor(TypeTd.FLOAT);
         } else {
-            System.out.println("Visit node binop: " + node.getLeft().toString() + " " + node.getOp() + " "
-                    + node.getRight().toString() +
-                    " with result type INT");
+            if (tracer.isDebug())
+                tracer.debug("Visit node binop: " + node.getOp() + " with result type INT");
 
             resType = new TypeDescriptor(TypeTd.INT);
         }
+
+        node.setResType(resType);
     }
 
     /**
@@ -203,8 +246,10 @@ public class TypeCheckingVisitor implements IVisitor {
     @Override
     public void visit(NodeDeref node) {
         node.getId().accept(this);
+        node.setResType(resType);
 
-        System.out.println("Visit node deref: " + node.getId().toString());
+        if (tracer.isDebug())
+            tracer.debug("Visit node deref: " + node.getId().toString());
     }
 
     /**
@@ -217,14 +262,18 @@ public class TypeCheckingVisitor implements IVisitor {
     public void visit(NodeCost node) {
         switch (node.getType()) {
             case FLOAT:
-                System.out.println("Visit node cost: " + node.getValue() + " of type FLOAT");
+                if (tracer.isDebug())
+                    tracer.debug("Visit node cost: " + node.getValue() + " of type FLOAT");
                 resType = new TypeDescriptor(TypeTd.FLOAT);
                 break;
             case INT:
-                System.out.println("Visit node cost: " + node.getValue() + " of type INT");
+                if (tracer.isDebug())
+                    tracer.debug("Visit node cost: " + node.getValue() + " of type INT");
                 resType = new TypeDescriptor(TypeTd.INT);
                 break;
         }
+
+        node.setResType(resType);
     }
 
     /**
@@ -248,12 +297,14 @@ public class TypeCheckingVisitor implements IVisitor {
         TypeDescriptor exprTd = resType;
 
         if (idTd.getType() == TypeTd.ERROR) {
-            System.out.println("Error propagation visiting id: " + idTd.getMessage());
+            if (tracer.isError())
+                tracer.error("Error propagation visiting id: " + idTd.getMessage());
             resType = idTd;
         }
 
         else if (exprTd.getType() == TypeTd.ERROR) {
-            System.out.println("Error propagation visiting expression: " + exprTd.getMessage());
+            if (tracer.isError())
+                tracer.error("Error propagation visiting expression: " + exprTd.getMessage());
             resType = exprTd;
         }
 
@@ -270,7 +321,8 @@ public class TypeCheckingVisitor implements IVisitor {
             errorMessage = sb.toString();
         }
 
-        System.out.println("Visit node assign: " + node.getId().toString() + " = " + node.getExpr().toString());
+        if (tracer.isDebug())
+            tracer.debug("Visit node assign: " + node.getId().toString() + " = " + node.getExpr().toString());
         resType = new TypeDescriptor(TypeTd.OK);
     }
 
@@ -288,11 +340,13 @@ public class TypeCheckingVisitor implements IVisitor {
         node.getId().accept(this);
 
         if (resType != null && resType.getType() != TypeTd.ERROR) {
-            System.out.println("Visit node print: " + node.getId().toString());
+            if (tracer.isDebug())
+                tracer.debug("Visit node print: " + node.getId().toString());
 
             resType = new TypeDescriptor(TypeTd.OK);
         } else {
-            System.err.println("Error propagation visiting node print: " + resType.getMessage());
+            if (tracer.isError())
+                tracer.error("Error propagation visiting node print: " + resType.getMessage());
         }
     }
 }
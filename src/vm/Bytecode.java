@@ -0,0 +1,262 @@
+package vm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * A compiled program: the instructions (see {@link Opcodes}), the constant
+ * pool and the number of registers.<br>
+ *
+ * Programs are checked when they are created: every opcode is known, every
+ * register and constant index is in range and every scale is non-negative,
+ * so the {@link VirtualMachine} runs them without checks.<br>
+ *
+ * The binary form ({@link #writeTo(OutputStream)}) is the magic number
+ * {@code ACVM}, a version, the number of registers, the constants as decimal
+ * strings and the instructions as ints, big-endian.
+ */
+public final class Bytecode {
+    private static final int MAGIC = 0x4143564D;
+    private static final int VERSION = 1;
+
+    private final int[] code;
+    private final BigDecimal[] constants;
+    private final int registers;
+
+    /**
+     * Creates a program.
+     *
+     * @param code      the instructions
+     * @param constants the constant pool
+     * @param registers the number of registers
+     * @throws IllegalArgumentException if the instructions are not valid
+     */
+    public Bytecode(int[] code, BigDecimal[] constants, int registers) {
+        this.code = code.clone();
+        this.constants = constants.clone();
+        this.registers = registers;
+        verify();
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    BigDecimal[] constants() {
+        return constants;
+    }
+
+    /**
+     * Returns a copy of the instructions.
+     *
+     * @return the instructions
+     */
+    public int[] getCode() {
+        return code.clone();
+    }
+
+    /**
+     * Returns the constant pool.
+     *
+     * @return the constants, indexed by the {@code LOAD} instructions
+     */
+    public BigDecimal[] getConstants() {
+        return constants.clone();
+    }
+
+    public int getRegisterCount() {
+        return registers;
+    }
+
+    /**
+     * Counts the instructions.
+     *
+     * @return the number of instructions
+     */
+    public int getInstructionCount() {
+        int count = 0;
+
+        for (int pc = 0; pc < code.length; pc += Opcodes.length(code[pc]))
+            count++;
+
+        return count;
+    }
+
+    /**
+     * Writes the binary form of the program.
+     *
+     * @param out the destination, left open
+     * @throws IOException if it cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(registers);
+        data.writeInt(constants.length);
+
+        for (BigDecimal constant : constants)
+            data.writeUTF(constant.toPlainString());
+
+        data.writeInt(code.length);
+
+        for (int word : code)
+            data.writeInt(word);
+
+        data.flush();
+    }
+
+    /**
+     * Reads a program written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in the source, left open
+     * @return the program
+     * @throws IOException if it cannot be read or is not a valid program
+     */
+    public static Bytecode readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not an AC bytecode file");
+        if (data.readInt() != VERSION)
+            throw new IOException("Unsupported bytecode version");
+
+        int registers = data.readInt();
+        int count = data.readInt();
+
+        if (registers < 0 || count < 0)
+            throw new IOException("Invalid bytecode header");
+
+        BigDecimal[] constants = new BigDecimal[count];
+
+        try {
+            for (int i = 0; i < count; i++)
+                constants[i] = new BigDecimal(data.readUTF());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid constant", e);
+        }
+
+        int length = data.readInt();
+
+        if (length < 0)
+            throw new IOException("Invalid bytecode header");
+
+        int[] code = new int[length];
+
+        for (int i = 0; i < length; i++)
+            code[i] = data.readInt();
+
+        try {
+            return new Bytecode(code, constants, registers);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void verify() {
+        int pc = 0;
+
+        while (pc < code.length) {
+            int opcode = code[pc];
+
+            if (!Opcodes.isValid(opcode))
+                throw new IllegalArgumentException("Unknown opcode " + opcode + " at " + pc);
+            if (pc + Opcodes.length(opcode) > code.length)
+                throw new IllegalArgumentException("Truncated instruction at " + pc);
+
+            switch (opcode) {
+                case Opcodes.LOAD:
+                    register(pc, 1);
+                    if (code[pc + 2] < 0 || code[pc + 2] >= constants.length)
+                        throw new IllegalArgumentException("Constant out of range at " + pc);
+                    break;
+                case Opcodes.PRINT:
+                    register(pc, 1);
+                    scale(pc, 2);
+                    break;
+                case Opcodes.MOVE:
+                    register(pc, 1);
+                    register(pc, 2);
+                    break;
+                default:
+                    register(pc, 1);
+                    register(pc, 2);
+                    register(pc, 3);
+
+                    if (Opcodes.length(opcode) > 4) {
+                        scale(pc, 4);
+                        scale(pc, 5);
+                    }
+                    break;
+            }
+
+            pc += Opcodes.length(opcode);
+        }
+    }
+
+    private void register(int pc, int operand) {
+        if (code[pc + operand] < 0 || code[pc + operand] >= registers)
+            throw new IllegalArgumentException("Register out of range at " + pc);
+    }
+
+    private void scale(int pc, int operand) {
+        if (code[pc + operand] < 0)
+            throw new IllegalArgumentException("Negative scale at " + pc);
+    }
+
+    /**
+     * Lists the instructions, one per line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+
+        for (int pc = 0; pc < code.length; pc += Opcodes.length(code[pc])) {
+            int opcode = code[pc];
+            text.append(String.format("%4d  %-6s", pc, Opcodes.name(opcode)));
+
+            switch (opcode) {
+                case Opcodes.LOAD:
+                    text.append("r").append(code[pc + 1]).append(", ").append(constants[code[pc + 2]].toPlainString());
+                    break;
+                case Opcodes.MOVE:
+                    text.append("r").append(code[pc + 1]).append(", r").append(code[pc + 2]);
+                    break;
+                case Opcodes.PRINT:
+                    text.append("r").append(code[pc + 1]).append(" (scale ").append(code[pc + 2]).append(")");
+                    break;
+                default:
+                    text.append("r").append(code[pc + 1]).append(", r").append(code[pc + 2]).append(", r")
+                            .append(code[pc + 3]);
+
+                    if (Opcodes.length(opcode) > 4)
+                        text.append(" (scales ").append(code[pc + 4]).append(", ").append(code[pc + 5]).append(")");
+                    break;
+            }
+
+            text.append('\n');
+        }
+
+        return text.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Bytecode))
+            return false;
+
+        Bytecode program = (Bytecode) other;
+        return registers == program.registers && Arrays.equals(code, program.code)
+                && Arrays.equals(constants, program.constants);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(code) + registers;
+    }
+}
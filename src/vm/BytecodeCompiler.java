@@ -0,0 +1,302 @@
+package vm;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+
+import ast.LangOper;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeCost;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeExpr;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.TypeTd;
+import optimizer.DcArithmetic;
+import visitor.IVisitor;
+
+/**
+ * Translation of a type-checked program into {@link Bytecode}.<br>
+ *
+ * The variables get the registers {@code 0..v-1}, the temporaries of the
+ * expressions the registers after them; a temporary is released as soon as
+ * its last use is compiled, so the number of registers grows with the width
+ * of the expressions, not with their size. The scale of every register is
+ * followed statement by statement, as the {@code TreeBuilder} of the
+ * interpreter does, and written into the float instructions.<br>
+ *
+ * Expressions are compiled in post-order with an explicit stack. The last
+ * operation of an assignment writes straight into the register of the
+ * variable; an operand shared by both sides of an operation is computed once.
+ */
+public class BytecodeCompiler implements IVisitor {
+    private final HashMap<String, Integer> registers = new HashMap<>();
+    private final HashMap<String, Integer> scales = new HashMap<>();
+    private final LinkedHashMap<BigDecimal, Integer> constants = new LinkedHashMap<>();
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private int[] code = new int[64];
+    private int length;
+    private int registerCount;
+
+    /**
+     * Returns the compiled program.
+     *
+     * @return the bytecode of the visited program
+     */
+    public Bytecode getBytecode() {
+        return new Bytecode(Arrays.copyOf(code, length), constants.keySet().toArray(new BigDecimal[0]),
+                registerCount);
+    }
+
+    @Override
+    public void visit(NodeProgram node) {
+        for (NodeDecSt dec : node.getDecSts())
+            declare(dec);
+
+        for (NodeDecSt dec : node.getDecSts())
+            dec.accept(this);
+    }
+
+    @Override
+    public void visit(NodeId node) {
+    }
+
+    @Override
+    public void visit(NodeDecl node) {
+        if (node.getInit() != null)
+            assign(node.getId().getName(), node.getInit());
+        else
+            scales.put(node.getId().getName(), 0);
+    }
+
+    @Override
+    public void visit(NodeBinOp node) {
+    }
+
+    @Override
+    public void visit(NodeDeref node) {
+    }
+
+    @Override
+    public void visit(NodeCost node) {
+    }
+
+    @Override
+    public void visit(NodeAssign node) {
+        assign(node.getId().getName(), node.getExpr());
+    }
+
+    @Override
+    public void visit(NodePrint node) {
+        String name = node.getId().getName();
+        emit(Opcodes.PRINT, registers.get(name), scales.getOrDefault(name, 0));
+    }
+
+    /**
+     * Gives a register to every variable of a statement before any
+     * temporary is allocated.
+     */
+    private void declare(NodeDecSt dec) {
+        NodeExpr expr = null;
+
+        if (dec instanceof NodeDecl) {
+            variable(((NodeDecl) dec).getId().getName());
+            expr = ((NodeDecl) dec).getInit();
+        } else if (dec instanceof NodeAssign) {
+            variable(((NodeAssign) dec).getId().getName());
+            expr = ((NodeAssign) dec).getExpr();
+        } else if (dec instanceof NodePrint) {
+            variable(((NodePrint) dec).getId().getName());
+        }
+
+        if (expr == null)
+            return;
+
+        IdentityHashMap<NodeExpr, Boolean> seen = new IdentityHashMap<>();
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.pop();
+
+            if (seen.put(node, Boolean.TRUE) != null)
+                continue;
+
+            if (node instanceof NodeDeref) {
+                variable(((NodeDeref) node).getId().getName());
+            } else if (node instanceof NodeBinOp) {
+                pending.push(((NodeBinOp) node).getLeft());
+                pending.push(((NodeBinOp) node).getRight());
+            }
+        }
+    }
+
+    private void variable(String name) {
+        if (!registers.containsKey(name))
+            registers.put(name, registerCount++);
+    }
+
+    private void assign(String name, NodeExpr expr) {
+        int target = registers.get(name);
+        scales.put(name, compile(expr, target));
+    }
+
+    /**
+     * Compiles an expression whose value goes into a register.
+     *
+     * @return the scale of the value
+     */
+    private int compile(NodeExpr root, int target) {
+        IdentityHashMap<NodeExpr, Integer> uses = new IdentityHashMap<>();
+        IdentityHashMap<NodeExpr, int[]> compiled = new IdentityHashMap<>();
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        count(root, uses);
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.peek();
+
+            if (compiled.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+
+            int destination = node == root ? target : -1;
+
+            if (node instanceof NodeCost) {
+                pending.pop();
+                BigDecimal value = DcArithmetic.parse(((NodeCost) node).getValue());
+                destination = destination >= 0 ? destination : allocate();
+                emit(Opcodes.LOAD, destination, constant(value));
+                compiled.put(node, new int[] { destination, value.scale(), 1 });
+                continue;
+            }
+
+            if (node instanceof NodeDeref) {
+                pending.pop();
+                String name = ((NodeDeref) node).getId().getName();
+                int register = registers.get(name);
+
+                if (destination >= 0 && destination != register)
+                    emit(Opcodes.MOVE, destination, register);
+
+                compiled.put(node, new int[] { register, scales.getOrDefault(name, 0), 0 });
+                continue;
+            }
+
+            NodeBinOp binOp = (NodeBinOp) node;
+
+            if (!compiled.containsKey(binOp.getLeft()) || !compiled.containsKey(binOp.getRight())) {
+                if (!compiled.containsKey(binOp.getRight()))
+                    pending.push(binOp.getRight());
+                if (!compiled.containsKey(binOp.getLeft()))
+                    pending.push(binOp.getLeft());
+                continue;
+            }
+
+            pending.pop();
+            int[] left = compiled.get(binOp.getLeft());
+            int[] right = compiled.get(binOp.getRight());
+            release(binOp.getLeft(), left, uses);
+            release(binOp.getRight(), right, uses);
+            destination = destination >= 0 ? destination : allocate();
+            int scale;
+
+            if (binOp.getResType() != null && binOp.getResType().getType() == TypeTd.INT) {
+                emit(intOpcode(binOp.getOp()), destination, left[0], right[0]);
+                scale = 0;
+            } else {
+                emit(floatOpcode(binOp.getOp()), destination, left[0], right[0], left[1], right[1]);
+                scale = scale(binOp.getOp(), left[1], right[1]);
+            }
+
+            compiled.put(node, new int[] { destination, scale, 1 });
+        }
+
+        return compiled.get(root)[1];
+    }
+
+    /**
+     * Counts the operations reading each node of an expression.
+     */
+    private static void count(NodeExpr root, IdentityHashMap<NodeExpr, Integer> uses) {
+        ArrayDeque<NodeExpr> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            NodeExpr node = pending.pop();
+
+            if (node instanceof NodeBinOp) {
+                for (NodeExpr child : new NodeExpr[] { ((NodeBinOp) node).getLeft(), ((NodeBinOp) node).getRight() })
+                    if (uses.merge(child, 1, Integer::sum) == 1)
+                        pending.push(child);
+            }
+        }
+    }
+
+    /**
+     * Frees the temporary of an operand when the operation being compiled is
+     * its last reader.
+     */
+    private void release(NodeExpr node, int[] operand, IdentityHashMap<NodeExpr, Integer> uses) {
+        if (uses.merge(node, -1, Integer::sum) == 0 && operand[2] == 1)
+            free.push(operand[0]);
+    }
+
+    private int allocate() {
+        return free.isEmpty() ? registerCount++ : free.pop();
+    }
+
+    private int constant(BigDecimal value) {
+        return constants.computeIfAbsent(value, k -> constants.size());
+    }
+
+    private static int intOpcode(LangOper op) {
+        switch (op) {
+            case PLUS:
+                return Opcodes.IADD;
+            case MINUS:
+                return Opcodes.ISUB;
+            case TIMES:
+                return Opcodes.IMUL;
+            default:
+                return Opcodes.IDIV;
+        }
+    }
+
+    private static int floatOpcode(LangOper op) {
+        switch (op) {
+            case PLUS:
+                return Opcodes.FADD;
+            case MINUS:
+                return Opcodes.FSUB;
+            case TIMES:
+                return Opcodes.FMUL;
+            default:
+                return Opcodes.FDIV5;
+        }
+    }
+
+    /**
+     * Returns the scale dc gives the result of a float operation.
+     */
+    private static int scale(LangOper op, int left, int right) {
+        return op == LangOper.TIMES || op == LangOper.PLUS || op == LangOper.MINUS ? Math.max(left, right)
+                : DcArithmetic.FLOAT_SCALE;
+    }
+
+    private void emit(int... instruction) {
+        if (length + instruction.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + instruction.length));
+
+        System.arraycopy(instruction, 0, code, length, instruction.length);
+        length += instruction.length;
+    }
+}
@@ -0,0 +1,80 @@
+package vm;
+
+/**
+ * The instructions of the {@link VirtualMachine}. An instruction is its
+ * opcode followed by its operands, all ints:
+ *
+ * <pre>
+ * LOAD  d k            d = constant k
+ * MOVE  d s            d = s
+ * IADD  d a b          d = a + b on integers (ISUB, IMUL, IDIV likewise)
+ * FADD  d a b sa sb    d = a + b, a having scale sa and b scale sb
+ *                      (FSUB, FMUL likewise; FDIV5 divides with 5 decimals)
+ * PRINT r s            prints r, which has scale s
+ * </pre>
+ *
+ * The scale of every register is known when the program is compiled, so the
+ * float instructions carry the scales of their operands and the registers
+ * hold plain longs.
+ */
+public final class Opcodes {
+    public static final int LOAD = 0;
+    public static final int MOVE = 1;
+    public static final int IADD = 2;
+    public static final int ISUB = 3;
+    public static final int IMUL = 4;
+    public static final int IDIV = 5;
+    public static final int FADD = 6;
+    public static final int FSUB = 7;
+    public static final int FMUL = 8;
+    public static final int FDIV5 = 9;
+    public static final int PRINT = 10;
+
+    private static final String[] NAMES = { "LOAD", "MOVE", "IADD", "ISUB", "IMUL", "IDIV", "FADD", "FSUB",
+            "FMUL", "FDIV5", "PRINT" };
+
+    private Opcodes() {
+    }
+
+    /**
+     * Checks whether an int is an opcode.
+     *
+     * @param opcode the int
+     * @return true if it is one of the opcodes
+     */
+    public static boolean isValid(int opcode) {
+        return opcode >= 0 && opcode < NAMES.length;
+    }
+
+    /**
+     * Returns the mnemonic of an opcode.
+     *
+     * @param opcode the opcode
+     * @return its name
+     */
+    public static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * Returns the number of ints of an instruction, opcode included.
+     *
+     * @param opcode the opcode
+     * @return the length of the instruction
+     */
+    public static int length(int opcode) {
+        switch (opcode) {
+            case LOAD:
+            case MOVE:
+            case PRINT:
+                return 3;
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IDIV:
+                return 4;
+            default:
+                return 6;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package vm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+import ast.LangOper;
+import exception.InterpreterException;
+import optimizer.DcArithmetic;
+import trace.Phase;
+import trace.Trace;
+import trace.Tracer;
+
+/**
+ * Runs {@link Bytecode}.<br>
+ *
+ * The registers are {@code long}s holding the value multiplied by ten to its
+ * scale, known from the instructions. The loop dispatches with a
+ * {@code switch} on the opcode and allocates nothing while the values fit in
+ * a long: the operations are checked with {@code Math.*Exact}, and one that
+ * overflows is computed again with {@code BigDecimal} by
+ * {@link DcArithmetic}, its result kept beside the register until a value
+ * fitting in a long is written there. The output and the results are those
+ * of the {@code interpreter}: dc's number format, a division by zero
+ * stopping the program with an {@link InterpreterException}.
+ */
+public final class VirtualMachine {
+    private static final Tracer tracer = Trace.tracer(Phase.INTERPRETER);
+    private static final long[] POWERS = new long[19];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++)
+            POWERS[i] = POWERS[i - 1] * 10;
+    }
+
+    private VirtualMachine() {
+    }
+
+    /**
+     * Runs a program.
+     *
+     * @param program the program
+     * @param out     the destination of the printed values
+     * @throws InterpreterException at a division by zero
+     * @throws IOException          if the output cannot be written
+     */
+    public static void run(Bytecode program, Appendable out) throws InterpreterException, IOException {
+        final int[] code = program.code();
+        final long[] regs = new long[program.getRegisterCount()];
+        final BigDecimal[] big = new BigDecimal[regs.length];
+        final BigDecimal[] pool = program.constants();
+        final long[] constants = new long[pool.length];
+        final boolean[] fits = new boolean[pool.length];
+        int slow = 0;
+
+        for (int i = 0; i < pool.length; i++) {
+            fits[i] = pool[i].unscaledValue().bitLength() < Long.SIZE;
+            constants[i] = pool[i].unscaledValue().longValue();
+        }
+
+        int pc = 0;
+
+        while (pc < code.length) {
+            final int opcode = code[pc];
+            final int d = code[pc + 1];
+
+            switch (opcode) {
+                case Opcodes.LOAD: {
+                    int k = code[pc + 2];
+                    regs[d] = constants[k];
+                    big[d] = fits[k] ? null : pool[k];
+                    pc += 3;
+                    continue;
+                }
+                case Opcodes.MOVE: {
+                    int s = code[pc + 2];
+                    regs[d] = regs[s];
+                    big[d] = big[s];
+                    pc += 3;
+                    continue;
+                }
+                case Opcodes.PRINT:
+                    out.append(DcArithmetic.display(decimal(regs, big, d, code[pc + 2]))).append('\n');
+                    pc += 3;
+                    continue;
+                default:
+                    break;
+            }
+
+            final int a = code[pc + 2];
+            final int b = code[pc + 3];
+            final int sa = opcode >= Opcodes.FADD ? code[pc + 4] : 0;
+            final int sb = opcode >= Opcodes.FADD ? code[pc + 5] : 0;
+
+            if (big[a] == null && big[b] == null) {
+                final long x = regs[a];
+                final long y = regs[b];
+
+                try {
+                    long result;
+
+                    switch (opcode) {
+                        case Opcodes.IADD:
+                            result = Math.addExact(x, y);
+                            break;
+                        case Opcodes.ISUB:
+                            result = Math.subtractExact(x, y);
+                            break;
+                        case Opcodes.IMUL:
+                            result = Math.multiplyExact(x, y);
+                            break;
+                        case Opcodes.IDIV:
+                            if (y == 0)
+                                throw divisionByZero(pc);
+                            if (x == Long.MIN_VALUE && y == -1)
+                                throw new ArithmeticException();
+                            result = x / y;
+                            break;
+                        case Opcodes.FADD:
+                        case Opcodes.FSUB: {
+                            int s = Math.max(sa, sb);
+
+                            if (s - sa >= POWERS.length || s - sb >= POWERS.length)
+                                throw new ArithmeticException();
+
+                            long left = Math.multiplyExact(x, POWERS[s - sa]);
+                            long right = Math.multiplyExact(y, POWERS[s - sb]);
+                            result = opcode == Opcodes.FADD ? Math.addExact(left, right)
+                                    : Math.subtractExact(left, right);
+                            break;
+                        }
+                        case Opcodes.FMUL: {
+                            int drop = Math.min(sa, sb);
+
+                            if (drop >= POWERS.length)
+                                throw new ArithmeticException();
+
+                            result = Math.multiplyExact(x, y) / POWERS[drop];
+                            break;
+                        }
+                        default: {
+                            if (y == 0)
+                                throw divisionByZero(pc);
+
+                            int exponent = DcArithmetic.FLOAT_SCALE + sb - sa;
+
+                            if (Math.abs(exponent) >= POWERS.length)
+                                throw new ArithmeticException();
+
+                            long dividend = exponent >= 0 ? Math.multiplyExact(x, POWERS[exponent]) : x;
+                            long divisor = exponent < 0 ? Math.multiplyExact(y, POWERS[-exponent]) : y;
+
+                            if (dividend == Long.MIN_VALUE && divisor == -1)
+                                throw new ArithmeticException();
+
+                            result = dividend / divisor;
+                            break;
+                        }
+                    }
+
+                    regs[d] = result;
+                    big[d] = null;
+                    pc += Opcodes.length(opcode);
+                    continue;
+                } catch (ArithmeticException e) {
+                    // computed again below
+                }
+            }
+
+            BigDecimal result = DcArithmetic.apply(operator(opcode), decimal(regs, big, a, sa),
+                    decimal(regs, big, b, sb));
+
+            if (result == null)
+                throw divisionByZero(pc);
+
+            if (result.unscaledValue().bitLength() < Long.SIZE) {
+                regs[d] = result.unscaledValue().longValue();
+                big[d] = null;
+            } else {
+                big[d] = result;
+            }
+
+            slow++;
+            pc += Opcodes.length(opcode);
+        }
+
+        if (slow > 0 && tracer.isDebug())
+            tracer.debug(slow + " operations computed with BigDecimal");
+    }
+
+    /**
+     * Runs a program and returns its output.
+     *
+     * @param program the program
+     * @return the printed values, one per line
+     * @throws InterpreterException at a division by zero
+     */
+    public static String run(Bytecode program) throws InterpreterException {
+        StringBuilder out = new StringBuilder();
+
+        try {
+            run(program, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    private static BigDecimal decimal(long[] regs, BigDecimal[] big, int register, int scale) {
+        return big[register] != null ? big[register] : BigDecimal.valueOf(regs[register], scale);
+    }
+
+    private static LangOper operator(int opcode) {
+        switch (opcode) {
+            case Opcodes.IADD:
+            case Opcodes.FADD:
+                return LangOper.PLUS;
+            case Opcodes.ISUB:
+            case Opcodes.FSUB:
+                return LangOper.MINUS;
+            case Opcodes.IMUL:
+            case Opcodes.FMUL:
+                return LangOper.TIMES;
+            case Opcodes.IDIV:
+                return LangOper.DIV;
+            default:
+                return LangOper.DIV_FLOAT;
+        }
+    }
+
+    private static InterpreterException divisionByZero(int pc) {
+        return new InterpreterException("Division by zero at instruction " + pc);
+    }
+}